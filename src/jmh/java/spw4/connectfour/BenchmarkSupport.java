@@ -0,0 +1,64 @@
+package spw4.connectfour;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Helpers shared by the benchmarks that drive {@link ConnectFourServlet}.
+ */
+final class BenchmarkSupport {
+    private static final Pattern GAME_ID = Pattern.compile("id=([0-9a-f-]{36})");
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Returns the id of the game a page links to.
+     */
+    static UUID gameId(String page) {
+        Matcher matcher = GAME_ID.matcher(page);
+        if (!matcher.find()) {
+            throw new IllegalStateException("new game page contains no game id");
+        }
+
+        return UUID.fromString(matcher.group(1));
+    }
+
+    /**
+     * Servlet output passing everything on to a target stream and counting the bytes written.
+     */
+    static final class CountingOutputStream extends ServletOutputStream {
+        private final OutputStream target;
+        long count;
+
+        CountingOutputStream(OutputStream target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            target.write(bytes, offset, length);
+            count += length;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+    }
+}
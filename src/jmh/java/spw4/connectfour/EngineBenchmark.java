@@ -0,0 +1,74 @@
+package spw4.connectfour;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+    private static final int[] RECORDED_GAME = {3, 3, 2, 4, 4, 2, 1, 5, 5, 1, 0, 6, 6, 0, 3, 3, 2, 4, 4, 2, 1};
+
+    @Param({"array", "bitboard"})
+    public ConnectFourEngine engine;
+
+    private ConnectFour replayGame;
+    private ConnectFour midGame;
+    private ConnectFour randomGame;
+    private SplittableRandom random;
+
+    @Setup
+    public void setUp() {
+        replayGame = engine.create(Player.red);
+        randomGame = engine.create(Player.red);
+        random = new SplittableRandom(42);
+
+        midGame = engine.create(Player.red);
+        for (int col : RECORDED_GAME) {
+            midGame.drop(col);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(21)
+    public ConnectFour drop() {
+        replayGame.reset(Player.red);
+        for (int col : RECORDED_GAME) {
+            replayGame.drop(col);
+        }
+
+        return replayGame;
+    }
+
+    @Benchmark
+    public Player getWinner() {
+        return midGame.getWinner();
+    }
+
+    @Benchmark
+    public boolean isGameOver() {
+        return midGame.isGameOver();
+    }
+
+    @Benchmark
+    public String toStringBoard() {
+        return midGame.toString();
+    }
+
+    @Benchmark
+    public void randomGame(Blackhole blackhole) {
+        randomGame.reset(Player.red);
+        while (!randomGame.isGameOver()) {
+            int[] moves = randomGame.legalMoves();
+            randomGame.drop(moves[random.nextInt(moves.length)]);
+        }
+
+        blackhole.consume(randomGame.getWinner());
+    }
+}
@@ -0,0 +1,349 @@
+package spw4.connectfour;
+
+import spw4.connectfour.BenchmarkSupport.CountingOutputStream;
+import spw4.connectfour.metrics.LatencyHistogram;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives {@link ConnectFourServlet#doGet} in-process with many concurrent players, each on its own virtual thread.
+ * <p>
+ * A player starts a game, drops discs into random legal columns and refreshes the page in between, waiting a random
+ * think time of up to twice the configured one before each request, and starts over once the game is over. Half of
+ * the refreshes are conditional, as a polling browser would send them. Requests and responses are small proxies, so
+ * the whole run measures the servlet, registry, engines and renderer without a container or network. After a warmup
+ * the driver reports throughput, latency quantiles per action, garbage collection and heap usage, and checks that
+ * every drop of a player reached its game, which only that player plays. Run it as
+ * {@code mvn -P benchmark test-compile exec:exec -Dbenchmark.main=spw4.connectfour.LoadDriver -Djmh.args="..."} with
+ * arguments {@code --players 1000 --seconds 30 --warmupSeconds 5 --thinkMillis 100 --refreshes 2 [--computer yellow]};
+ * all other {@code --name value} pairs are passed to the {@link GameServer} as init parameters, such as
+ * {@code --engine slab} or {@code --winProbabilityPlayouts 0}.
+ */
+public final class LoadDriver {
+    private static final List<String> ACTIONS = List.of("new", "drop", "view");
+    private static final Object NO_ANSWER = new Object();
+
+    private final GameServer server;
+    private final ConnectFourServlet servlet;
+    private final int players;
+    private final Duration warmup;
+    private final Duration measurement;
+    private final long thinkMillis;
+    private final int refreshes;
+    private final String computer;
+
+    private final Map<String, LatencyHistogram> latencies = new HashMap<>();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder gamesFinished = new LongAdder();
+    private final LongAdder lostDrops = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile boolean measuring;
+    private volatile boolean stopping;
+
+    private LoadDriver(Map<String, String> options) throws Exception {
+        players = Integer.parseInt(options.getOrDefault("players", "1000"));
+        warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmupSeconds", "5")));
+        measurement = Duration.ofSeconds(Long.parseLong(options.getOrDefault("seconds", "30")));
+        thinkMillis = Long.parseLong(options.getOrDefault("thinkMillis", "100"));
+        refreshes = Integer.parseInt(options.getOrDefault("refreshes", "2"));
+        computer = options.get("computer");
+        for (String action : ACTIONS) {
+            latencies.put(action, new LatencyHistogram());
+        }
+
+        server = GameServer.start(options::get);
+        ServletContext context = stub(ServletContext.class, (name, args) -> switch (name) {
+            case "getAttribute" -> GameServer.ATTRIBUTE.equals(args[0]) ? server : null;
+            case "log" -> {
+                System.err.println(args[0]);
+                yield null;
+            }
+            default -> NO_ANSWER;
+        });
+        ServletConfig config = stub(ServletConfig.class, (name, args) -> switch (name) {
+            case "getServletContext" -> context;
+            case "getServletName" -> "ConnectFour";
+            default -> NO_ANSWER;
+        });
+
+        servlet = new ConnectFourServlet();
+        servlet.init(config);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                System.err.println("usage: LoadDriver [--name value]...");
+                System.exit(2);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+
+        LoadDriver driver = new LoadDriver(options);
+        try {
+            driver.run();
+        } finally {
+            driver.server.close();
+        }
+    }
+
+    private void run() throws InterruptedException {
+        System.out.printf("%d players, %d s warmup, %d s measurement, %d ms think time%n",
+                players, warmup.toSeconds(), measurement.toSeconds(), thinkMillis);
+
+        HeapAndGc before;
+        HeapAndGc after;
+        double seconds;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            try {
+                for (int i = 0; i < players; i++) {
+                    executor.execute(this::play);
+                }
+
+                Thread.sleep(warmup.toMillis());
+                before = HeapAndGc.reset();
+                measuring = true;
+                long start = System.nanoTime();
+
+                Thread.sleep(measurement.toMillis());
+                measuring = false;
+                seconds = (System.nanoTime() - start) / 1e9;
+                after = HeapAndGc.read();
+            } finally {
+                // closing the executor waits for the players, which only stop once told to
+                stopping = true;
+            }
+        }
+
+        report(seconds, before, after);
+    }
+
+    private void play() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String etag = null;
+        UUID id = null;
+
+        while (!stopping) {
+            try {
+                if (id == null) {
+                    think(random);
+                    id = newGame();
+                    etag = null;
+                    continue;
+                }
+
+                for (int i = 0; i < refreshes && !stopping; i++) {
+                    think(random);
+                    etag = view(id, random.nextBoolean() ? etag : null);
+                }
+
+                GameSession session = server.getRegistry().get(id);
+                if (session == null) {
+                    expired.increment();
+                    id = null;
+                    continue;
+                }
+
+                GameSnapshot game = session.getSnapshot();
+                if (game.isGameOver()) {
+                    gamesFinished.increment();
+                    id = null;
+                    continue;
+                }
+
+                int[] legal = game.legalMoves();
+                think(random);
+                etag = drop(id, legal[random.nextInt(legal.length)]);
+                GameSession dropped = server.getRegistry().get(id);
+                if (dropped == null) {
+                    expired.increment();
+                    id = null;
+                } else if (dropped.getSnapshot().getMoveCount() <= game.getMoveCount() && measuring) {
+                    lostDrops.increment();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                failures.increment();
+                id = null;
+            }
+        }
+    }
+
+    private void think(ThreadLocalRandom random) throws InterruptedException {
+        if (thinkMillis > 0) {
+            Thread.sleep(random.nextLong(2 * thinkMillis + 1));
+        }
+    }
+
+    private UUID newGame() throws Exception {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("action", "new");
+        if (computer != null) {
+            parameters.put("computer", computer);
+        }
+
+        ByteArrayOutputStream page = new ByteArrayOutputStream();
+        request("new", parameters, null, page);
+
+        return BenchmarkSupport.gameId(page.toString(StandardCharsets.UTF_8));
+    }
+
+    private String drop(UUID id, int col) throws Exception {
+        return request("drop", Map.of("id", id.toString(), "action", "c" + (col + 1)), null, OutputStream.nullOutputStream());
+    }
+
+    private String view(UUID id, String etag) throws Exception {
+        return request("view", Map.of("id", id.toString()), etag, OutputStream.nullOutputStream());
+    }
+
+    /**
+     * Sends one request to the servlet and records its latency.
+     *
+     * @return the page's entity tag
+     */
+    private String request(String action, Map<String, String> parameters, String ifNoneMatch, OutputStream body) throws Exception {
+        HttpServletRequest request = stub(HttpServletRequest.class, (name, args) -> switch (name) {
+            case "getParameter" -> parameters.get((String) args[0]);
+            case "getHeader" -> "If-None-Match".equalsIgnoreCase((String) args[0]) ? ifNoneMatch : null;
+            default -> NO_ANSWER;
+        });
+
+        CountingOutputStream out = new CountingOutputStream(body);
+        String[] etag = new String[1];
+        int[] status = {HttpServletResponse.SC_OK};
+        HttpServletResponse response = stub(HttpServletResponse.class, (name, args) -> switch (name) {
+            case "getOutputStream" -> out;
+            case "setHeader" -> {
+                if ("ETag".equals(args[0])) {
+                    etag[0] = (String) args[1];
+                }
+                yield null;
+            }
+            case "setStatus" -> {
+                status[0] = (Integer) args[0];
+                yield null;
+            }
+            default -> NO_ANSWER;
+        });
+
+        long start = System.nanoTime();
+        servlet.doGet(request, response);
+        long nanos = System.nanoTime() - start;
+
+        if (measuring) {
+            latencies.get(action).record(nanos);
+            bytes.add(out.count);
+            if (status[0] == HttpServletResponse.SC_NOT_MODIFIED) {
+                notModified.increment();
+            }
+        }
+        return etag[0];
+    }
+
+    private void report(double seconds, HeapAndGc before, HeapAndGc after) {
+        long requests = 0;
+        for (LatencyHistogram latency : latencies.values()) {
+            requests += latency.count();
+        }
+
+        System.out.printf("%n%,d requests in %.1f s: %,.0f requests/s, %,.1f MB/s%n",
+                requests, seconds, requests / seconds, bytes.sum() / seconds / (1 << 20));
+        System.out.printf("%-6s %12s %10s %10s %10s %10s%n", "action", "requests", "mean ms", "p50 ms", "p99 ms", "p999 ms");
+        for (String action : ACTIONS) {
+            LatencyHistogram latency = latencies.get(action);
+            long count = latency.count();
+            System.out.printf("%-6s %12d %10.3f %10.3f %10.3f %10.3f%n",
+                    action, count,
+                    count == 0 ? 0 : latency.sum() / 1e6 / count,
+                    latency.quantile(0.5) / 1e6,
+                    latency.quantile(0.99) / 1e6,
+                    latency.quantile(0.999) / 1e6);
+        }
+
+        System.out.printf("%n%d not modified, %d games finished, %d games expired, %d failures, %d lost drops%n",
+                notModified.sum(), gamesFinished.sum(), expired.sum(), failures.sum(), lostDrops.sum());
+        System.out.printf("registry holds %d of at most %d games, %d evicted, %d expired%n",
+                server.getRegistry().size(), server.getRegistry().getMaxGames(),
+                server.getRegistry().getEvictionCount(), server.getRegistry().getExpirationCount());
+        System.out.printf("%d collections taking %d ms, heap peak %,d MB, now %,d MB of %,d MB committed%n",
+                after.collections - before.collections, after.collectionMillis - before.collectionMillis,
+                after.peakHeap >> 20, after.usedHeap >> 20, after.committedHeap >> 20);
+    }
+
+    private interface Answer {
+        Object answer(String method, Object[] args);
+    }
+
+    /**
+     * Implements an interface by the given answers, all other methods return {@code null}, zero or {@code false}.
+     */
+    private static <T> T stub(Class<T> type, Answer answer) {
+        return type.cast(Proxy.newProxyInstance(LoadDriver.class.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            Object result = answer.answer(method.getName(), args);
+            if (result != NO_ANSWER) {
+                return result;
+            }
+
+            Class<?> returnType = method.getReturnType();
+            return returnType.isPrimitive() && returnType != void.class ? Array.get(Array.newInstance(returnType, 1), 0) : null;
+        }));
+    }
+
+    private record HeapAndGc(long collections, long collectionMillis, long peakHeap, long usedHeap, long committedHeap) {
+
+        /**
+         * Reads the collector counters and starts tracking the heap's peak usage anew.
+         */
+        private static HeapAndGc reset() {
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                pool.resetPeakUsage();
+            }
+
+            return read();
+        }
+
+        private static HeapAndGc read() {
+            long collections = 0;
+            long collectionMillis = 0;
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                collections += Math.max(0, collector.getCollectionCount());
+                collectionMillis += Math.max(0, collector.getCollectionTime());
+            }
+
+            long peak = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    peak += pool.getPeakUsage().getUsed();
+                }
+            }
+
+            var heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+            return new HeapAndGc(collections, collectionMillis, peak, heap.getUsed(), heap.getCommitted());
+        }
+    }
+}
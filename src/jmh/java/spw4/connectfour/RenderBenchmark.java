@@ -0,0 +1,89 @@
+package spw4.connectfour;
+
+import org.openjdk.jmh.annotations.*;
+import spw4.connectfour.BenchmarkSupport.CountingOutputStream;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+    @Param({"array", "bitboard"})
+    public String engine;
+
+    @Param({"true", "false"})
+    public boolean cached;
+
+    private ConnectFourServlet servlet;
+    private GamePageRenderer renderer;
+    private ConnectFour game;
+    private UUID id;
+
+    private HttpServletRequest refreshRequest;
+    private HttpServletResponse response;
+    private CountingOutputStream output;
+
+    @Setup
+    public void setUp() throws Exception {
+        ServletContext context = mock(ServletContext.class);
+        when(context.getAttribute(GameServer.ATTRIBUTE)).thenReturn(GameServer.start(name -> "engine".equals(name) ? engine : null));
+        ServletConfig config = mock(ServletConfig.class);
+        when(config.getServletContext()).thenReturn(context);
+
+        servlet = new ConnectFourServlet();
+        servlet.init(config);
+
+        ByteArrayOutputStream newPage = new ByteArrayOutputStream();
+        HttpServletResponse newResponse = mock(HttpServletResponse.class);
+        when(newResponse.getOutputStream()).thenReturn(new CountingOutputStream(newPage));
+
+        HttpServletRequest newRequest = mock(HttpServletRequest.class);
+        when(newRequest.getParameter("action")).thenReturn("new");
+        servlet.doGet(newRequest, newResponse);
+
+        output = new CountingOutputStream(OutputStream.nullOutputStream());
+        response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(output);
+
+        id = BenchmarkSupport.gameId(newPage.toString(StandardCharsets.UTF_8));
+
+        refreshRequest = mock(HttpServletRequest.class);
+        when(refreshRequest.getParameter("id")).thenReturn(id.toString());
+
+        renderer = new GamePageRenderer(cached ? GamePageRenderer.DEFAULT_CACHE_SIZE : 0);
+        game = ConnectFourEngine.valueOf(engine).create(Player.red);
+        for (int col : new int[] {3, 3, 2, 4, 4, 2, 1, 5, 5, 1}) {
+            game.drop(col);
+        }
+    }
+
+    @Benchmark
+    public long renderPage() throws Exception {
+        output.count = 0;
+        renderer.prepare(game).writeTo(output, id);
+
+        return output.count;
+    }
+
+    @Benchmark
+    public long doGetRefresh() throws Exception {
+        output.count = 0;
+        servlet.doGet(refreshRequest, response);
+
+        return output.count;
+    }
+}
@@ -0,0 +1,26 @@
+package spw4.connectfour.ai;
+
+import org.openjdk.jmh.annotations.*;
+import spw4.connectfour.Rules;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Random playouts from the empty standard board. Run with {@code -t} to see how playouts per second scale with the
+ * number of threads, each plays on its own {@link ThreadLocalRandom}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayoutBenchmark {
+    private final Board board = Board.of(Rules.STANDARD);
+
+    @Benchmark
+    public int playout() {
+        return MonteCarloEstimator.playout(board, 0, 0, ThreadLocalRandom.current());
+    }
+}
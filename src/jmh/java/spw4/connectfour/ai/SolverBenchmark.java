@@ -0,0 +1,58 @@
+package spw4.connectfour.ai;
+
+import org.openjdk.jmh.annotations.*;
+import spw4.connectfour.ConnectFour;
+import spw4.connectfour.ConnectFourEngine;
+import spw4.connectfour.Player;
+import spw4.connectfour.Rules;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solves a fixed position with an empty table per invocation. The speedup for a thread count is its solves per
+ * second divided by those of a single thread, the {@code nodes} counter shows the searched positions per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark {
+    private static final int[] OPENING = {3, 3, 3, 3, 3, 2, 2, 2, 4, 4, 4, 4, 2, 1};
+    private static final Duration BUDGET = Duration.ofMinutes(1);
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    public int threads;
+
+    private ConnectFour game;
+    private ComputerPlayer computer;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long nodes;
+    }
+
+    @Setup
+    public void setUp() {
+        game = ConnectFourEngine.bitboard.create(Player.red);
+        for (int col : OPENING) {
+            game.drop(col);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        computer = new ComputerPlayer(Rules.STANDARD, ComputerPlayer.DEFAULT_TABLE_SIZE, threads);
+    }
+
+    @Benchmark
+    public SearchResult solve(Counters counters) {
+        SearchResult result = computer.search(game, BUDGET, threads);
+        counters.nodes += result.nodes();
+
+        return result;
+    }
+}
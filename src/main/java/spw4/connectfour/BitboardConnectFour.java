@@ -0,0 +1,304 @@
+package spw4.connectfour;
+
+import static spw4.connectfour.ConnectFourImpl.BOARD_COLS;
+import static spw4.connectfour.ConnectFourImpl.BOARD_ROWS;
+
+/**
+ * Connect four engine storing the board as one 64-bit mask per player.
+ * <p>
+ * Every column occupies {@link #COLUMN_HEIGHT} consecutive bits (bottom row first) with one extra empty sentinel
+ * bit on top, so a shift by 1 follows a column, a shift by {@code COLUMN_HEIGHT} follows a row and shifts by
+ * {@code COLUMN_HEIGHT - 1} / {@code COLUMN_HEIGHT + 1} follow the diagonals without wrapping around the board.
+ */
+public class BitboardConnectFour implements ConnectFour {
+    static final int COLUMN_HEIGHT = BOARD_ROWS + 1;
+
+    static final long BOTTOM_MASK = bottomMask();
+    static final long BOARD_MASK = BOTTOM_MASK * ((1L << BOARD_ROWS) - 1);
+    static final long TOP_MASK = BOTTOM_MASK << (BOARD_ROWS - 1);
+
+    private Player currentPlayer;
+
+    private long redDiscs;
+    private long yellowDiscs;
+    private long positionKey;
+
+    private final byte[] moves = new byte[BOARD_ROWS * BOARD_COLS];
+    private int setupMoves;
+    private int historyLength;
+    private int redoLength;
+
+    public BitboardConnectFour(Player playerOnTurn) throws InvalidPlayerException {
+        if (playerOnTurn == Player.none) {
+            throw new InvalidPlayerException();
+        }
+
+        currentPlayer = playerOnTurn;
+        positionKey = Zobrist.empty(Rules.STANDARD, playerOnTurn);
+    }
+
+    /**
+     * Sets up a position from its discs. The position has no history: its discs count as moves, but they are not
+     * returned by {@link #moves()} and cannot be undone.
+     */
+    static BitboardConnectFour fromDiscs(long redDiscs, long yellowDiscs, Player playerOnTurn) {
+        if ((redDiscs & yellowDiscs) != 0 || ((redDiscs | yellowDiscs) & ~BOARD_MASK) != 0) {
+            throw new IllegalArgumentException("discs overlap or lie outside the board");
+        }
+
+        BitboardConnectFour game = new BitboardConnectFour(playerOnTurn);
+        game.redDiscs = redDiscs;
+        game.yellowDiscs = yellowDiscs;
+        game.setupMoves = Long.bitCount(redDiscs | yellowDiscs);
+        game.positionKey = Zobrist.of(game);
+
+        return game;
+    }
+
+    public Rules getRules() {
+        return Rules.STANDARD;
+    }
+
+    public Player getPlayerAt(int row, int col) {
+        if (   !isBoundValid(col, BOARD_COLS)
+                || !isBoundValid(row, BOARD_ROWS)) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        long cell = cellMask(row, col);
+        if ((redDiscs & cell) != 0) {
+            return Player.red;
+        }
+        if ((yellowDiscs & cell) != 0) {
+            return Player.yellow;
+        }
+
+        return Player.none;
+    }
+
+    public Player getPlayerOnTurn() {
+        return currentPlayer;
+    }
+
+    public boolean isGameOver() {
+        return isGameOver(redDiscs, yellowDiscs, currentPlayer);
+    }
+
+    public Player getWinner() {
+        return winner(redDiscs, yellowDiscs, currentPlayer);
+    }
+
+    public int getMoveCount() {
+        return setupMoves + historyLength;
+    }
+
+    public boolean isColumnFull(int col) {
+        if (!isBoundValid(col, BOARD_COLS)) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        return ((redDiscs | yellowDiscs) & topCellMask(col)) != 0;
+    }
+
+    public int[] legalMoves() {
+        return legalMoves(redDiscs, yellowDiscs, currentPlayer);
+    }
+
+    public long positionKey() {
+        return positionKey;
+    }
+
+    long getDiscs(Player player) {
+        return player == Player.red ? redDiscs : yellowDiscs;
+    }
+
+    @Override
+    public String toString() {
+        return format(redDiscs, yellowDiscs, currentPlayer);
+    }
+
+    public void reset(Player playerOnTurn) {
+        redDiscs = 0;
+        yellowDiscs = 0;
+        currentPlayer = playerOnTurn;
+        positionKey = Zobrist.empty(Rules.STANDARD, playerOnTurn);
+        setupMoves = 0;
+        historyLength = 0;
+        redoLength = 0;
+    }
+
+    public void drop(int col) {
+        if (isColumnFull(col)) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        play(col);
+        redoLength = historyLength;
+    }
+
+    public int undo() {
+        if (historyLength == 0) {
+            return -1;
+        }
+
+        int col = moves[--historyLength];
+        long move = topDiscMask(redDiscs | yellowDiscs, col);
+        Player lastPlayer = (redDiscs & move) != 0 ? Player.red : Player.yellow;
+        if (lastPlayer == Player.red) {
+            redDiscs ^= move;
+        } else {
+            yellowDiscs ^= move;
+        }
+
+        currentPlayer = lastPlayer;
+        positionKey ^= Zobrist.drop(lastPlayer, row(move, col), col);
+        return col;
+    }
+
+    public int redo() {
+        if (historyLength == redoLength) {
+            return -1;
+        }
+
+        int col = moves[historyLength];
+        play(col);
+        return col;
+    }
+
+    public int[] moves() {
+        int[] columns = new int[historyLength];
+        for (int i = 0; i < historyLength; i++) {
+            columns[i] = moves[i];
+        }
+
+        return columns;
+    }
+
+    private void play(int col) {
+        long move = dropMask(redDiscs | yellowDiscs, col);
+        Player lastPlayer = currentPlayer;
+
+        switch (currentPlayer) {
+            case red -> {
+                redDiscs |= move;
+                currentPlayer = Player.yellow;
+            }
+            case yellow -> {
+                yellowDiscs |= move;
+                currentPlayer = Player.red;
+            }
+            default -> throw new InvalidPlayerException();
+        }
+        positionKey ^= Zobrist.drop(lastPlayer, row(move, col), col);
+        moves[historyLength++] = (byte) col;
+    }
+
+    static boolean isGameOver(long redDiscs, long yellowDiscs, Player playerOnTurn) {
+        return winner(redDiscs, yellowDiscs, playerOnTurn) != Player.none
+                || (redDiscs | yellowDiscs) == BOARD_MASK;
+    }
+
+    static Player winner(long redDiscs, long yellowDiscs, Player playerOnTurn) {
+        Player lastPlayer = playerOnTurn == Player.red ? Player.yellow : Player.red;
+        Player otherPlayer = lastPlayer == Player.red ? Player.yellow : Player.red;
+
+        if (hasFourInARow(lastPlayer == Player.red ? redDiscs : yellowDiscs)) {
+            return lastPlayer;
+        }
+        if (hasFourInARow(otherPlayer == Player.red ? redDiscs : yellowDiscs)) {
+            return otherPlayer;
+        }
+
+        return Player.none;
+    }
+
+    static int[] legalMoves(long redDiscs, long yellowDiscs, Player playerOnTurn) {
+        if (isGameOver(redDiscs, yellowDiscs, playerOnTurn)) {
+            return new int[0];
+        }
+
+        long freeTopCells = ~(redDiscs | yellowDiscs) & TOP_MASK;
+        int[] moves = new int[Long.bitCount(freeTopCells)];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = Long.numberOfTrailingZeros(freeTopCells) / COLUMN_HEIGHT;
+            freeTopCells &= freeTopCells - 1;
+        }
+
+        return moves;
+    }
+
+    static long dropMask(long occupied, int col) {
+        return (occupied + (1L << col * COLUMN_HEIGHT)) & columnMask(col);
+    }
+
+    static long topDiscMask(long occupied, int col) {
+        return Long.highestOneBit(occupied & columnMask(col));
+    }
+
+    static int row(long cell, int col) {
+        return Long.numberOfTrailingZeros(cell) - col * COLUMN_HEIGHT;
+    }
+
+    static String format(long redDiscs, long yellowDiscs, Player playerOnTurn) {
+        StringBuilder output = new StringBuilder().append("Player: %s\n".formatted(playerOnTurn.toString().toUpperCase()));
+
+        for (int row = BOARD_ROWS - 1; row >= 0; row--) {
+            output.append("|");
+            for (int col = 0; col < BOARD_COLS; col++) {
+                output.append(" ");
+
+                long cell = cellMask(row, col);
+                if ((redDiscs & cell) != 0) {
+                    output.append("R");
+                } else if ((yellowDiscs & cell) != 0) {
+                    output.append("Y");
+                } else {
+                    output.append(".");
+                }
+
+                output.append(" ");
+            }
+            output.append("|\n");
+        }
+
+        return output.toString();
+    }
+
+    static boolean hasFourInARow(long discs) {
+        return hasFourInDirection(discs, 1)
+                || hasFourInDirection(discs, COLUMN_HEIGHT)
+                || hasFourInDirection(discs, COLUMN_HEIGHT - 1)
+                || hasFourInDirection(discs, COLUMN_HEIGHT + 1);
+    }
+
+    private static boolean hasFourInDirection(long discs, int shift) {
+        long pairs = discs & (discs >>> shift);
+        return (pairs & (pairs >>> 2 * shift)) != 0;
+    }
+
+    static long cellMask(int row, int col) {
+        return 1L << (col * COLUMN_HEIGHT + row);
+    }
+
+    static long topCellMask(int col) {
+        return cellMask(BOARD_ROWS - 1, col);
+    }
+
+    static long columnMask(int col) {
+        return ((1L << BOARD_ROWS) - 1) << col * COLUMN_HEIGHT;
+    }
+
+    private static long bottomMask() {
+        long mask = 0;
+        for (int col = 0; col < BOARD_COLS; col++) {
+            mask |= 1L << col * COLUMN_HEIGHT;
+        }
+
+        return mask;
+    }
+
+    private boolean isBoundValid(int value, int upperBound) {
+        return value >= 0
+                && value < upperBound;
+    }
+}
@@ -1,11 +1,25 @@
 package spw4.connectfour;
 
-public interface ConnectFour {
-    Player getPlayerAt(int row, int col);
-    Player getPlayerOnTurn();
-    boolean isGameOver();
-    Player getWinner();
-
+public interface ConnectFour extends ConnectFourView {
     void reset(Player playerOnTurn);
     void drop(int col);
+
+    /**
+     * Takes back the last move played since the game was created or reset, in constant time and without allocating.
+     *
+     * @return the column of the move, or {@code -1} if there is none
+     */
+    int undo();
+
+    /**
+     * Plays the move taken back last again, unless a disc was dropped since.
+     *
+     * @return the column of the move, or {@code -1} if there is none
+     */
+    int redo();
+
+    /**
+     * Returns the columns played since the game was created or reset, in order.
+     */
+    int[] moves();
 }
@@ -0,0 +1,19 @@
+package spw4.connectfour;
+
+public enum ConnectFourEngine implements GameStore {
+    array,
+    bitboard;
+
+    public ConnectFour create(Player playerOnTurn) throws InvalidPlayerException {
+        return create(Rules.STANDARD, playerOnTurn);
+    }
+
+    @Override
+    public ConnectFour create(Rules rules, Player playerOnTurn) throws InvalidPlayerException {
+        if (this == bitboard && rules.equals(Rules.STANDARD)) {
+            return new BitboardConnectFour(playerOnTurn);
+        }
+
+        return new ConnectFourImpl(rules, playerOnTurn);
+    }
+}
@@ -1,40 +1,89 @@
 package spw4.connectfour;
 
+import java.util.Arrays;
+
+/**
+ * Connect four engine for arbitrary board sizes and connect-N rules.
+ * <p>
+ * Each player's discs are kept in a packed {@code long[]} bitset in column-major order. Every column takes
+ * {@code rows + 1} bits, the extra bit on top staying empty, so stepping by {@code 1}, {@code rows + 1},
+ * {@code rows} and {@code rows + 2} follows a column, a row and both diagonals without wrapping into the next
+ * column. Win detection only looks at the lines through the last placed disc.
+ */
 public class ConnectFourImpl implements ConnectFour {
     public static final int BOARD_ROWS = 6;
     public static final int BOARD_COLS = 7;
+    public static final int WIN_COUNT = 4;
 
-    private Player currentPlayer;
+    private final Rules rules;
+    private final int columnHeight;
 
-    private final Player[][] board;
+    private Player currentPlayer;
+    private Player winner;
+    private boolean gameOver;
+    private int moveCount;
+    private int winningMoveCount;
+    private int redoCount;
+    private long positionKey;
+
+    private final long[] redDiscs;
+    private final long[] yellowDiscs;
+    private final int[] columnHeights;
+    private int[] moves;
 
     public ConnectFourImpl(Player playerOnTurn) throws InvalidPlayerException {
+        this(Rules.STANDARD, playerOnTurn);
+    }
+
+    public ConnectFourImpl(Rules rules, Player playerOnTurn) throws InvalidPlayerException {
         if (playerOnTurn == Player.none) {
             throw new InvalidPlayerException();
         }
 
+        this.rules = rules;
+        columnHeight = rules.rows() + 1;
         currentPlayer = playerOnTurn;
 
-        board = new Player[BOARD_ROWS][BOARD_COLS];
+        int words = (rules.cols() * columnHeight + Long.SIZE - 1) / Long.SIZE;
+        redDiscs = new long[words];
+        yellowDiscs = new long[words];
+        columnHeights = new int[rules.cols()];
+        moves = new int[Math.min(rules.cellCount(), 16)];
 
         initializeBoard();
+        positionKey = Zobrist.empty(rules, playerOnTurn);
     }
 
     private void initializeBoard() {
-        for (int row = 0; row < BOARD_ROWS; row++) {
-            for (int col = 0; col < BOARD_COLS; col++) {
-                board[row][col] = Player.none;
-            }
-        }
+        Arrays.fill(redDiscs, 0);
+        Arrays.fill(yellowDiscs, 0);
+        Arrays.fill(columnHeights, 0);
+
+        winner = Player.none;
+        gameOver = false;
+        moveCount = 0;
+        redoCount = 0;
+    }
+
+    public Rules getRules() {
+        return rules;
     }
 
     public Player getPlayerAt(int row, int col) {
-        if (   !isBoundValid(col, BOARD_COLS)
-                || !isBoundValid(row, BOARD_ROWS)) {
+        if (   !isBoundValid(col, rules.cols())
+                || !isBoundValid(row, rules.rows())) {
             throw new IndexOutOfBoundsException();
         }
 
-        return board[row][col];
+        int index = bitIndex(row, col);
+        if (isSet(redDiscs, index)) {
+            return Player.red;
+        }
+        if (isSet(yellowDiscs, index)) {
+            return Player.yellow;
+        }
+
+        return Player.none;
     }
 
     public Player getPlayerOnTurn() {
@@ -42,114 +91,101 @@ public class ConnectFourImpl implements ConnectFour {
     }
 
     public boolean isGameOver() {
-        return getWinner() != Player.none
-                || isBoardFull();
+        return gameOver;
     }
 
-    private boolean isBoardFull() {
-        for (int col = 0; col < BOARD_COLS; col++) {
-            if (board[BOARD_ROWS - 1][col] == Player.none) {
-                return false;
-            }
-        }
+    public Player getWinner() {
+        return winner;
+    }
 
-        return true;
+    public int getMoveCount() {
+        return moveCount;
     }
 
-    public Player getWinner() {
-        if (   isHorizontalWinConditionMet()
-                || isVerticalWinConditionMet()
-                || isCrossWinConditionMet(0, 1)
-                || isCrossWinConditionMet( BOARD_COLS - 1, -1)) {
-            return getPlayerOnTurn() == Player.red ? Player.yellow : Player.red;
+    public boolean isColumnFull(int col) {
+        if (!isBoundValid(col, rules.cols())) {
+            throw new IndexOutOfBoundsException();
         }
 
-        return Player.none;
+        return columnHeights[col] == rules.rows();
     }
 
-    private boolean isCrossWinConditionMet(int colStart, int colAdjustment) {
-        for (int colModifier = colStart; isBoundValid(colModifier, BOARD_COLS); colModifier += colAdjustment) {
-            for (int rowModifier = 0; isBoundValid(rowModifier, BOARD_COLS); rowModifier++) {
-                int i = 0;
-                int count = 0;
-                Player lastPlayer = Player.none;
-
-                while (   isBoundValid(rowModifier + i, BOARD_ROWS)
-                        && isBoundValid(colModifier + i * colAdjustment, BOARD_COLS)) {
-                    Player curPlayer = getPlayerAt(i + rowModifier, i * colAdjustment + colModifier);
-                    if (   curPlayer  != Player.none
-                            && curPlayer == lastPlayer) {
-                        count++;
-                    } else {
-                        count = 1;
-                        lastPlayer = curPlayer;
-                    }
-
-                    if (count == 4) {
-                        return true;
-                    }
-                    i++;
-                }
+    public long positionKey() {
+        return positionKey;
+    }
+
+    public int[] legalMoves() {
+        if (gameOver) {
+            return new int[0];
+        }
+
+        int count = 0;
+        for (int col = 0; col < rules.cols(); col++) {
+            if (columnHeights[col] < rules.rows()) {
+                count++;
             }
         }
 
+        int[] moves = new int[count];
+        int i = 0;
+        for (int col = 0; col < rules.cols(); col++) {
+            if (columnHeights[col] < rules.rows()) {
+                moves[i++] = col;
+            }
+        }
 
-        return false;
+        return moves;
     }
 
-    private boolean isVerticalWinConditionMet() {
-        Player lastPlayer = Player.none;
-        for (int row = 0; row < BOARD_ROWS; row++) {
-            int count = 0;
-            for (int col = 0; col < BOARD_COLS; col++) {
-                Player curPlayer = getPlayerAt(row, col);
-                if (   lastPlayer == curPlayer
-                        && curPlayer != Player.none) {
-                    count++;
-                } else {
-                    count = 1;
-                    lastPlayer = curPlayer;
-                }
+    private boolean isWinningMove(long[] discs, int row, int col) {
+        int index = bitIndex(row, col);
 
-                if (count == 4) {
-                    return true;
-                }
-            }
+        return isVerticalLineComplete(discs, index, row)
+                || isLineComplete(discs, index, columnHeight)
+                || isLineComplete(discs, index, columnHeight + 1)
+                || isLineComplete(discs, index, columnHeight - 1);
+    }
+
+    private boolean isVerticalLineComplete(long[] discs, int index, int row) {
+        int connect = rules.connect();
+        if (row < connect - 1) {
+            return false;
         }
 
-        return false;
+        long line = connect == Long.SIZE ? -1L : (1L << connect) - 1;
+        return readBits(discs, index - connect + 1, connect) == line;
     }
 
-    private boolean isHorizontalWinConditionMet() {
-        Player lastPlayer = Player.none;
-        for (int col = 0; col < BOARD_COLS; col++) {
-            int count = 0;
-            for (int row = 0; row < BOARD_ROWS; row++) {
-                Player curPlayer = getPlayerAt(row, col);
-                if (   lastPlayer == curPlayer
-                        && curPlayer != Player.none) {
-                    count++;
-                } else {
-                    count = 1;
-                    lastPlayer = curPlayer;
-                }
+    private boolean isLineComplete(long[] discs, int index, int step) {
+        int count = 1
+                + countInDirection(discs, index, step)
+                + countInDirection(discs, index, -step);
 
-                if (count == 4) {
-                    return true;
-                }
-            }
+        return count >= rules.connect();
+    }
+
+    private int countInDirection(long[] discs, int index, int step) {
+        int limit = rules.cols() * columnHeight;
+        int count = 0;
+
+        int cur = index + step;
+        while (   count < rules.connect() - 1
+                && isBoundValid(cur, limit)
+                && isSet(discs, cur)) {
+            count++;
+            cur += step;
         }
 
-        return false;
+        return count;
     }
 
     @Override
     public String toString() {
         StringBuilder output = new StringBuilder().append("Player: %s\n".formatted(currentPlayer.toString().toUpperCase()));
 
-        for (int row = BOARD_ROWS - 1; row >= 0; row--) {
+        for (int row = rules.rows() - 1; row >= 0; row--) {
             output.append("|");
-            for (int col = 0; col < BOARD_COLS; col++) {
+            for (int col = 0; col < rules.cols(); col++) {
                 output.append(" ");
 
                 switch (getPlayerAt(row, col)) {
@@ -169,26 +205,79 @@ public class ConnectFourImpl implements ConnectFour {
     public void reset(Player playerOnTurn) {
         initializeBoard();
         currentPlayer = playerOnTurn;
+        positionKey = Zobrist.empty(rules, playerOnTurn);
     }
 
     public void drop(int col) {
-        if (!isBoundValid(col, BOARD_COLS)) {
+        if (isColumnFull(col)) {
             throw new IndexOutOfBoundsException();
         }
 
+        play(col);
+        redoCount = moveCount;
+    }
+
+    public int undo() {
+        if (moveCount == 0) {
+            return -1;
+        }
+
+        int col = moves[--moveCount];
+        int row = --columnHeights[col];
+        int index = bitIndex(row, col);
+        Player lastPlayer = isSet(redDiscs, index) ? Player.red : Player.yellow;
+        clear(lastPlayer == Player.red ? redDiscs : yellowDiscs, index);
+
+        currentPlayer = lastPlayer;
+        positionKey ^= Zobrist.drop(lastPlayer, row, col);
+        if (moveCount < winningMoveCount) {
+            winner = Player.none;
+        }
+        gameOver = winner != Player.none;
+
+        return col;
+    }
+
+    public int redo() {
+        if (moveCount == redoCount) {
+            return -1;
+        }
+
+        int col = moves[moveCount];
+        play(col);
+        return col;
+    }
+
+    public int[] moves() {
+        return Arrays.copyOf(moves, moveCount);
+    }
+
+    private void play(int col) {
         Player lastPlayer = switchPlayer();
+        long[] discs = lastPlayer == Player.red ? redDiscs : yellowDiscs;
 
-        int row = 0;
-        while (   isBoundValid(row, BOARD_ROWS)
-                && board[row][col] != Player.none) {
-            row++;
+        int row = columnHeights[col]++;
+        set(discs, bitIndex(row, col));
+        if (moveCount == moves.length) {
+            moves = Arrays.copyOf(moves, Math.min(moves.length * 2, rules.cellCount()));
         }
+        moves[moveCount++] = col;
+        positionKey ^= Zobrist.drop(lastPlayer, row, col);
 
-        if (!isBoundValid(row, BOARD_ROWS)) {
-            throw new IndexOutOfBoundsException();
+        if (isWinningMove(discs, row, col)) {
+            winner = lastPlayer;
+            winningMoveCount = moveCount;
         }
+        gameOver = winner != Player.none
+                || moveCount == rules.cellCount();
+    }
 
-        board[row][col] = lastPlayer;
+    long[] copyDiscs(Player player) {
+        return (player == Player.red ? redDiscs : yellowDiscs).clone();
+    }
+
+    long getDiscs(Player player, int word) {
+        return (player == Player.red ? redDiscs : yellowDiscs)[word];
     }
 
     private Player switchPlayer() {
@@ -202,6 +291,34 @@ public class ConnectFourImpl implements ConnectFour {
         return lastPlayer;
     }
 
+    private int bitIndex(int row, int col) {
+        return col * columnHeight + row;
+    }
+
+    private static boolean isSet(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private static void clear(long[] bits, int index) {
+        bits[index >>> 6] &= ~(1L << index);
+    }
+
+    private static long readBits(long[] bits, int from, int length) {
+        int word = from >>> 6;
+        int offset = from & 63;
+
+        long value = bits[word] >>> offset;
+        if (offset + length > Long.SIZE) {
+            value |= bits[word + 1] << (Long.SIZE - offset);
+        }
+
+        return length == Long.SIZE ? value : value & ((1L << length) - 1);
+    }
+
     private boolean isBoundValid(int value, int upperBound) {
         return value >= 0
                 && value < upperBound;
@@ -5,200 +5,191 @@ import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import spw4.connectfour.metrics.LatencyHistogram;
+import spw4.connectfour.metrics.Metrics;
+
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.HashMap;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 
-@WebServlet("/ConnectFour")
+@WebServlet(urlPatterns = "/ConnectFour")
 public class ConnectFourServlet extends HttpServlet {
-    private HashMap<UUID, ConnectFour> games;
+    private GameServer server;
+    private GameRegistry games;
+    private GamePageRenderer pages;
+    private Metrics metrics;
+    private LatencyHistogram newLatency;
+    private LatencyHistogram dropLatency;
+    private LatencyHistogram undoLatency;
+    private LatencyHistogram viewLatency;
+    private String etagPrefix;
 
     @Override
     public void init() throws ServletException {
         super.init();
-        games = new HashMap<>();
+
+        try {
+            server = GameServer.of(getServletContext());
+        } catch (IOException e) {
+            throw new ServletException("cannot start the game server", e);
+        }
+
+        games = server.getRegistry();
+        pages = server.getPages();
+        metrics = server.getMetrics();
+        newLatency = metrics.requestLatency("new");
+        dropLatency = metrics.requestLatency("drop");
+        undoLatency = metrics.requestLatency("undo");
+        viewLatency = metrics.requestLatency("view");
+        etagPrefix = "\"" + Long.toHexString(System.currentTimeMillis()) + "-";
     }
 
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-        response.setContentType("text/html");
-        PrintWriter writer = response.getWriter();
+        response.setContentType("text/html;charset=UTF-8");
+        OutputStream out = response.getOutputStream();
+        long start = System.nanoTime();
 
-        try {
-            String action = request.getParameter("action");
-            if (action == null) action = "";
+        String action = request.getParameter("action");
+        if (action == null) action = "";
 
+        try {
             if ("new".equals(action)) {
-                UUID id = UUID.randomUUID();
-                ConnectFour newGame = new ConnectFourImpl(Player.red);
-                games.put(id, newGame);
-                writer.println(game2Html(id, newGame));
+                Player computer = readComputerPlayer(request);
+                GameSession session = games.create(readRules(request), Player.red, computer);
+                server.playComputerMove(session);
+                renderGame(request, response, out, session);
                 return;
             }
 
             String idString = request.getParameter("id");
             if (idString != null) {
                 UUID id = UUID.fromString(idString);
-                ConnectFour game = games.get(id);
-
-                if (!game.isGameOver()) {
-                    switch (action) {
-                        case "c1":
-                            game.drop(0);
-                            break;
-                        case "c2":
-                            game.drop(1);
-                            break;
-                        case "c3":
-                            game.drop(2);
-                            break;
-                        case "c4":
-                            game.drop(3);
-                            break;
-                        case "c5":
-                            game.drop(4);
-                            break;
-                        case "c6":
-                            game.drop(5);
-                            break;
-                        case "c7":
-                            game.drop(6);
-                            break;
-                    }
+                GameSession session = games.get(id);
+                if (session == null) {
+                    response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                    out.write(GamePageRenderer.EXPIRED_PAGE);
+                    return;
                 }
 
-                writer.println(game2Html(id, games.get(id)));
+                int col = parseColumn(action, session.getSnapshot().getRules().cols());
+                if ("undo".equals(action)) {
+                    server.takeBack(session);
+                } else if (col >= 0 && session.drop(col)) {
+                    server.playComputerMove(session);
+                }
+
+                renderGame(request, response, out, session);
                 return;
             }
 
-            writer.println("invalid request");
+            out.write("invalid request\n".getBytes(StandardCharsets.UTF_8));
+        }
+        catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.write("invalid request\n".getBytes(StandardCharsets.UTF_8));
         }
         catch (Throwable t) {
-            writer.println(t);
+            metrics.error(t);
+            log("request with action '" + action + "' failed", t);
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            out.write("request failed\n".getBytes(StandardCharsets.UTF_8));
         }
+        finally {
+            LatencyHistogram latency = "new".equals(action) ? newLatency
+                    : "undo".equals(action) ? undoLatency
+                    : action.startsWith("c") ? dropLatency
+                    : viewLatency;
+            latency.record(System.nanoTime() - start);
+        }
+    }
+
+    private void renderGame(HttpServletRequest request, HttpServletResponse response, OutputStream out, GameSession session) throws IOException {
+        GameSnapshot game = session.getSnapshot();
+        String etag = etagPrefix + session.getId() + "-" + game.getVersion() + "\"";
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", "no-cache");
+
+        if (matchesETag(request.getHeader("If-None-Match"), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = System.nanoTime();
+        GamePageRenderer.Page page = pages.prepare(game, session.getComputerPlayer());
+        page.writeTo(out, session.getId());
+        metrics.pageRendered(page.size(), System.nanoTime() - start);
     }
 
-    private String game2Html(UUID id, ConnectFour game) {
-        StringBuffer sb = new StringBuffer();
-
-        sb.append("<!DOCTYPE html>\n");
-        sb.append("<html lang=\"en\">\n");
-        sb.append("<head>\n");
-        sb.append("    <meta charset=\"UTF-8\">\n");
-        sb.append("    <title>Connect Four</title>\n");
-        sb.append("    <link href=\"css/bootstrap.min.css\" rel=\"stylesheet\"/>\n");
-        sb.append("    <link href=\"icons/bootstrap-icons.css\" rel=\"stylesheet\"/>\n");
-        sb.append("    <script src=\"js/bootstrap.min.js\"></script>\n");
-        sb.append("</head>\n");
-        sb.append("<body>\n");
-        sb.append("    <h1 class=\"m-5 text-center\">Play Connect Four:</h1>\n");
-        sb.append("    <div class=\"row\">\n");
-        sb.append("        <div class=\"col\"></div>\n");
-        sb.append("        <div class=\"col\">\n");
-        sb.append("            <div class=\"row text-center pb-4\">\n");
-        sb.append("                <div class=\"col\"><h5>Player: " + game.getPlayerOnTurn().toString().toUpperCase() + "</h5></div>\n");
-        sb.append("            </div>\n");
-        sb.append("            <div class=\"row\">\n");
-        sb.append("                <div class=\"col p-0\">\n");
-        sb.append("                    <div class=\"container p-0 text-center bg-secondary\">\n");
-        sb.append("                        <div class=\"row m-0 bg-white\">\n");
-        sb.append("                            <div class=\"col p-1 ml-1\"><a role=\"button\" class=\"btn btn-secondary p-1\" href=\"ConnectFour?id=" + id + "&action=c1\"><i class=\"bi-arrow-down\"></i></a></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1\"><a role=\"button\" class=\"btn btn-secondary p-1\" href=\"ConnectFour?id=" + id + "&action=c2\"><i class=\"bi-arrow-down\"></i></a></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1\"><a role=\"button\" class=\"btn btn-secondary p-1\" href=\"ConnectFour?id=" + id + "&action=c3\"><i class=\"bi-arrow-down\"></i></a></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1\"><a role=\"button\" class=\"btn btn-secondary p-1\" href=\"ConnectFour?id=" + id + "&action=c4\"><i class=\"bi-arrow-down\"></i></a></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1\"><a role=\"button\" class=\"btn btn-secondary p-1\" href=\"ConnectFour?id=" + id + "&action=c5\"><i class=\"bi-arrow-down\"></i></a></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1\"><a role=\"button\" class=\"btn btn-secondary p-1\" href=\"ConnectFour?id=" + id + "&action=c6\"><i class=\"bi-arrow-down\"></i></a></div>\n");
-        sb.append("                            <div class=\"col p-1 mx-1\"><a role=\"button\" class=\"btn btn-secondary p-1\" href=\"ConnectFour?id=" + id + "&action=c7\"><i class=\"bi-arrow-down\"></i></a></div>\n");
-        sb.append("                        </div>\n");
-        sb.append("                        <div class=\"row pt-1 m-0\" style=\"height:36px\">\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 0, 0) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 0, 1) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 0, 2) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 0, 3) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 0, 4) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 0, 5) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 mx-1 " + getCellColor(game, 0, 6) + "\"></div>\n");
-        sb.append("                        </div>\n");
-        sb.append("                        <div class=\"row pt-1 m-0\" style=\"height:36px\">\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 1, 0) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 1, 1) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 1, 2) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 1, 3) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 1, 4) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 1, 5) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 mx-1 " + getCellColor(game, 1, 6) + "\"></div>\n");
-        sb.append("                        </div>\n");
-        sb.append("                        <div class=\"row pt-1 m-0\" style=\"height:36px\">\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 2, 0) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 2, 1) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 2, 2) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 2, 3) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 2, 4) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 2, 5) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 mx-1 " + getCellColor(game, 2, 6) + "\"></div>\n");
-        sb.append("                        </div>\n");
-        sb.append("                        <div class=\"row pt-1 m-0\" style=\"height:36px\">\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 3, 0) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 3, 1) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 3, 2) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 3, 3) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 3, 4) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 3, 5) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 mx-1 " + getCellColor(game, 3, 6) + "\"></div>\n");
-        sb.append("                        </div>\n");
-        sb.append("                        <div class=\"row pt-1 m-0\" style=\"height:36px\">\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 4, 0) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 4, 1) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 4, 2) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 4, 3) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 4, 4) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 4, 5) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 mx-1 " + getCellColor(game, 4, 6) + "\"></div>\n");
-        sb.append("                        </div>\n");
-        sb.append("                        <div class=\"row py-1 m-0\" style=\"height:40px\">\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 5, 0) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 5, 1) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 5, 2) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 5, 3) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 5, 4) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 ml-1 " + getCellColor(game, 5, 5) + "\"></div>\n");
-        sb.append("                            <div class=\"col p-1 mx-1 " + getCellColor(game, 5, 6) + "\"></div>\n");
-        sb.append("                        </div>\n");
-        sb.append("                    </div>\n");
-        sb.append("                </div>\n");
-        sb.append("            </div>\n");
-        if (game.isGameOver() && game.getWinner() == Player.yellow) {
-            sb.append("                <div class=\"row text-center pt-4\">\n");
-            sb.append("                    <div class=\"col\"><h1><span class=\"badge bad badge-warning w-75\">YELLOW WINS</span></h1></div>\n");
-            sb.append("                </div>\n");
-        } else if (game.isGameOver() && game.getWinner() == Player.red) {
-            sb.append("                <div class=\"row text-center pt-4\">\n");
-            sb.append("                    <div class=\"col\"><h1><span class=\"badge badge-danger w-75\">RED WINS</span></h1></div>\n");
-            sb.append("                </div>\n");
-        } else if (game.isGameOver() && game.getWinner() == Player.none) {
-            sb.append("                <div class=\"row text-center pt-4\">\n");
-            sb.append("                    <div class=\"col\"><h1><span class=\"badge badge-secondary w-75\">DRAW</span></h1></div>\n");
-            sb.append("                </div>\n");
+    /**
+     * Returns the column of a {@code c<n>} action for a column {@code n} between 1 and {@code cols}, or {@code -1}
+     * for any other action, which is then ignored.
+     */
+    static int parseColumn(String action, int cols) {
+        if (action.length() < 2 || action.length() > 11 || action.charAt(0) != 'c') {
+            return -1;
         }
-        sb.append("            <div class=\"row text-center pt-4\">\n");
-        sb.append("                <div class=\"col\"><a role=\"button\" class=\"btn btn-danger w-75\" href=\"ConnectFour?action=new\">New Game</a></div>\n");
-        sb.append("                <div class=\"col\"><a role=\"button\" class=\"btn btn-info w-75\" href=\"ConnectFour?id=" + id + "\">Refresh</a></div>\n");
-        sb.append("            </div>\n");
-        sb.append("        </div>\n");
-        sb.append("        <div class=\"col\"></div>\n");
-        sb.append("    </div>\n");
-        sb.append("</body>\n");
-        sb.append("</html>\n");
-
-        return sb.toString();
+
+        long n = 0;
+        for (int i = 1; i < action.length(); i++) {
+            char digit = action.charAt(i);
+            if (digit < '0' || digit > '9') {
+                return -1;
+            }
+            n = n * 10 + digit - '0';
+        }
+
+        return n >= 1 && n <= cols ? (int) n - 1 : -1;
     }
 
-    private String getCellColor(ConnectFour game, int row, int col) {
-        return switch (game.getPlayerAt(row, col)) {
-            case red -> "bg-danger";
-            case yellow -> "bg-warning";
-            default -> "bg-light";
-        };
+    static boolean matchesETag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static Player readComputerPlayer(HttpServletRequest request) {
+        String computer = request.getParameter("computer");
+        if (computer == null) {
+            return Player.none;
+        }
+
+        Player player = Player.valueOf(computer);
+        if (player == Player.none) {
+            // a client error like an unknown name, so it is answered with 400 rather than 500
+            throw new IllegalArgumentException("computer must be red or yellow");
+        }
+
+        return player;
+    }
+
+    private Rules readRules(HttpServletRequest request) {
+        int rows = readBoardParameter(request, "rows", Rules.STANDARD.rows());
+        int cols = readBoardParameter(request, "cols", Rules.STANDARD.cols());
+        int connect = readBoardParameter(request, "connect", Rules.STANDARD.connect());
+
+        return new Rules(rows, cols, connect);
+    }
+
+    private int readBoardParameter(HttpServletRequest request, String name, int defaultValue) {
+        String value = request.getParameter(name);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        return Integer.parseInt(value);
     }
 }
@@ -0,0 +1,21 @@
+package spw4.connectfour;
+
+/**
+ * Read-only view of a game's position, implemented by every engine and by {@link GameSnapshot}.
+ */
+public interface ConnectFourView {
+    Rules getRules();
+    Player getPlayerAt(int row, int col);
+    Player getPlayerOnTurn();
+    boolean isGameOver();
+    Player getWinner();
+    int getMoveCount();
+    boolean isColumnFull(int col);
+    int[] legalMoves();
+
+    /**
+     * Returns the Zobrist key of the position: games with the same rules, discs and player on turn have the same
+     * key, whatever their engine, and different positions almost surely differ.
+     */
+    long positionKey();
+}
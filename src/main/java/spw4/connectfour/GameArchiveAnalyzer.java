@@ -0,0 +1,376 @@
+package spw4.connectfour;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Replays archived games in parallel and collects {@link GameStatistics} about them.
+ * <p>
+ * Archives are game snapshots as written by {@link GameCodec#writeSnapshot}. Every file is memory-mapped in windows,
+ * the calling thread walks the entries of a window and hands chunks of whole entries to a fixed number of workers
+ * through a bounded queue, so reading never runs far ahead of replaying. A worker decodes the moves straight from the
+ * mapping and replays them on one game per rules that it reuses for every game, so a game costs no allocation, and
+ * keeps statistics of its own that are merged once all games are replayed. A move into a full or missing column or
+ * after the game ended makes a game illegal, entries that cannot be decoded or replayed are counted as corrupt. A
+ * worker that fails nevertheless makes the whole analysis fail rather than leave the reader waiting. Run it as
+ * {@code java spw4.connectfour.GameArchiveAnalyzer [--threads n] <file>...}.
+ */
+public class GameArchiveAnalyzer {
+    static final int DEFAULT_WINDOW_SIZE = 1 << 28;
+    static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private static final int SNAPSHOT_HEADER_SIZE = 9;
+    private static final int ID_SIZE = 16;
+
+    private final int threads;
+    private final int windowSize;
+    private final int chunkSize;
+
+    public GameArchiveAnalyzer(int threads) {
+        this(threads, DEFAULT_WINDOW_SIZE, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param windowSize bytes of a file mapped at once, every entry has to fit into a window
+     * @param chunkSize  bytes of entries handed to a worker at once
+     */
+    GameArchiveAnalyzer(int threads, int windowSize, int chunkSize) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        if (chunkSize < 1 || windowSize < chunkSize) {
+            throw new IllegalArgumentException("chunkSize must be positive and windowSize at least chunkSize");
+        }
+
+        this.threads = threads;
+        this.windowSize = windowSize;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param statistics     statistics of all games by their rules
+     * @param corruptEntries number of entries that could not be decoded
+     * @param bytes          size of all files read
+     */
+    public record Result(Map<Rules, GameStatistics> statistics, long corruptEntries, long bytes) {
+
+        public long games() {
+            long games = corruptEntries;
+            for (GameStatistics rules : statistics.values()) {
+                games += rules.getGames();
+            }
+
+            return games;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean threadsGiven = args.length > 1 && args[0].equals("--threads");
+        if (args.length == 0 || threadsGiven && args.length < 3) {
+            System.err.println("usage: GameArchiveAnalyzer [--threads n] <file>...");
+            System.exit(2);
+        }
+
+        int threads = threadsGiven ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        List<Path> files = new ArrayList<>();
+        for (int i = threadsGiven ? 2 : 0; i < args.length; i++) {
+            files.add(Path.of(args[i]));
+        }
+
+        long start = System.nanoTime();
+        Result result = new GameArchiveAnalyzer(threads).analyze(files);
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+
+        System.out.printf("%,d games, %,d MB in %.1f s on %d threads: %,.0f games/s, %,.1f MB/s, %d corrupt%n",
+                result.games(), result.bytes() >> 20, seconds, threads,
+                result.games() / seconds, result.bytes() / seconds / (1 << 20), result.corruptEntries());
+        for (GameStatistics statistics : result.statistics().values()) {
+            Rules rules = statistics.getRules();
+            System.out.printf("%n%dx%d connect %d: %,d games, %,d finished, %,d unfinished, %,d illegal%n",
+                    rules.rows(), rules.cols(), rules.connect(), statistics.getGames(), statistics.getFinishedGames(),
+                    statistics.getUnfinishedGames(), statistics.getIllegalGames());
+            System.out.printf("red won %,d, yellow won %,d, %,d drawn, %.1f moves on average%n",
+                    statistics.getWins(Player.red), statistics.getWins(Player.yellow), statistics.getWins(Player.none),
+                    statistics.getMeanLength());
+            for (int col = 0; col < rules.cols(); col++) {
+                if (statistics.getGamesStartingIn(col) > 0) {
+                    System.out.printf("first move %d: %,d games, %.1f%% won by the first player%n",
+                            col + 1, statistics.getGamesStartingIn(col), 100 * statistics.getFirstPlayerWinRate(col));
+                }
+            }
+        }
+    }
+
+    /**
+     * Replays the games of all files.
+     *
+     * @throws IOException if a file cannot be read or is no game snapshot, or a worker failed
+     */
+    public Result analyze(List<Path> files) throws IOException {
+        BlockingQueue<ByteBuffer> chunks = new ArrayBlockingQueue<>(threads * 4);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Worker> workers = new ArrayList<>(threads);
+        List<Thread> workerThreads = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(chunks, failure, Thread.currentThread());
+            workers.add(worker);
+            workerThreads.add(new Thread(worker, "archive-worker-" + i));
+        }
+        workerThreads.forEach(Thread::start);
+
+        long bytes = 0;
+        try {
+            for (Path file : files) {
+                bytes += read(file, chunks);
+            }
+        } catch (InterruptedException e) {
+            if (failure.get() == null) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while reading archives", e);
+            }
+        } finally {
+            workerThreads.forEach(Thread::interrupt);
+            awaitAll(workerThreads);
+        }
+
+        if (failure.get() != null) {
+            // the failing worker interrupts the reader so it does not wait for room in the queue forever
+            Thread.interrupted();
+            throw new IOException("replaying archives failed", failure.get());
+        }
+
+        Map<Rules, GameStatistics> statistics = new HashMap<>();
+        long corrupt = 0;
+        for (Worker worker : workers) {
+            for (GameStatistics rules : worker.statistics.values()) {
+                statistics.computeIfAbsent(rules.getRules(), GameStatistics::new).merge(rules);
+            }
+            corrupt += worker.corrupt;
+        }
+
+        return new Result(statistics, corrupt, bytes);
+    }
+
+    private static void awaitAll(List<Thread> threads) {
+        boolean interrupted = false;
+        for (Thread thread : threads) {
+            while (true) {
+                try {
+                    thread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Walks the entries of the file and queues them in chunks.
+     *
+     * @return the size of the file
+     */
+    private long read(Path file, BlockingQueue<ByteBuffer> chunks) throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(windowSize, size));
+            if (size < SNAPSHOT_HEADER_SIZE || window.getInt(0) != GameCodec.SNAPSHOT_MAGIC) {
+                throw new IOException(file + " is no game snapshot");
+            }
+            if (window.get(4) != GameCodec.VERSION) {
+                throw new IOException("unsupported game snapshot version " + window.get(4) + " in " + file);
+            }
+
+            long windowOffset = 0;
+            int count = window.getInt(5);
+            int chunkStart = SNAPSHOT_HEADER_SIZE;
+            window.position(chunkStart);
+
+            for (int entry = 0; entry < count; entry++) {
+                int entryStart = window.position();
+                int entryEnd = entryEnd(window);
+                if (entryEnd < 0) {
+                    // the entry continues beyond the window, so the next window starts with it
+                    if (windowOffset + window.limit() == size) {
+                        throw new IOException(file + " is truncated");
+                    }
+                    if (entryStart == 0) {
+                        throw new IOException(file + " has an entry larger than " + windowSize + " bytes");
+                    }
+
+                    queue(window, chunkStart, entryStart, chunks);
+                    windowOffset += entryStart;
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, windowOffset, Math.min(windowSize, size - windowOffset));
+                    chunkStart = 0;
+                    entry--;
+                    continue;
+                }
+
+                window.position(entryEnd);
+                if (entryEnd - chunkStart >= chunkSize) {
+                    queue(window, chunkStart, entryEnd, chunks);
+                    chunkStart = entryEnd;
+                }
+            }
+            queue(window, chunkStart, window.position(), chunks);
+
+            return size;
+        }
+    }
+
+    /**
+     * Returns the end of the entry starting at the window's position, or {@code -1} if it does not end inside the
+     * window.
+     */
+    private static int entryEnd(ByteBuffer window) throws IOException {
+        if (window.remaining() <= ID_SIZE) {
+            return -1;
+        }
+
+        try {
+            window.position(window.position() + ID_SIZE);
+            int length = GameCodec.readVarint(window);
+            if (length < 0) {
+                throw new IOException("malformed entry length %d in game snapshot".formatted(length));
+            }
+
+            return length <= window.remaining() ? window.position() + length : -1;
+        } catch (BufferUnderflowException e) {
+            return -1;
+        } catch (IllegalArgumentException e) {
+            throw new IOException("malformed entry length in game snapshot", e);
+        }
+    }
+
+    private static void queue(ByteBuffer window, int start, int end, BlockingQueue<ByteBuffer> chunks) throws InterruptedException {
+        if (end > start) {
+            chunks.put(window.slice(start, end - start));
+        }
+    }
+
+    /**
+     * Replays the chunks it takes from the queue until it is interrupted and the queue is empty. If it fails, it
+     * records the failure and interrupts the reader.
+     */
+    private static final class Worker implements Runnable {
+        private final BlockingQueue<ByteBuffer> chunks;
+        private final AtomicReference<Throwable> failure;
+        private final Thread reader;
+        private final GameCodec.HistoryReader history = new GameCodec.HistoryReader();
+        private final Map<Rules, ConnectFour> games = new HashMap<>();
+        private final Map<Rules, GameStatistics> statistics = new HashMap<>();
+        private long corrupt;
+
+        private Rules lastRules;
+        private ConnectFour lastGame;
+        private GameStatistics lastStatistics;
+
+        private Worker(BlockingQueue<ByteBuffer> chunks, AtomicReference<Throwable> failure, Thread reader) {
+            this.chunks = chunks;
+            this.failure = failure;
+            this.reader = reader;
+        }
+
+        @Override
+        public void run() {
+            try {
+                replayChunks();
+            } catch (Throwable t) {
+                if (failure.compareAndSet(null, t)) {
+                    reader.interrupt();
+                }
+            }
+        }
+
+        private void replayChunks() {
+            while (true) {
+                ByteBuffer chunk = chunks.poll();
+                if (chunk == null) {
+                    try {
+                        chunk = chunks.take();
+                    } catch (InterruptedException e) {
+                        // interrupted once all chunks are queued, so whatever is left can be drained
+                        chunk = chunks.poll();
+                        if (chunk == null) {
+                            return;
+                        }
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                replayAll(chunk);
+            }
+        }
+
+        private void replayAll(ByteBuffer chunk) {
+            int limit = chunk.limit();
+            while (chunk.position() < limit) {
+                chunk.position(chunk.position() + ID_SIZE);
+                int length = GameCodec.readVarint(chunk);
+                int end = chunk.position() + length;
+
+                chunk.limit(end);
+                try {
+                    replay(chunk);
+                } catch (RuntimeException e) {
+                    // besides malformed encodings, hostile rules or moves may fail the engine in other ways
+                    corrupt++;
+                }
+                chunk.limit(limit).position(end);
+            }
+        }
+
+        private void replay(ByteBuffer entry) {
+            history.open(entry);
+            Rules rules = history.rules();
+            Player firstPlayer = history.firstPlayer();
+            if (firstPlayer == Player.none) {
+                throw new IllegalArgumentException("game without first player");
+            }
+
+            if (rules != lastRules) {
+                lastRules = rules;
+                lastGame = games.computeIfAbsent(rules, key -> ConnectFourEngine.bitboard.create(key, Player.red));
+                lastStatistics = statistics.computeIfAbsent(rules, GameStatistics::new);
+            }
+            ConnectFour game = lastGame;
+            game.reset(firstPlayer);
+
+            int moveCount = history.moveCount();
+            int firstMove = -1;
+            for (int i = 0; i < moveCount; i++) {
+                int col = history.nextMove();
+                if (game.isGameOver() || col < 0 || col >= rules.cols() || game.isColumnFull(col)) {
+                    lastStatistics.addIllegal();
+                    return;
+                }
+
+                game.drop(col);
+                if (i == 0) {
+                    firstMove = col;
+                }
+            }
+
+            if (game.isGameOver()) {
+                lastStatistics.addFinished(firstPlayer, firstMove, moveCount, game.getWinner());
+            } else {
+                lastStatistics.addUnfinished();
+            }
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package spw4.connectfour;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+import static spw4.connectfour.BitboardConnectFour.COLUMN_HEIGHT;
+import static spw4.connectfour.ConnectFourImpl.BOARD_COLS;
+import static spw4.connectfour.ConnectFourImpl.BOARD_ROWS;
+
+/**
+ * Compact binary encodings of games.
+ * <p>
+ * <b>Position</b> (standard rules only): one {@code long}. The low 49 bits hold 7 bits per column, the discs of the
+ * player on turn plus a single marker bit right above the column's top disc, so both the column heights and the
+ * owner of every disc can be recovered. Bit 63 is set when yellow is on turn.
+ * <p>
+ * <b>History</b>: {@code version:byte, flags:byte, [rows:varint, cols:varint, connect:byte], moveCount:varint,
+ * moves}. The flags hold the first player's ordinal (bits 0-1), whether non-standard rules follow (bit 2), whether
+ * moves are wide (bit 3) and the ordinal of the side the computer plays (bits 4-5). Moves take 4 bits each, two per byte, low nibble first, unless the board has more
+ * than 16 columns, then each move is a varint.
+ * <p>
+ * <b>Snapshot</b>: {@code magic:int, version:byte, count:int} followed by {@code id:16 bytes, length:varint,
+ * history} for every game.
+ */
+public final class GameCodec {
+    public static final byte VERSION = 1;
+
+    static final int SNAPSHOT_MAGIC = 0x43345347;
+
+    private static final long POSITION_KEY_MASK = (1L << (BOARD_COLS * COLUMN_HEIGHT)) - 1;
+    private static final long YELLOW_ON_TURN = 1L << 63;
+
+    private static final int FIRST_PLAYER_MASK = 0b0011;
+    private static final int CUSTOM_RULES = 0b0100;
+    private static final int WIDE_MOVES = 0b1000;
+    private static final int COMPUTER_SHIFT = 4;
+    private static final int COMPUTER_MASK = 0b11_0000;
+    private static final int MAX_NIBBLE_COLS = 16;
+
+    private static final Player[] PLAYERS = Player.values();
+
+    private GameCodec() {
+    }
+
+    public static long encodePosition(ConnectFourView game) {
+        if (!game.getRules().equals(Rules.STANDARD)) {
+            throw new IllegalArgumentException("only standard games can be encoded as a position");
+        }
+
+        Player onTurn = game.getPlayerOnTurn();
+        if (onTurn == Player.none) {
+            throw new InvalidPlayerException();
+        }
+
+        long red;
+        long yellow;
+        if (game instanceof BitboardConnectFour bitboard) {
+            red = bitboard.getDiscs(Player.red);
+            yellow = bitboard.getDiscs(Player.yellow);
+        } else if (game instanceof GameSnapshot snapshot) {
+            red = snapshot.getDiscs(Player.red);
+            yellow = snapshot.getDiscs(Player.yellow);
+        } else {
+            red = 0;
+            yellow = 0;
+            for (int col = 0; col < BOARD_COLS; col++) {
+                for (int row = 0; row < BOARD_ROWS; row++) {
+                    switch (game.getPlayerAt(row, col)) {
+                        case red -> red |= BitboardConnectFour.cellMask(row, col);
+                        case yellow -> yellow |= BitboardConnectFour.cellMask(row, col);
+                    }
+                }
+            }
+        }
+
+        long current = onTurn == Player.red ? red : yellow;
+        long key = current + (red | yellow) + BitboardConnectFour.BOTTOM_MASK;
+
+        return onTurn == Player.yellow ? key | YELLOW_ON_TURN : key;
+    }
+
+    /**
+     * Decodes a position encoded by {@link #encodePosition}. The moves leading to it are not encoded, so the decoded
+     * game counts its discs as moves but has no history to return or undo.
+     */
+    public static ConnectFour decodePosition(long position) {
+        long key = position & POSITION_KEY_MASK;
+        Player onTurn = (position & YELLOW_ON_TURN) != 0 ? Player.yellow : Player.red;
+
+        long occupied = 0;
+        long current = 0;
+        for (int col = 0; col < BOARD_COLS; col++) {
+            long column = (key >>> col * COLUMN_HEIGHT) & ((1L << COLUMN_HEIGHT) - 1);
+            if (column == 0) {
+                throw new IllegalArgumentException("column %d has no height marker".formatted(col));
+            }
+
+            int height = 63 - Long.numberOfLeadingZeros(column);
+            long columnDiscs = (1L << height) - 1;
+            occupied |= columnDiscs << col * COLUMN_HEIGHT;
+            current |= (column & columnDiscs) << col * COLUMN_HEIGHT;
+        }
+
+        long other = occupied ^ current;
+        return onTurn == Player.red
+                ? BitboardConnectFour.fromDiscs(current, other, onTurn)
+                : BitboardConnectFour.fromDiscs(other, current, onTurn);
+    }
+
+    public static byte[] encodeHistory(GameHistory history) {
+        return encodeHistory(history.rules(), history.firstPlayer(), history.computerPlayer(), history.moves(), history.moves().length);
+    }
+
+    public static byte[] encodeHistory(Rules rules, Player firstPlayer, Player computerPlayer, int[] moves, int moveCount) {
+        boolean custom = !rules.equals(Rules.STANDARD);
+        boolean wide = rules.cols() > MAX_NIBBLE_COLS;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4 + (wide ? moveCount * 2 : (moveCount + 1) / 2));
+        out.write(VERSION);
+        out.write(firstPlayer.ordinal() | (custom ? CUSTOM_RULES : 0) | (wide ? WIDE_MOVES : 0)
+                | computerPlayer.ordinal() << COMPUTER_SHIFT);
+        if (custom) {
+            writeVarint(out, rules.rows());
+            writeVarint(out, rules.cols());
+            out.write(rules.connect());
+        }
+        writeVarint(out, moveCount);
+
+        if (wide) {
+            for (int i = 0; i < moveCount; i++) {
+                writeVarint(out, moves[i]);
+            }
+        } else {
+            for (int i = 0; i < moveCount; i += 2) {
+                int low = moves[i];
+                int high = i + 1 < moveCount ? moves[i + 1] : 0;
+                out.write(low | high << 4);
+            }
+        }
+
+        return out.toByteArray();
+    }
+
+    public static GameHistory decodeHistory(byte[] encoded) {
+        return decodeHistory(ByteBuffer.wrap(encoded));
+    }
+
+    /**
+     * Reads one encoded history starting at the buffer's position and leaves the position right after it.
+     */
+    public static GameHistory decodeHistory(ByteBuffer in) {
+        try {
+            HistoryReader reader = new HistoryReader();
+            reader.open(in);
+
+            int[] moves = new int[reader.moveCount()];
+            for (int i = 0; i < moves.length; i++) {
+                moves[i] = reader.nextMove();
+            }
+
+            return new GameHistory(reader.rules(), reader.firstPlayer(), reader.computerPlayer(), moves);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated game encoding", e);
+        }
+    }
+
+    public static void writeSnapshot(OutputStream output, Map<UUID, GameHistory> games) throws IOException {
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(games.size());
+
+        for (Map.Entry<UUID, GameHistory> entry : games.entrySet()) {
+            byte[] encoded = encodeHistory(entry.getValue());
+            out.writeLong(entry.getKey().getMostSignificantBits());
+            out.writeLong(entry.getKey().getLeastSignificantBits());
+            writeVarint(out, encoded.length);
+            out.write(encoded);
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads a snapshot written by {@link #writeSnapshot} and hands every game to the consumer in the order written.
+     */
+    public static void readSnapshot(InputStream input, BiConsumer<UUID, GameHistory> consumer) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        if (in.readInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("not a game snapshot");
+        }
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("unsupported game snapshot version " + version);
+        }
+
+        int count = in.readInt();
+        byte[] buffer = new byte[64];
+        for (int game = 0; game < count; game++) {
+            UUID id = new UUID(in.readLong(), in.readLong());
+
+            int length = readVarint(in);
+            if (length < 0) {
+                throw new IOException("malformed entry length %d in game snapshot".formatted(length));
+            }
+            if (buffer.length < length) {
+                buffer = new byte[length];
+            }
+            in.readFully(buffer, 0, length);
+
+            consumer.accept(id, decodeHistory(ByteBuffer.wrap(buffer, 0, length)));
+        }
+    }
+
+    private static void writeVarint(OutputStream out, int value) {
+        try {
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("malformed varint");
+    }
+
+    /**
+     * Reads encoded histories move by move, reusing itself for one history after the other without allocating.
+     * Reading past the end of the buffer throws a {@link BufferUnderflowException}.
+     */
+    static final class HistoryReader {
+        private ByteBuffer in;
+        private Rules rules;
+        private Player firstPlayer;
+        private Player computerPlayer;
+        private int moveCount;
+        private boolean wide;
+        private int movesRead;
+        private int packed;
+
+        /**
+         * Reads the header of the history starting at the buffer's position, its moves follow from {@link #nextMove}.
+         *
+         * @throws IllegalArgumentException if the header is invalid
+         */
+        void open(ByteBuffer in) {
+            this.in = in;
+
+            byte version = in.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("unsupported game encoding version " + version);
+            }
+
+            int flags = in.get();
+            if ((flags & FIRST_PLAYER_MASK) >= PLAYERS.length) {
+                throw new IllegalArgumentException("invalid first player in game encoding");
+            }
+            if ((flags & COMPUTER_MASK) >>> COMPUTER_SHIFT >= PLAYERS.length) {
+                throw new IllegalArgumentException("invalid computer player in game encoding");
+            }
+            firstPlayer = PLAYERS[flags & FIRST_PLAYER_MASK];
+            computerPlayer = PLAYERS[(flags & COMPUTER_MASK) >>> COMPUTER_SHIFT];
+            rules = (flags & CUSTOM_RULES) != 0
+                    ? readRules(readVarint(in), readVarint(in), in.get())
+                    : Rules.STANDARD;
+
+            moveCount = readVarint(in);
+            if (moveCount < 0 || moveCount > (long) rules.rows() * rules.cols()) {
+                throw new IllegalArgumentException("invalid move count %d in game encoding".formatted(moveCount));
+            }
+            wide = (flags & WIDE_MOVES) != 0;
+            movesRead = 0;
+        }
+
+        private Rules readRules(int rows, int cols, int connect) {
+            // games of an archive mostly share their rules, so the last ones are kept instead of created anew
+            return rules != null && rules.rows() == rows && rules.cols() == cols && rules.connect() == connect
+                    ? rules
+                    : new Rules(rows, cols, connect);
+        }
+
+        Rules rules() {
+            return rules;
+        }
+
+        Player firstPlayer() {
+            return firstPlayer;
+        }
+
+        Player computerPlayer() {
+            return computerPlayer;
+        }
+
+        int moveCount() {
+            return moveCount;
+        }
+
+        /**
+         * Returns the column of the next move, there are {@link #moveCount} of them.
+         */
+        int nextMove() {
+            if (wide) {
+                movesRead++;
+                return readVarint(in);
+            }
+
+            if ((movesRead++ & 1) == 0) {
+                packed = in.get() & 0xFF;
+                return packed & 0x0F;
+            }
+            return packed >>> 4;
+        }
+    }
+}
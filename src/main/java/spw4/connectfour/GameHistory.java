@@ -0,0 +1,48 @@
+package spw4.connectfour;
+
+import java.util.Arrays;
+
+/**
+ * The rules, the player who moved first and the columns played, which is all it takes to rebuild a game, and the
+ * side the computer plays in it.
+ *
+ * @param computerPlayer the side the computer plays, {@link Player#none} if both sides are human
+ */
+public record GameHistory(Rules rules, Player firstPlayer, Player computerPlayer, int[] moves) {
+
+    /**
+     * A game between two humans.
+     */
+    public GameHistory(Rules rules, Player firstPlayer, int[] moves) {
+        this(rules, firstPlayer, Player.none, moves);
+    }
+
+    public ConnectFour replay(ConnectFourEngine engine) throws InvalidPlayerException {
+        ConnectFour game = engine.create(rules, firstPlayer);
+        for (int col : moves) {
+            game.drop(col);
+        }
+
+        return game;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof GameHistory history
+                && rules.equals(history.rules)
+                && firstPlayer == history.firstPlayer
+                && computerPlayer == history.computerPlayer
+                && Arrays.equals(moves, history.moves);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * (31 * rules.hashCode() + firstPlayer.hashCode()) + computerPlayer.hashCode()) + Arrays.hashCode(moves);
+    }
+
+    @Override
+    public String toString() {
+        return "GameHistory[rules=%s, firstPlayer=%s, computerPlayer=%s, moves=%s]"
+                .formatted(rules, firstPlayer, computerPlayer, Arrays.toString(moves));
+    }
+}
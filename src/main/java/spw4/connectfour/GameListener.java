@@ -0,0 +1,41 @@
+package spw4.connectfour;
+
+import java.util.UUID;
+
+/**
+ * Receives the changes made to registered games.
+ * <p>
+ * Game events are delivered while the game's lock is held, so events of one game arrive in order and the game can
+ * be read safely. Removals are delivered while the registry reorganizes itself. Neither must block: work that has
+ * to wait belongs in {@link #changeDelivered}.
+ */
+public interface GameListener {
+    /**
+     * Called after a game was created, against the computer playing the given side or {@link Player#none}.
+     */
+    default void gameCreated(UUID id, ConnectFour game, Player computerPlayer) {
+    }
+
+    default void discDropped(UUID id, ConnectFour game, int col) {
+    }
+
+    /**
+     * Called after the last move, played in the given column, was taken back.
+     */
+    default void moveUndone(UUID id, ConnectFour game, int col) {
+    }
+
+    default void gameReset(UUID id, ConnectFour game) {
+    }
+
+    default void gameRemoved(UUID id) {
+    }
+
+    /**
+     * Called on the thread that created or changed a game once every listener received the event and the game's
+     * lock was released. May block, e.g. until the change is durable. An exception thrown here reaches the caller
+     * of the change, which has been applied nonetheless.
+     */
+    default void changeDelivered(UUID id) {
+    }
+}
@@ -0,0 +1,440 @@
+package spw4.connectfour;
+
+import spw4.connectfour.ai.MonteCarloEstimator;
+import spw4.connectfour.ai.WinProbability;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Renders game pages as pre-encoded UTF-8 that is written straight to the response stream.
+ * <p>
+ * All static markup is encoded once and pages are assembled from these chunks. A page only depends on the position,
+ * the side the computer plays, if any, and the game id, so pages are kept in a {@link PositionCache} by
+ * {@link ConnectFourView#positionKey() position} and computer side, with the offsets where the id goes. Serving a cached
+ * page writes the cached bytes with the id spliced in, which allocates nothing but the id's text.
+ * <p>
+ * Below the board of a running game the win probabilities estimated by a {@link MonteCarloEstimator} can be shown.
+ * Rendering never waits for them: a position without an estimate yet is shown without one while the estimator works
+ * on it in the background, and only pages with their estimate are cached.
+ */
+final class GamePageRenderer {
+    static final int DEFAULT_CACHE_SIZE = 1024;
+    static final long DEFAULT_PLAYOUTS = 10_000;
+    static final Duration ESTIMATE_BUDGET = Duration.ofMillis(20);
+
+    private static final int COMPUTER_SHIFT = 56;
+    private static final int ID_LENGTH = 36;
+
+    private static final byte[] PAGE_START = utf8("""
+            <!DOCTYPE html>
+            <html lang="en">
+            <head>
+                <meta charset="UTF-8">
+                <title>Connect Four</title>
+                <link href="css/bootstrap.min.css" rel="stylesheet"/>
+                <link href="icons/bootstrap-icons.css" rel="stylesheet"/>
+                <script src="js/bootstrap.min.js"></script>
+            </head>
+            <body>
+                <h1 class="m-5 text-center">Play Connect Four:</h1>
+                <div class="row">
+                    <div class="col"></div>
+                    <div class="col">
+                        <div class="row text-center pb-4">
+                            <div class="col"><h5>Player:\s""");
+    private static final byte[] BOARD_START = utf8("""
+            </h5></div>
+                        </div>
+                        <div class="row">
+                            <div class="col p-0">
+                                <div class="container p-0 text-center bg-secondary">
+                                    <div class="row m-0 bg-white">
+            """);
+    private static final byte[][] BUTTON_START = {
+            utf8("                            <div class=\"col p-1 ml-1\">"),
+            utf8("                            <div class=\"col p-1 mx-1\">")
+    };
+    private static final byte[] HIDDEN_BUTTON = utf8("<span class=\"btn p-1 invisible\"><i class=\"bi-arrow-down\"></i></span>");
+    private static final byte[] BUTTON_LINK = utf8("<a role=\"button\" class=\"btn btn-secondary p-1\" href=\"ConnectFour?id=");
+    private static final byte[] BUTTON_ACTION = utf8("&action=c");
+    private static final byte[] BUTTON_END = utf8("\"><i class=\"bi-arrow-down\"></i></a>");
+    private static final byte[] CELL_END = utf8("</div>\n");
+    private static final byte[] ROW_END = utf8("                        </div>\n");
+    private static final byte[] ROW_START = utf8("                        <div class=\"row pt-1 m-0\" style=\"height:36px\">\n");
+    private static final byte[] LAST_ROW_START = utf8("                        <div class=\"row py-1 m-0\" style=\"height:40px\">\n");
+    private static final byte[][][] CELLS = {
+            cells("ml-1"),
+            cells("mx-1")
+    };
+    private static final byte[] BOARD_END = utf8("""
+                                </div>
+                            </div>
+                        </div>
+            """);
+    private static final byte[] PROBABILITIES_START = utf8("                <div class=\"row text-center pt-2\">\n");
+    private static final byte[][] PROBABILITY_STARTS = {
+            probabilityStart("secondary", "DRAW"),
+            probabilityStart("warning", "YELLOW"),
+            probabilityStart("danger", "RED")
+    };
+    private static final Player[] PROBABILITY_ORDER = {Player.red, Player.none, Player.yellow};
+    private static final byte[] PROBABILITY_END = utf8("%</span></div>\n");
+    private static final byte[] PROBABILITIES_END = utf8("                </div>\n");
+    private static final byte[][] PERCENTAGES = new byte[101][];
+    private static final byte[][] RESULTS = {
+            result("badge-secondary w-75\">DRAW"),
+            result("bad badge-warning w-75\">YELLOW WINS"),
+            result("badge-danger w-75\">RED WINS")
+    };
+    private static final byte[] NEW_GAME_LINK = utf8("            <div class=\"row text-center pt-4\">\n"
+            + "                <div class=\"col\"><a role=\"button\" class=\"btn btn-danger w-75\" href=\"ConnectFour?action=new");
+    private static final byte[] MODE_LINK = utf8("""
+            ">New Game</a></div>
+                            <div class="col"><a role="button" class="btn btn-secondary w-75" href="ConnectFour?action=new""");
+    private static final byte[] TAKE_BACK_LINK = utf8("""
+            </a></div>
+                            <div class="col"><a role="button" class="btn btn-secondary w-75" href="ConnectFour?id=""");
+    private static final byte[] TAKE_BACK_ACTION = utf8("&action=undo\">Take Back");
+    private static final byte[] HIDDEN_TAKE_BACK = utf8("""
+            </a></div>
+                            <div class="col"><a role="button" class="btn btn-secondary w-75 disabled" aria-disabled="true">Take Back""");
+    private static final byte[] REFRESH_LINK = utf8("""
+            </a></div>
+                            <div class="col"><a role="button" class="btn btn-info w-75" href="ConnectFour?id=""");
+    private static final byte[][] COMPUTER_PARAMETERS = Arrays.stream(Player.values())
+            .map(player -> utf8(player == Player.none ? "" : "&computer=" + player))
+            .toArray(byte[][]::new);
+    private static final byte[] VERSUS_COMPUTER_LABEL = utf8("&computer=yellow\">vs Computer");
+    private static final byte[] TWO_PLAYERS_LABEL = utf8("\">Two Players");
+    private static final byte[] EVENTS_SCRIPT = utf8("""
+            ">Refresh</a></div>
+                        </div>
+                    </div>
+                    <div class="col"></div>
+                </div>
+                <script>
+                    const events = new EventSource("ConnectFour/events?id=""");
+    private static final byte[] EVENTS_RELOAD = utf8("""
+            ");
+                    const reload = () => location.replace("ConnectFour?id=""");
+    private static final byte[] PAGE_END = utf8("""
+            ");
+                    ["drop", "undo", "reset", "removed"].forEach(name => events.addEventListener(name, reload));
+                </script>
+            </body>
+            </html>
+
+            """);
+    private static final byte[][] PLAYER_LABELS = Arrays.stream(Player.values())
+            .map(player -> utf8(player.toString().toUpperCase()))
+            .toArray(byte[][]::new);
+    private static final byte[][] COLUMN_NUMBERS = new byte[128][];
+
+    static final byte[] EXPIRED_PAGE = utf8("""
+            <!DOCTYPE html>
+            <html lang="en">
+            <head>
+                <meta charset="UTF-8">
+                <title>Connect Four</title>
+                <link href="css/bootstrap.min.css" rel="stylesheet"/>
+            </head>
+            <body>
+                <h1 class="m-5 text-center">Game expired</h1>
+                <p class="text-center">This game does not exist anymore, it was inactive for too long.</p>
+                <div class="row">
+                    <div class="col"></div>
+                    <div class="col text-center"><a role="button" class="btn btn-danger w-75" href="ConnectFour?action=new">New Game</a></div>
+                    <div class="col"></div>
+                </div>
+            </body>
+            </html>
+
+            """);
+
+    private static final byte[] HEX_DIGITS = utf8("0123456789abcdef");
+
+    static {
+        for (int col = 0; col < COLUMN_NUMBERS.length; col++) {
+            COLUMN_NUMBERS[col] = utf8(Integer.toString(col + 1));
+        }
+        for (int percent = 0; percent < PERCENTAGES.length; percent++) {
+            PERCENTAGES[percent] = utf8(Integer.toString(percent));
+        }
+    }
+
+    private final PositionCache<Page> cache;
+    private final MonteCarloEstimator estimator;
+    private final long playouts;
+
+    GamePageRenderer() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    GamePageRenderer(int cacheSize) {
+        this(cacheSize, null, 0);
+    }
+
+    /**
+     * @param cacheSize number of cached pages, rounded up to a power of two, or {@code 0} to cache nothing
+     * @param estimator estimator of the win probabilities shown below the board, or {@code null} to show none
+     * @param playouts  number of playouts per estimate
+     */
+    GamePageRenderer(int cacheSize, MonteCarloEstimator estimator, long playouts) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("cacheSize must not be negative");
+        }
+
+        this.estimator = estimator;
+        this.playouts = playouts;
+
+        cache = cacheSize == 0 ? null : new PositionCache<>(cacheSize, page -> page.page.length + 4L * page.idOffsets.length);
+    }
+
+    /**
+     * Returns the counters of the page cache, or {@code null} if pages are not cached.
+     */
+    PositionCache.Stats cacheStats() {
+        return cache != null ? cache.stats() : null;
+    }
+
+    /**
+     * Returns the page showing the game, which can be written for its id once the game is no longer locked.
+     */
+    Page prepare(ConnectFourView game) {
+        return prepare(game, Player.none);
+    }
+
+    /**
+     * Returns the page showing the game played against the computer on the given side, or by two humans if that
+     * side is {@link Player#none}.
+     */
+    Page prepare(ConnectFourView game, Player computer) {
+        if (cache == null || game.getPlayerOnTurn() == Player.none) {
+            return record(game, computer);
+        }
+
+        long key = game.positionKey() ^ (long) computer.ordinal() << COMPUTER_SHIFT;
+        Page cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        PageBuilder builder = new PageBuilder();
+        boolean complete = writePage(builder, game, computer);
+        Page page = builder.toPage();
+        if (complete) {
+            cache.put(key, page);
+        }
+
+        return page;
+    }
+
+    private Page record(ConnectFourView game, Player computer) {
+        PageBuilder builder = new PageBuilder();
+        writePage(builder, game, computer);
+
+        return builder.toPage();
+    }
+
+    /**
+     * @return whether the page is complete, which it is not while the win probabilities are still being estimated
+     */
+    private boolean writePage(PageBuilder page, ConnectFourView game, Player computer) {
+        Rules rules = game.getRules();
+        boolean gameOver = game.isGameOver();
+
+        page.write(PAGE_START);
+        page.write(PLAYER_LABELS[game.getPlayerOnTurn().ordinal()]);
+        page.write(BOARD_START);
+
+        for (int col = 0; col < rules.cols(); col++) {
+            page.write(BUTTON_START[margin(rules, col)]);
+            if (gameOver || game.isColumnFull(col)) {
+                page.write(HIDDEN_BUTTON);
+            } else {
+                page.write(BUTTON_LINK);
+                page.writeId();
+                page.write(BUTTON_ACTION);
+                page.write(col < COLUMN_NUMBERS.length ? COLUMN_NUMBERS[col] : utf8(Integer.toString(col + 1)));
+                page.write(BUTTON_END);
+            }
+            page.write(CELL_END);
+        }
+        page.write(ROW_END);
+
+        for (int row = 0; row < rules.rows(); row++) {
+            page.write(row < rules.rows() - 1 ? ROW_START : LAST_ROW_START);
+            for (int col = 0; col < rules.cols(); col++) {
+                page.write(CELLS[margin(rules, col)][game.getPlayerAt(row, col).ordinal()]);
+            }
+            page.write(ROW_END);
+        }
+        page.write(BOARD_END);
+
+        boolean complete = true;
+        if (gameOver) {
+            page.write(RESULTS[game.getWinner().ordinal()]);
+        } else if (estimator != null) {
+            WinProbability probability = estimator.estimateIfReady(game, playouts, ESTIMATE_BUDGET);
+            complete = probability != null || !estimator.canEstimate(rules);
+            writeProbabilities(page, probability);
+        }
+
+        byte[] rulesParameters = rules.equals(Rules.STANDARD)
+                ? new byte[0]
+                : utf8("&rows=" + rules.rows() + "&cols=" + rules.cols() + "&connect=" + rules.connect());
+        page.write(NEW_GAME_LINK);
+        page.write(rulesParameters);
+        page.write(COMPUTER_PARAMETERS[computer.ordinal()]);
+        page.write(MODE_LINK);
+        page.write(rulesParameters);
+        page.write(computer == Player.none ? VERSUS_COMPUTER_LABEL : TWO_PLAYERS_LABEL);
+        if (game.getMoveCount() > 0) {
+            page.write(TAKE_BACK_LINK);
+            page.writeId();
+            page.write(TAKE_BACK_ACTION);
+        } else {
+            page.write(HIDDEN_TAKE_BACK);
+        }
+        page.write(REFRESH_LINK);
+        page.writeId();
+        page.write(EVENTS_SCRIPT);
+        page.writeId();
+        page.write(EVENTS_RELOAD);
+        page.writeId();
+        page.write(PAGE_END);
+
+        return complete;
+    }
+
+    private static void writeProbabilities(PageBuilder page, WinProbability probability) {
+        if (probability == null) {
+            return;
+        }
+
+        page.write(PROBABILITIES_START);
+        for (Player player : PROBABILITY_ORDER) {
+            double share = switch (player) {
+                case red -> probability.red();
+                case yellow -> probability.yellow();
+                default -> probability.draw();
+            };
+            page.write(PROBABILITY_STARTS[player.ordinal()]);
+            page.write(PERCENTAGES[(int) Math.round(Math.min(1, share) * 100)]);
+            page.write(PROBABILITY_END);
+        }
+        page.write(PROBABILITIES_END);
+    }
+
+    private static byte[] probabilityStart(String color, String label) {
+        return utf8("                    <div class=\"col\"><span class=\"badge badge-" + color + "\">" + label + " ");
+    }
+
+    private static byte[] result(String badge) {
+        return utf8("                <div class=\"row text-center pt-4\">\n"
+                + "                    <div class=\"col\"><h1><span class=\"badge " + badge + "</span></h1></div>\n"
+                + "                </div>\n");
+    }
+
+    private static int margin(Rules rules, int col) {
+        return col < rules.cols() - 1 ? 0 : 1;
+    }
+
+    private static byte[][] cells(String margin) {
+        return Arrays.stream(new String[]{"bg-light", "bg-warning", "bg-danger"})
+                .map(color -> utf8("                            <div class=\"col p-1 " + margin + " " + color + "\"></div>\n"))
+                .toArray(byte[][]::new);
+    }
+
+    private static byte[] idText(UUID id) {
+        byte[] text = new byte[ID_LENGTH];
+        long high = id.getMostSignificantBits();
+        long low = id.getLeastSignificantBits();
+
+        hex(text, 0, high >>> 32, 8);
+        text[8] = '-';
+        hex(text, 9, high >>> 16, 4);
+        text[13] = '-';
+        hex(text, 14, high, 4);
+        text[18] = '-';
+        hex(text, 19, low >>> 48, 4);
+        text[23] = '-';
+        hex(text, 24, low, 12);
+
+        return text;
+    }
+
+    private static void hex(byte[] text, int offset, long value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            text[i] = HEX_DIGITS[(int) value & 0xF];
+            value >>>= 4;
+        }
+    }
+
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static final class PageBuilder {
+        private byte[] page = new byte[8192];
+        private int length;
+        private int[] idOffsets = new int[16];
+        private int idCount;
+
+        private void write(byte[] chunk) {
+            if (length + chunk.length > page.length) {
+                page = Arrays.copyOf(page, Math.max(page.length * 2, length + chunk.length));
+            }
+            System.arraycopy(chunk, 0, page, length, chunk.length);
+            length += chunk.length;
+        }
+
+        private void writeId() {
+            if (idCount == idOffsets.length) {
+                idOffsets = Arrays.copyOf(idOffsets, idCount * 2);
+            }
+            idOffsets[idCount++] = length;
+        }
+
+        private Page toPage() {
+            return new Page(Arrays.copyOf(page, length), Arrays.copyOf(idOffsets, idCount));
+        }
+    }
+
+    /**
+     * A rendered page with the offsets at which the game id has to be inserted.
+     */
+    static final class Page {
+        private final byte[] page;
+        private final int[] idOffsets;
+
+        private Page(byte[] page, int[] idOffsets) {
+            this.page = page;
+            this.idOffsets = idOffsets;
+        }
+
+        /**
+         * Returns the number of bytes {@link #writeTo} writes.
+         */
+        int size() {
+            return page.length + idOffsets.length * ID_LENGTH;
+        }
+
+        void writeTo(OutputStream out, UUID id) throws IOException {
+            byte[] idText = idText(id);
+
+            int start = 0;
+            for (int offset : idOffsets) {
+                out.write(page, start, offset - start);
+                out.write(idText);
+                start = offset;
+            }
+            out.write(page, start, page.length - start);
+        }
+    }
+}
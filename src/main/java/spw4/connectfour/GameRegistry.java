@@ -0,0 +1,256 @@
+package spw4.connectfour;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded store of live games with idle-timeout expiry and least-recently-used eviction.
+ * <p>
+ * Games are spread over independently locked stripes by id. Each stripe keeps its games in access order, so the
+ * least recently used and longest idle games are always at the head: expiring and evicting only ever touch the
+ * head of one stripe and never scan the whole store. Capacity is split evenly between the stripes, which makes the
+ * eviction order approximately least-recently-used across the whole store.
+ */
+public class GameRegistry {
+    public static final int DEFAULT_MAX_GAMES = 100_000;
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofHours(1);
+
+    private static final int MAX_STRIPES = 64;
+    private static final int MIN_STRIPE_CAPACITY = 1024;
+
+    private final GameStore store;
+    private final int maxGames;
+    private final long idleTimeoutNanos;
+    private final LongSupplier clock;
+    private final Stripe[] stripes;
+    private final List<GameListener> listeners = new CopyOnWriteArrayList<>();
+    private final GameListener listenerChain = new ListenerChain();
+
+    private final AtomicInteger liveGames = new AtomicInteger();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public GameRegistry(GameStore store) {
+        this(store, DEFAULT_MAX_GAMES, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    public GameRegistry(GameStore store, int maxGames, Duration idleTimeout) {
+        this(store, maxGames, idleTimeout, System::nanoTime);
+    }
+
+    GameRegistry(GameStore store, int maxGames, Duration idleTimeout, LongSupplier clock) {
+        if (maxGames < 1) {
+            throw new IllegalArgumentException("maxGames must be positive");
+        }
+
+        this.store = store;
+        this.maxGames = maxGames;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.clock = clock;
+
+        stripes = new Stripe[Math.max(1, Math.min(MAX_STRIPES, maxGames / MIN_STRIPE_CAPACITY))];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(maxGames / stripes.length + (i < maxGames % stripes.length ? 1 : 0));
+        }
+    }
+
+    public GameSession create(Rules rules, Player playerOnTurn) throws InvalidPlayerException {
+        return create(rules, playerOnTurn, Player.none);
+    }
+
+    /**
+     * @param computerPlayer the side the computer plays, {@link Player#none} if both sides are human
+     */
+    public GameSession create(Rules rules, Player playerOnTurn, Player computerPlayer) throws InvalidPlayerException {
+        UUID id = UUID.randomUUID();
+        GameSession session = stripeFor(id).add(id, rules, playerOnTurn, computerPlayer, clock.getAsLong(), true);
+        listenerChain.changeDelivered(id);
+
+        return session;
+    }
+
+    /**
+     * Registers a new game under a known id without announcing it to the listeners, for rebuilding games that
+     * already existed, e.g. from a journal.
+     */
+    public GameSession restore(UUID id, Rules rules, Player playerOnTurn, Player computerPlayer) throws InvalidPlayerException {
+        return stripeFor(id).add(id, rules, playerOnTurn, computerPlayer, clock.getAsLong(), false);
+    }
+
+    public void addListener(GameListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(GameListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns the game with the given id and marks it as used, or {@code null} if it never existed, expired or was
+     * evicted.
+     */
+    public GameSession get(UUID id) {
+        return stripeFor(id).get(id, clock.getAsLong());
+    }
+
+    public int size() {
+        return liveGames.get();
+    }
+
+    public int getMaxGames() {
+        return maxGames;
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    private Stripe stripeFor(UUID id) {
+        int hash = id.hashCode();
+        hash ^= hash >>> 16;
+
+        return stripes[Math.floorMod(hash, stripes.length)];
+    }
+
+    private final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<UUID, GameSession> sessions = new LinkedHashMap<>(16, 0.75f, true);
+        private final int capacity;
+
+        private Stripe(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * Makes room for the new game before creating it, so a store never holds more than {@code maxGames} games.
+         * The creation is announced before the lock is released, so listeners always hear of a game before its
+         * removal.
+         */
+        private GameSession add(UUID id, Rules rules, Player playerOnTurn, Player computerPlayer, long now, boolean announce) {
+            lock.lock();
+            try {
+                expireIdle(now);
+
+                GameSession previous = sessions.remove(id);
+                if (previous != null) {
+                    liveGames.decrementAndGet();
+                    previous.release(store);
+                }
+
+                Iterator<GameSession> eldest = sessions.values().iterator();
+                while (sessions.size() >= capacity) {
+                    GameSession session = eldest.next();
+                    eldest.remove();
+                    liveGames.decrementAndGet();
+                    evictions.increment();
+                    session.release(store);
+                    listenerChain.gameRemoved(session.getId());
+                }
+
+                GameSession session = new GameSession(id, store.create(rules, playerOnTurn), computerPlayer, listenerChain);
+                session.touch(now);
+                sessions.put(id, session);
+                liveGames.incrementAndGet();
+
+                if (announce) {
+                    session.read(game -> {
+                        listenerChain.gameCreated(id, game, computerPlayer);
+                        return null;
+                    });
+                }
+
+                return session;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private GameSession get(UUID id, long now) {
+            lock.lock();
+            try {
+                expireIdle(now);
+
+                GameSession session = sessions.get(id);
+                if (session != null) {
+                    session.touch(now);
+                }
+
+                return session;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void expireIdle(long now) {
+            Iterator<GameSession> eldest = sessions.values().iterator();
+            while (eldest.hasNext()) {
+                GameSession session = eldest.next();
+                if (now - session.getLastAccess() <= idleTimeoutNanos) {
+                    return;
+                }
+
+                eldest.remove();
+                liveGames.decrementAndGet();
+                expirations.increment();
+                session.release(store);
+                listenerChain.gameRemoved(session.getId());
+            }
+        }
+    }
+
+    private final class ListenerChain implements GameListener {
+        @Override
+        public void gameCreated(UUID id, ConnectFour game, Player computerPlayer) {
+            for (GameListener listener : listeners) {
+                listener.gameCreated(id, game, computerPlayer);
+            }
+        }
+
+        @Override
+        public void discDropped(UUID id, ConnectFour game, int col) {
+            for (GameListener listener : listeners) {
+                listener.discDropped(id, game, col);
+            }
+        }
+
+        @Override
+        public void moveUndone(UUID id, ConnectFour game, int col) {
+            for (GameListener listener : listeners) {
+                listener.moveUndone(id, game, col);
+            }
+        }
+
+        @Override
+        public void gameReset(UUID id, ConnectFour game) {
+            for (GameListener listener : listeners) {
+                listener.gameReset(id, game);
+            }
+        }
+
+        @Override
+        public void gameRemoved(UUID id) {
+            for (GameListener listener : listeners) {
+                listener.gameRemoved(id);
+            }
+        }
+
+        @Override
+        public void changeDelivered(UUID id) {
+            for (GameListener listener : listeners) {
+                listener.changeDelivered(id);
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package spw4.connectfour;
+
+import spw4.connectfour.ai.ComputerPlayer;
+import spw4.connectfour.ai.MonteCarloEstimator;
+import spw4.connectfour.ai.OpeningBook;
+import spw4.connectfour.events.GameEventHub;
+import spw4.connectfour.journal.GameJournal;
+import spw4.connectfour.metrics.Metrics;
+
+import javax.servlet.ServletContext;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The games of a web application and everything shared by the servlets serving them.
+ * <p>
+ * One instance is kept per servlet context and configured by its init parameters: {@code engine} ({@code array},
+ * {@code bitboard} or {@code slab}), {@code maxGames}, {@code idleTimeoutMinutes}, {@code pageCacheSize},
+ * {@code winProbabilityPlayouts} ({@code 0} to show no win probabilities), {@code computerTimeBudgetMillis},
+ * {@code computerSearches} and optionally {@code journalDirectory} and {@code openingBook}, the file of an
+ * {@link OpeningBook} the computer plays from. It is started with the context, or by the first servlet asking for
+ * it, and closed with the context by {@link GameServerListener}.
+ */
+public class GameServer implements AutoCloseable {
+    public static final String ATTRIBUTE = GameServer.class.getName();
+
+    private static final int MAX_COMPUTER_RULES = 16;
+    private static final int CUSTOM_RULES_TABLE_SIZE = 1 << 16;
+
+    private final GameRegistry registry;
+    private final GamePageRenderer pages;
+    private final MonteCarloEstimator estimator;
+    private final GameEventHub events;
+    private final GameJournal journal;
+    private final Metrics metrics;
+    private final Map<Rules, ComputerPlayer> computers = new ConcurrentHashMap<>();
+    private final Duration computerTimeBudget;
+    private final int computerSearches;
+    private final OpeningBook openingBook;
+
+    private GameServer(Function<String, String> parameters) throws IOException {
+        String engineName = parameters.apply("engine");
+        String maxGamesParameter = parameters.apply("maxGames");
+        String idleTimeoutMinutes = parameters.apply("idleTimeoutMinutes");
+        String pageCacheSize = parameters.apply("pageCacheSize");
+        String winProbabilityPlayouts = parameters.apply("winProbabilityPlayouts");
+        String journalDirectory = parameters.apply("journalDirectory");
+        String computerTimeBudgetMillis = parameters.apply("computerTimeBudgetMillis");
+        String computerSearchesParameter = parameters.apply("computerSearches");
+        String openingBookFile = parameters.apply("openingBook");
+
+        int maxGames = maxGamesParameter != null ? Integer.parseInt(maxGamesParameter) : GameRegistry.DEFAULT_MAX_GAMES;
+        GameStore store = "slab".equals(engineName)
+                ? new SlabGameStore(maxGames)
+                : engineName != null ? ConnectFourEngine.valueOf(engineName) : ConnectFourEngine.array;
+
+        registry = new GameRegistry(
+                store,
+                maxGames,
+                idleTimeoutMinutes != null ? Duration.ofMinutes(Long.parseLong(idleTimeoutMinutes)) : GameRegistry.DEFAULT_IDLE_TIMEOUT);
+        long playouts = winProbabilityPlayouts != null ? Long.parseLong(winProbabilityPlayouts) : GamePageRenderer.DEFAULT_PLAYOUTS;
+        estimator = playouts > 0 ? new MonteCarloEstimator() : null;
+        pages = new GamePageRenderer(
+                pageCacheSize != null ? Integer.parseInt(pageCacheSize) : GamePageRenderer.DEFAULT_CACHE_SIZE,
+                estimator,
+                playouts);
+        events = new GameEventHub();
+        registry.addListener(events);
+
+        computerTimeBudget = computerTimeBudgetMillis != null
+                ? Duration.ofMillis(Long.parseLong(computerTimeBudgetMillis))
+                : ComputerPlayer.DEFAULT_TIME_BUDGET;
+        computerSearches = computerSearchesParameter != null
+                ? Integer.parseInt(computerSearchesParameter)
+                : Runtime.getRuntime().availableProcessors();
+        openingBook = openingBookFile != null && !openingBookFile.isBlank()
+                ? OpeningBook.open(Path.of(openingBookFile))
+                : null;
+
+        journal = journalDirectory != null && !journalDirectory.isBlank()
+                ? GameJournal.open(Path.of(journalDirectory), registry)
+                : null;
+
+        // registered after the journal restored its games, so only new games and moves are counted
+        metrics = new Metrics(registry::size, this::getPositionCacheStats);
+        registry.addListener(metrics);
+    }
+
+    /**
+     * Starts a server outside of a servlet context, reading its configuration from the given parameter lookup.
+     */
+    public static GameServer start(Function<String, String> parameters) throws IOException {
+        return new GameServer(parameters);
+    }
+
+    /**
+     * Returns the server of the given context, starting it if necessary.
+     */
+    public static GameServer of(ServletContext context) throws IOException {
+        synchronized (context) {
+            GameServer server = (GameServer) context.getAttribute(ATTRIBUTE);
+            if (server == null) {
+                server = start(context::getInitParameter);
+                context.setAttribute(ATTRIBUTE, server);
+            }
+
+            return server;
+        }
+    }
+
+    public GameRegistry getRegistry() {
+        return registry;
+    }
+
+    GamePageRenderer getPages() {
+        return pages;
+    }
+
+    public GameEventHub getEvents() {
+        return events;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the counters of the caches shared by all games by name: {@code pages} and {@code winProbabilities},
+     * each only if it is enabled.
+     */
+    public Map<String, PositionCache.Stats> getPositionCacheStats() {
+        Map<String, PositionCache.Stats> stats = new LinkedHashMap<>();
+        PositionCache.Stats pageStats = pages.cacheStats();
+        if (pageStats != null) {
+            stats.put("pages", pageStats);
+        }
+        if (estimator != null) {
+            stats.put("winProbabilities", estimator.cacheStats());
+        }
+
+        return stats;
+    }
+
+    /**
+     * Returns the computer player shared by all games with the given rules.
+     */
+    public ComputerPlayer getComputer(Rules rules) {
+        ComputerPlayer computer = computers.get(rules);
+        if (computer != null) {
+            return computer;
+        }
+        if (!rules.equals(Rules.STANDARD) && computers.size() >= MAX_COMPUTER_RULES) {
+            return new ComputerPlayer(rules, CUSTOM_RULES_TABLE_SIZE, computerSearches);
+        }
+
+        return computers.computeIfAbsent(rules, key -> new ComputerPlayer(
+                key,
+                key.equals(Rules.STANDARD) ? ComputerPlayer.DEFAULT_TABLE_SIZE : CUSTOM_RULES_TABLE_SIZE,
+                computerSearches,
+                openingBook != null && openingBook.getRules().equals(key) ? openingBook : null));
+    }
+
+    /**
+     * Lets the computer move if it plays the side on turn of the session's game.
+     *
+     * @return whether the computer dropped a disc
+     */
+    public boolean playComputerMove(GameSession session) {
+        Player computer = session.getComputerPlayer();
+        if (computer == Player.none) {
+            return false;
+        }
+
+        // searching the snapshot keeps the game unlocked, the drop fails if a move was made meanwhile
+        GameSnapshot game = session.getSnapshot();
+        if (game.isGameOver() || game.getPlayerOnTurn() != computer) {
+            return false;
+        }
+
+        int col = getComputer(game.getRules()).chooseMove(game, computerTimeBudget);
+        return session.drop(col, game.getVersion());
+    }
+
+    /**
+     * Takes back the last move of the session's game. Against the computer the computer's reply is taken back as
+     * well, so the human is on turn again.
+     *
+     * @return whether a move was taken back
+     */
+    public boolean takeBack(GameSession session) {
+        Player computer = session.getComputerPlayer();
+        if (!session.undo()) {
+            return false;
+        }
+
+        if (computer != Player.none && session.getSnapshot().getPlayerOnTurn() == computer && !session.undo()) {
+            playComputerMove(session);
+        }
+
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        events.close();
+        if (estimator != null) {
+            estimator.close();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+}
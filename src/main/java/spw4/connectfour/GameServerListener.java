@@ -0,0 +1,38 @@
+package spw4.connectfour;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+import java.io.IOException;
+
+@WebListener
+public class GameServerListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        try {
+            GameServer.of(event.getServletContext());
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot start the game server", e);
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        ServletContext context = event.getServletContext();
+        GameServer server;
+        synchronized (context) {
+            server = (GameServer) context.getAttribute(GameServer.ATTRIBUTE);
+            context.removeAttribute(GameServer.ATTRIBUTE);
+        }
+
+        if (server != null) {
+            try {
+                server.close();
+            } catch (IOException e) {
+                context.log("closing the game server failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package spw4.connectfour;
+
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A registered game together with the lock that serializes every access to it.
+ * <p>
+ * Engines are not thread-safe, so moves and reads of the same game run one at a time while different games never
+ * contend with each other. After every change the session publishes a {@link GameSnapshot} of the game through a
+ * volatile field, so readers that only need the position never take the lock and never see a move half done. The
+ * snapshot is a heap copy of the board even for games kept off the heap by a {@link SlabGameStore}, which is the
+ * price of lock-free reads.
+ */
+public class GameSession {
+    private final UUID id;
+    private final ConnectFour game;
+    private final GameListener listener;
+    private final Player computerPlayer;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile long version;
+    private volatile GameSnapshot snapshot;
+    private long lastAccess;
+    private boolean released;
+
+    public GameSession(UUID id, ConnectFour game) {
+        this(id, game, new GameListener() {
+        });
+    }
+
+    public GameSession(UUID id, ConnectFour game, GameListener listener) {
+        this(id, game, Player.none, listener);
+    }
+
+    /**
+     * @param computerPlayer the side the computer plays, {@link Player#none} if both sides are human
+     */
+    public GameSession(UUID id, ConnectFour game, Player computerPlayer, GameListener listener) {
+        this.id = id;
+        this.game = game;
+        this.computerPlayer = computerPlayer;
+        this.listener = listener;
+        snapshot = GameSnapshot.of(game, 0);
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    /**
+     * Returns a number that grows with every change of the game, so equal versions mean an unchanged game.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the game as of its latest change, without locking.
+     */
+    public GameSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns the side the computer plays in this game, or {@link Player#none} if both sides are human. It is fixed
+     * when the game is created, so it is part of the game's creation everywhere the creation is recorded.
+     */
+    public Player getComputerPlayer() {
+        return computerPlayer;
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+    void touch(long now) {
+        lastAccess = now;
+    }
+
+    public boolean drop(int col) {
+        boolean dropped;
+        lock.lock();
+        try {
+            dropped = dropLocked(col);
+        } finally {
+            lock.unlock();
+        }
+
+        return delivered(dropped);
+    }
+
+    /**
+     * Drops a disc only if the game is still at the given version, so a move chosen for one position is never
+     * played in another.
+     */
+    public boolean drop(int col, long expectedVersion) {
+        boolean dropped;
+        lock.lock();
+        try {
+            dropped = version == expectedVersion && dropLocked(col);
+        } finally {
+            lock.unlock();
+        }
+
+        return delivered(dropped);
+    }
+
+    private boolean dropLocked(int col) {
+        if (released || game.isGameOver() || game.isColumnFull(col)) {
+            return false;
+        }
+
+        game.drop(col);
+        publish();
+        listener.discDropped(id, game, col);
+        return true;
+    }
+
+    /**
+     * Takes back the last move. Replaying it with {@link #redo} is reported as a dropped disc.
+     *
+     * @return whether there was a move to take back
+     */
+    public boolean undo() {
+        lock.lock();
+        try {
+            if (released) {
+                return false;
+            }
+
+            int col = game.undo();
+            if (col < 0) {
+                return false;
+            }
+
+            publish();
+            listener.moveUndone(id, game, col);
+        } finally {
+            lock.unlock();
+        }
+
+        return delivered(true);
+    }
+
+    /**
+     * Plays the move taken back last again.
+     *
+     * @return whether there was a move to play again
+     */
+    public boolean redo() {
+        lock.lock();
+        try {
+            if (released) {
+                return false;
+            }
+
+            int col = game.redo();
+            if (col < 0) {
+                return false;
+            }
+
+            publish();
+            listener.discDropped(id, game, col);
+        } finally {
+            lock.unlock();
+        }
+
+        return delivered(true);
+    }
+
+    public void reset(Player playerOnTurn) {
+        lock.lock();
+        try {
+            if (released) {
+                return;
+            }
+
+            game.reset(playerOnTurn);
+            publish();
+            listener.gameReset(id, game);
+        } finally {
+            lock.unlock();
+        }
+
+        delivered(true);
+    }
+
+    private void publish() {
+        version++;
+        snapshot = GameSnapshot.of(game, version);
+    }
+
+    /**
+     * Tells the listener that a change was delivered, once the lock is released.
+     */
+    private boolean delivered(boolean changed) {
+        if (changed) {
+            listener.changeDelivered(id);
+        }
+
+        return changed;
+    }
+
+    /**
+     * Hands the game back to its store once it left the registry. Moves and resets are ignored from then on.
+     */
+    void release(GameStore store) {
+        lock.lock();
+        try {
+            if (!released) {
+                released = true;
+                store.release(game);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs the reader on the game while holding its lock.
+     *
+     * @return the reader's result, or {@code null} without running it once the game left the registry, since its
+     * store may already be reusing it for another game
+     */
+    public <T> T read(Function<ConnectFour, T> reader) {
+        lock.lock();
+        try {
+            return released ? null : reader.apply(game);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
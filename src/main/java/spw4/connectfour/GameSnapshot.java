@@ -0,0 +1,210 @@
+package spw4.connectfour;
+
+import java.util.Arrays;
+
+/**
+ * Immutable copy of a game's position, safe to read from any thread without locking.
+ * <p>
+ * The discs are kept as one bitset per player in the layout of the engines, a column taking {@code rows + 1} bits.
+ * Boards fitting into a long, like the standard one, keep both bitsets in fields of the snapshot, so taking one
+ * allocates nothing but the snapshot itself. A snapshot only holds the position, not the moves leading to it.
+ */
+public final class GameSnapshot implements ConnectFourView {
+    private final Rules rules;
+    private final long redDiscs;
+    private final long yellowDiscs;
+    private final long[] redWords;
+    private final long[] yellowWords;
+    private final Player playerOnTurn;
+    private final Player winner;
+    private final boolean gameOver;
+    private final int moveCount;
+    private final long positionKey;
+    private final long version;
+
+    /**
+     * @param redWords    the red discs of boards larger than a long, {@code null} for boards using {@code redDiscs}
+     * @param yellowWords the yellow discs of boards larger than a long, {@code null} for boards using
+     *                    {@code yellowDiscs}
+     */
+    private GameSnapshot(Rules rules, long redDiscs, long yellowDiscs, long[] redWords, long[] yellowWords,
+                         Player playerOnTurn, Player winner, boolean gameOver, int moveCount, long positionKey,
+                         long version) {
+        this.rules = rules;
+        this.redDiscs = redDiscs;
+        this.yellowDiscs = yellowDiscs;
+        this.redWords = redWords;
+        this.yellowWords = yellowWords;
+        this.playerOnTurn = playerOnTurn;
+        this.winner = winner;
+        this.gameOver = gameOver;
+        this.moveCount = moveCount;
+        this.positionKey = positionKey;
+        this.version = version;
+    }
+
+    /**
+     * Copies the position of a game, which must not change meanwhile.
+     */
+    public static GameSnapshot of(ConnectFourView game, long version) {
+        if (game instanceof GameSnapshot snapshot) {
+            return new GameSnapshot(snapshot.rules, snapshot.redDiscs, snapshot.yellowDiscs, snapshot.redWords,
+                    snapshot.yellowWords, snapshot.playerOnTurn, snapshot.winner, snapshot.gameOver,
+                    snapshot.moveCount, snapshot.positionKey, version);
+        }
+
+        Rules rules = game.getRules();
+        long red = 0;
+        long yellow = 0;
+        long[] redWords = null;
+        long[] yellowWords = null;
+        if (game instanceof BitboardConnectFour bitboard) {
+            red = bitboard.getDiscs(Player.red);
+            yellow = bitboard.getDiscs(Player.yellow);
+        } else if (game instanceof SlabGameStore.SlotGame slot) {
+            red = slot.getDiscs(Player.red);
+            yellow = slot.getDiscs(Player.yellow);
+        } else if (game instanceof ConnectFourImpl impl) {
+            if (words(rules) == 1) {
+                red = impl.getDiscs(Player.red, 0);
+                yellow = impl.getDiscs(Player.yellow, 0);
+            } else {
+                redWords = impl.copyDiscs(Player.red);
+                yellowWords = impl.copyDiscs(Player.yellow);
+            }
+        } else {
+            long[] redBits = new long[words(rules)];
+            long[] yellowBits = new long[redBits.length];
+            for (int col = 0; col < rules.cols(); col++) {
+                for (int row = 0; row < rules.rows(); row++) {
+                    int index = bitIndex(rules, row, col);
+                    switch (game.getPlayerAt(row, col)) {
+                        case red -> redBits[index >>> 6] |= 1L << index;
+                        case yellow -> yellowBits[index >>> 6] |= 1L << index;
+                    }
+                }
+            }
+
+            if (redBits.length == 1) {
+                red = redBits[0];
+                yellow = yellowBits[0];
+            } else {
+                redWords = redBits;
+                yellowWords = yellowBits;
+            }
+        }
+
+        return new GameSnapshot(rules, red, yellow, redWords, yellowWords, game.getPlayerOnTurn(), game.getWinner(),
+                game.isGameOver(), game.getMoveCount(), game.positionKey(), version);
+    }
+
+    /**
+     * Returns the version of the game this snapshot was taken at.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public Rules getRules() {
+        return rules;
+    }
+
+    public Player getPlayerAt(int row, int col) {
+        if (row < 0 || row >= rules.rows() || col < 0 || col >= rules.cols()) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        int index = bitIndex(rules, row, col);
+        long bit = 1L << index;
+        if (((redWords == null ? redDiscs : redWords[index >>> 6]) & bit) != 0) {
+            return Player.red;
+        }
+        if (((yellowWords == null ? yellowDiscs : yellowWords[index >>> 6]) & bit) != 0) {
+            return Player.yellow;
+        }
+
+        return Player.none;
+    }
+
+    public Player getPlayerOnTurn() {
+        return playerOnTurn;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public Player getWinner() {
+        return winner;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public boolean isColumnFull(int col) {
+        return getPlayerAt(rules.rows() - 1, col) != Player.none;
+    }
+
+    public int[] legalMoves() {
+        if (gameOver) {
+            return new int[0];
+        }
+
+        int count = 0;
+        int[] moves = new int[rules.cols()];
+        for (int col = 0; col < rules.cols(); col++) {
+            if (!isColumnFull(col)) {
+                moves[count++] = col;
+            }
+        }
+
+        return count == moves.length ? moves : Arrays.copyOf(moves, count);
+    }
+
+    public long positionKey() {
+        return positionKey;
+    }
+
+    /**
+     * Returns the discs of a player on a board fitting into a long.
+     */
+    long getDiscs(Player player) {
+        if (redWords != null) {
+            throw new IllegalStateException("the board does not fit into a long");
+        }
+
+        return player == Player.red ? redDiscs : yellowDiscs;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder output = new StringBuilder().append("Player: %s\n".formatted(playerOnTurn.toString().toUpperCase()));
+
+        for (int row = rules.rows() - 1; row >= 0; row--) {
+            output.append("|");
+            for (int col = 0; col < rules.cols(); col++) {
+                output.append(" ");
+
+                switch (getPlayerAt(row, col)) {
+                    case red -> output.append("R");
+                    case yellow -> output.append("Y");
+                    default -> output.append(".");
+                }
+
+                output.append(" ");
+            }
+            output.append("|\n");
+        }
+
+        return output.toString();
+    }
+
+    private static int words(Rules rules) {
+        return (rules.cols() * (rules.rows() + 1) + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    private static int bitIndex(Rules rules, int row, int col) {
+        return col * (rules.rows() + 1) + row;
+    }
+}
@@ -0,0 +1,125 @@
+package spw4.connectfour;
+
+/**
+ * Outcomes and lengths of many games played by the same rules, as collected by {@link GameArchiveAnalyzer}.
+ * <p>
+ * Games are finished when they were won or the board filled up, unfinished when their moves ran out before, and
+ * illegal when one of their moves could not be played. Win rates and lengths only count finished games.
+ */
+public final class GameStatistics {
+    private static final int FIRST_PLAYER_WON = 0;
+    private static final int SECOND_PLAYER_WON = 1;
+    private static final int DRAWN = 2;
+
+    private final Rules rules;
+    private final long[] wins = new long[Player.values().length];
+    private final long[] outcomesByFirstMove;
+    private final long[] lengths;
+    private long unfinished;
+    private long illegal;
+
+    GameStatistics(Rules rules) {
+        this.rules = rules;
+        outcomesByFirstMove = new long[rules.cols() * 3];
+        lengths = new long[rules.cellCount() + 1];
+    }
+
+    void addFinished(Player firstPlayer, int firstMove, int length, Player winner) {
+        wins[winner.ordinal()]++;
+        lengths[length]++;
+        int outcome = winner == Player.none ? DRAWN : winner == firstPlayer ? FIRST_PLAYER_WON : SECOND_PLAYER_WON;
+        outcomesByFirstMove[firstMove * 3 + outcome]++;
+    }
+
+    void addUnfinished() {
+        unfinished++;
+    }
+
+    void addIllegal() {
+        illegal++;
+    }
+
+    void merge(GameStatistics other) {
+        if (!rules.equals(other.rules)) {
+            throw new IllegalArgumentException("statistics of different rules cannot be merged");
+        }
+
+        add(wins, other.wins);
+        add(outcomesByFirstMove, other.outcomesByFirstMove);
+        add(lengths, other.lengths);
+        unfinished += other.unfinished;
+        illegal += other.illegal;
+    }
+
+    private static void add(long[] counts, long[] other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other[i];
+        }
+    }
+
+    public Rules getRules() {
+        return rules;
+    }
+
+    public long getGames() {
+        return getFinishedGames() + unfinished + illegal;
+    }
+
+    public long getFinishedGames() {
+        long finished = 0;
+        for (long count : wins) {
+            finished += count;
+        }
+
+        return finished;
+    }
+
+    public long getUnfinishedGames() {
+        return unfinished;
+    }
+
+    public long getIllegalGames() {
+        return illegal;
+    }
+
+    /**
+     * Returns the number of finished games the player won, or the number of draws for {@link Player#none}.
+     */
+    public long getWins(Player player) {
+        return wins[player.ordinal()];
+    }
+
+    /**
+     * Returns the number of finished games whose first disc was dropped into the column.
+     */
+    public long getGamesStartingIn(int col) {
+        int index = col * 3;
+        return outcomesByFirstMove[index + FIRST_PLAYER_WON] + outcomesByFirstMove[index + SECOND_PLAYER_WON] + outcomesByFirstMove[index + DRAWN];
+    }
+
+    /**
+     * Returns the share of finished games starting in the column that were won by the player who started them.
+     */
+    public double getFirstPlayerWinRate(int col) {
+        long games = getGamesStartingIn(col);
+        return games == 0 ? 0 : (double) outcomesByFirstMove[col * 3 + FIRST_PLAYER_WON] / games;
+    }
+
+    /**
+     * Returns the number of finished games that took the given number of moves.
+     */
+    public long getGamesOfLength(int moves) {
+        return moves >= 0 && moves < lengths.length ? lengths[moves] : 0;
+    }
+
+    public double getMeanLength() {
+        long games = 0;
+        long moves = 0;
+        for (int length = 0; length < lengths.length; length++) {
+            games += lengths[length];
+            moves += lengths[length] * length;
+        }
+
+        return games == 0 ? 0 : (double) moves / games;
+    }
+}
@@ -0,0 +1,15 @@
+package spw4.connectfour;
+
+/**
+ * Where the state of new games lives. A game handed out by a store belongs to it until it is released.
+ */
+public interface GameStore {
+
+    ConnectFour create(Rules rules, Player playerOnTurn) throws InvalidPlayerException;
+
+    /**
+     * Gives back the storage of a game that is no longer used. The game must not be accessed afterwards.
+     */
+    default void release(ConnectFour game) {
+    }
+}
@@ -0,0 +1,116 @@
+package spw4.connectfour;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded cache of data derived from positions, shared by all games and keyed by {@link ConnectFour#positionKey()}.
+ * <p>
+ * The cache is direct-mapped: a key has exactly one slot and a new entry simply replaces whatever entry shared it,
+ * so lookups never lock and the cache never grows beyond its capacity. Hits and misses are counted, and the memory
+ * held is estimated from the size a weigher reports for each value, which makes {@link #stats()} show whether a
+ * cache is worth its size.
+ */
+public final class PositionCache<V> {
+    private static final long ENTRY_BYTES = 32;
+    private static final long SLOT_BYTES = 4;
+
+    private final AtomicReferenceArray<Entry<V>> entries;
+    private final int mask;
+    private final ToLongFunction<? super V> weigher;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong valueBytes = new AtomicLong();
+
+    /**
+     * @param capacity number of cached positions, rounded up to a power of two
+     * @param weigher  estimated number of bytes a value holds
+     */
+    public PositionCache(int capacity, ToLongFunction<? super V> weigher) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+
+        int slots = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        entries = new AtomicReferenceArray<>(slots);
+        mask = slots - 1;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Returns the value cached for the key, or {@code null} if there is none.
+     */
+    public V get(long key) {
+        Entry<V> entry = entries.get(slot(key));
+        if (entry == null || entry.key != key) {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * Caches the value for the key, replacing the entry in its slot.
+     */
+    public void put(long key, V value) {
+        Entry<V> entry = new Entry<>(key, value, weigher.applyAsLong(value));
+        Entry<V> replaced = entries.getAndSet(slot(key), entry);
+
+        if (replaced == null) {
+            size.incrementAndGet();
+            valueBytes.addAndGet(entry.bytes);
+        } else {
+            valueBytes.addAndGet(entry.bytes - replaced.bytes);
+        }
+    }
+
+    /**
+     * Returns the value cached for the key, computing and caching it if there is none. Concurrent callers may compute
+     * the same value more than once.
+     */
+    public V computeIfAbsent(long key, LongFunction<? extends V> compute) {
+        V value = get(key);
+        if (value == null) {
+            value = compute.apply(key);
+            put(key, value);
+        }
+
+        return value;
+    }
+
+    public int capacity() {
+        return entries.length();
+    }
+
+    public Stats stats() {
+        long bytes = entries.length() * SLOT_BYTES + size.get() * ENTRY_BYTES + valueBytes.get();
+        return new Stats(hits.sum(), misses.sum(), size.get(), entries.length(), bytes);
+    }
+
+    private int slot(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        return (int) (key ^ key >>> 33) & mask;
+    }
+
+    private record Entry<V>(long key, V value, long bytes) {
+    }
+
+    /**
+     * Counters of a cache, {@code bytes} being an estimate of the memory held by its table and entries.
+     */
+    public record Stats(long hits, long misses, int size, int capacity, long bytes) {
+
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+}
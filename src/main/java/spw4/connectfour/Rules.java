@@ -0,0 +1,29 @@
+package spw4.connectfour;
+
+/**
+ * Size of the board and number of discs in a row that win. Boards have at most {@link #MAX_SIZE} rows and columns,
+ * which every game created from decoded, journaled or requested rules relies on.
+ */
+public record Rules(int rows, int cols, int connect) {
+    public static final int MAX_SIZE = 100;
+    public static final Rules STANDARD = new Rules(ConnectFourImpl.BOARD_ROWS, ConnectFourImpl.BOARD_COLS, ConnectFourImpl.WIN_COUNT);
+
+    public Rules {
+        if (rows < 1 || cols < 1) {
+            throw new IllegalArgumentException("board needs at least one row and one column");
+        }
+        if (rows > MAX_SIZE || cols > MAX_SIZE) {
+            throw new IllegalArgumentException("rows and cols must not exceed " + MAX_SIZE);
+        }
+        if (connect < 2 || connect > Long.SIZE || connect > Math.max(rows, cols)) {
+            throw new IllegalArgumentException("connect must be between 2 and %d and fit on the board".formatted(Long.SIZE));
+        }
+    }
+
+    /**
+     * Returns the number of cells, which the size limit keeps far from overflowing.
+     */
+    public int cellCount() {
+        return Math.toIntExact((long) rows * cols);
+    }
+}
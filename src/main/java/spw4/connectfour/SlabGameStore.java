@@ -0,0 +1,340 @@
+package spw4.connectfour;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static spw4.connectfour.BitboardConnectFour.*;
+import static spw4.connectfour.ConnectFourImpl.BOARD_COLS;
+import static spw4.connectfour.ConnectFourImpl.BOARD_ROWS;
+
+/**
+ * Keeps standard games off the heap, each in a fixed-size slot of a direct buffer.
+ * <p>
+ * A slot holds the two bitboards of {@link BitboardConnectFour}, the player on turn, a generation counter, the
+ * position key and the columns played, one byte each, for taking moves back and replaying them.
+ * Games are handed out as small views that only know their slot, so the garbage collector has nothing to trace
+ * for the board itself. Buffers are allocated in chunks as the store fills up. Released slots are chained into a
+ * free list through their own memory and reused before any new slot is taken. Releasing bumps the generation, so a
+ * view that outlived its game fails instead of reading the slot's next game.
+ * <p>
+ * Only the board and its history leave the heap. A game held by a {@link GameRegistry} still costs a handful of
+ * small heap objects beside its slot: the {@link GameSession} with its lock and id, the registry's map entry, the
+ * slot's view and the session's latest {@link GameSnapshot}, which is kept on the heap so that readers never need
+ * the lock. Each game saves the engine object and its move array, but every move still allocates a new snapshot,
+ * and the garbage collector still has to trace every registered game.
+ * <p>
+ * Games with other rules do not fit into a slot and are created on the heap.
+ */
+public class SlabGameStore implements GameStore {
+    private static final int RED_DISCS = 0;
+    private static final int YELLOW_DISCS = 8;
+    private static final int PLAYER_ON_TURN = 16;
+    private static final int GENERATION = 20;
+    private static final int POSITION_KEY = 24;
+    private static final int MOVES = 32;
+    private static final int HISTORY_LENGTH = MOVES + BOARD_ROWS * BOARD_COLS;
+    private static final int REDO_LENGTH = HISTORY_LENGTH + 1;
+    private static final int SLOT_SIZE = 80;
+
+    private static final int NEXT_FREE = RED_DISCS;
+    private static final int NO_SLOT = -1;
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int SLOTS_PER_CHUNK = 1 << CHUNK_SHIFT;
+
+    private static final Player[] PLAYERS = Player.values();
+
+    private final int capacity;
+    private final ByteBuffer[] chunks;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private int unusedSlot;
+    private int freeSlot = NO_SLOT;
+    private int liveSlots;
+
+    public SlabGameStore(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+
+        this.capacity = capacity;
+        chunks = new ByteBuffer[(capacity + SLOTS_PER_CHUNK - 1) >>> CHUNK_SHIFT];
+    }
+
+    @Override
+    public ConnectFour create(Rules rules, Player playerOnTurn) throws InvalidPlayerException {
+        if (!rules.equals(Rules.STANDARD)) {
+            return new ConnectFourImpl(rules, playerOnTurn);
+        }
+        if (playerOnTurn == Player.none) {
+            throw new InvalidPlayerException();
+        }
+
+        lock.lock();
+        try {
+            int slot = allocate();
+            ByteBuffer chunk = chunks[slot >>> CHUNK_SHIFT];
+            int offset = (slot & (SLOTS_PER_CHUNK - 1)) * SLOT_SIZE;
+
+            chunk.putLong(offset + RED_DISCS, 0);
+            chunk.putLong(offset + YELLOW_DISCS, 0);
+            chunk.putInt(offset + PLAYER_ON_TURN, playerOnTurn.ordinal());
+            chunk.putLong(offset + POSITION_KEY, Zobrist.empty(Rules.STANDARD, playerOnTurn));
+            chunk.put(offset + HISTORY_LENGTH, (byte) 0);
+            chunk.put(offset + REDO_LENGTH, (byte) 0);
+
+            return new SlotGame(this, slot, chunk, offset, chunk.getInt(offset + GENERATION));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void release(ConnectFour game) {
+        if (!(game instanceof SlotGame slotGame) || slotGame.store != this) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            slotGame.checkLive();
+
+            ByteBuffer chunk = slotGame.chunk;
+            int offset = slotGame.offset;
+            chunk.putInt(offset + GENERATION, slotGame.generation + 1);
+            chunk.putInt(offset + NEXT_FREE, freeSlot);
+
+            freeSlot = slotGame.slot;
+            liveSlots--;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return liveSlots;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private int allocate() {
+        int slot;
+        if (freeSlot != NO_SLOT) {
+            slot = freeSlot;
+            freeSlot = chunks[slot >>> CHUNK_SHIFT].getInt((slot & (SLOTS_PER_CHUNK - 1)) * SLOT_SIZE + NEXT_FREE);
+        } else if (unusedSlot < capacity) {
+            slot = unusedSlot++;
+            if (chunks[slot >>> CHUNK_SHIFT] == null) {
+                int slots = Math.min(SLOTS_PER_CHUNK, capacity - slot);
+                chunks[slot >>> CHUNK_SHIFT] = ByteBuffer.allocateDirect(slots * SLOT_SIZE).order(ByteOrder.nativeOrder());
+            }
+        } else {
+            throw new IllegalStateException("all %d game slots are in use".formatted(capacity));
+        }
+
+        liveSlots++;
+        return slot;
+    }
+
+    /**
+     * Flyweight game reading and writing its slot directly. Like every engine it must not be used concurrently.
+     */
+    static final class SlotGame implements ConnectFour {
+        private final SlabGameStore store;
+        private final int slot;
+        private final ByteBuffer chunk;
+        private final int offset;
+        private final int generation;
+
+        private SlotGame(SlabGameStore store, int slot, ByteBuffer chunk, int offset, int generation) {
+            this.store = store;
+            this.slot = slot;
+            this.chunk = chunk;
+            this.offset = offset;
+            this.generation = generation;
+        }
+
+        private void checkLive() {
+            if (chunk.getInt(offset + GENERATION) != generation) {
+                throw new IllegalStateException("game was released");
+            }
+        }
+
+        private long redDiscs() {
+            return chunk.getLong(offset + RED_DISCS);
+        }
+
+        private long yellowDiscs() {
+            return chunk.getLong(offset + YELLOW_DISCS);
+        }
+
+        long getDiscs(Player player) {
+            checkLive();
+            return player == Player.red ? redDiscs() : yellowDiscs();
+        }
+
+        private Player playerOnTurn() {
+            return PLAYERS[chunk.getInt(offset + PLAYER_ON_TURN)];
+        }
+
+        public Rules getRules() {
+            return Rules.STANDARD;
+        }
+
+        public Player getPlayerAt(int row, int col) {
+            checkLive();
+            if (row < 0 || row >= BOARD_ROWS || col < 0 || col >= BOARD_COLS) {
+                throw new IndexOutOfBoundsException();
+            }
+
+            long cell = cellMask(row, col);
+            if ((redDiscs() & cell) != 0) {
+                return Player.red;
+            }
+            if ((yellowDiscs() & cell) != 0) {
+                return Player.yellow;
+            }
+
+            return Player.none;
+        }
+
+        public Player getPlayerOnTurn() {
+            checkLive();
+            return playerOnTurn();
+        }
+
+        public boolean isGameOver() {
+            checkLive();
+            return BitboardConnectFour.isGameOver(redDiscs(), yellowDiscs(), playerOnTurn());
+        }
+
+        public Player getWinner() {
+            checkLive();
+            return winner(redDiscs(), yellowDiscs(), playerOnTurn());
+        }
+
+        public int getMoveCount() {
+            checkLive();
+            return Long.bitCount(redDiscs() | yellowDiscs());
+        }
+
+        public boolean isColumnFull(int col) {
+            checkLive();
+            if (col < 0 || col >= BOARD_COLS) {
+                throw new IndexOutOfBoundsException();
+            }
+
+            return ((redDiscs() | yellowDiscs()) & topCellMask(col)) != 0;
+        }
+
+        public int[] legalMoves() {
+            checkLive();
+            return BitboardConnectFour.legalMoves(redDiscs(), yellowDiscs(), playerOnTurn());
+        }
+
+        public long positionKey() {
+            checkLive();
+            return chunk.getLong(offset + POSITION_KEY);
+        }
+
+        public void reset(Player playerOnTurn) {
+            checkLive();
+            chunk.putLong(offset + RED_DISCS, 0);
+            chunk.putLong(offset + YELLOW_DISCS, 0);
+            chunk.putInt(offset + PLAYER_ON_TURN, playerOnTurn.ordinal());
+            chunk.putLong(offset + POSITION_KEY, Zobrist.empty(Rules.STANDARD, playerOnTurn));
+            chunk.put(offset + HISTORY_LENGTH, (byte) 0);
+            chunk.put(offset + REDO_LENGTH, (byte) 0);
+        }
+
+        public void drop(int col) {
+            if (isColumnFull(col)) {
+                throw new IndexOutOfBoundsException();
+            }
+
+            play(col);
+            chunk.put(offset + REDO_LENGTH, chunk.get(offset + HISTORY_LENGTH));
+        }
+
+        public int undo() {
+            checkLive();
+            int historyLength = chunk.get(offset + HISTORY_LENGTH);
+            if (historyLength == 0) {
+                return -1;
+            }
+
+            int col = chunk.get(offset + MOVES + historyLength - 1);
+            long red = redDiscs();
+            long move = topDiscMask(red | yellowDiscs(), col);
+            Player lastPlayer = (red & move) != 0 ? Player.red : Player.yellow;
+            int discs = lastPlayer == Player.red ? RED_DISCS : YELLOW_DISCS;
+
+            chunk.putLong(offset + discs, chunk.getLong(offset + discs) ^ move);
+            chunk.putInt(offset + PLAYER_ON_TURN, lastPlayer.ordinal());
+            chunk.putLong(offset + POSITION_KEY, chunk.getLong(offset + POSITION_KEY) ^ Zobrist.drop(lastPlayer, row(move, col), col));
+            chunk.put(offset + HISTORY_LENGTH, (byte) (historyLength - 1));
+
+            return col;
+        }
+
+        public int redo() {
+            checkLive();
+            int historyLength = chunk.get(offset + HISTORY_LENGTH);
+            if (historyLength == chunk.get(offset + REDO_LENGTH)) {
+                return -1;
+            }
+
+            int col = chunk.get(offset + MOVES + historyLength);
+            play(col);
+            return col;
+        }
+
+        public int[] moves() {
+            checkLive();
+            int[] columns = new int[chunk.get(offset + HISTORY_LENGTH)];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = chunk.get(offset + MOVES + i);
+            }
+
+            return columns;
+        }
+
+        private void play(int col) {
+            long red = redDiscs();
+            long yellow = yellowDiscs();
+            long move = dropMask(red | yellow, col);
+            Player lastPlayer = playerOnTurn();
+
+            switch (lastPlayer) {
+                case red -> {
+                    chunk.putLong(offset + RED_DISCS, red | move);
+                    chunk.putInt(offset + PLAYER_ON_TURN, Player.yellow.ordinal());
+                }
+                case yellow -> {
+                    chunk.putLong(offset + YELLOW_DISCS, yellow | move);
+                    chunk.putInt(offset + PLAYER_ON_TURN, Player.red.ordinal());
+                }
+                default -> throw new InvalidPlayerException();
+            }
+            chunk.putLong(offset + POSITION_KEY, chunk.getLong(offset + POSITION_KEY) ^ Zobrist.drop(lastPlayer, row(move, col), col));
+
+            int historyLength = chunk.get(offset + HISTORY_LENGTH);
+            chunk.put(offset + MOVES + historyLength, (byte) col);
+            chunk.put(offset + HISTORY_LENGTH, (byte) (historyLength + 1));
+        }
+
+        @Override
+        public String toString() {
+            checkLive();
+            return format(redDiscs(), yellowDiscs(), playerOnTurn());
+        }
+    }
+}
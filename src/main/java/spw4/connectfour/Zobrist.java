@@ -0,0 +1,58 @@
+package spw4.connectfour;
+
+/**
+ * Zobrist keys of positions: a random number per disc on a cell and one for yellow being on turn, all XOR-ed.
+ * <p>
+ * The random numbers are not kept in a table but derived from the cell and the player with the SplitMix64 finalizer,
+ * so boards of any size have keys and all engines agree on them. The empty board's key depends on the rules, which
+ * keeps positions of different rules apart. Dropping a disc changes a key by {@link #drop}, so engines maintain their
+ * key incrementally instead of hashing the board.
+ */
+final class Zobrist {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final long YELLOW_ON_TURN = mix(GOLDEN_GAMMA);
+
+    private Zobrist() {
+    }
+
+    /**
+     * Returns the key of the empty board.
+     */
+    static long empty(Rules rules, Player onTurn) {
+        long key = mix(((long) rules.rows() << 42 ^ (long) rules.cols() << 21 ^ rules.connect()) * GOLDEN_GAMMA + 2 * GOLDEN_GAMMA);
+        return onTurn == Player.yellow ? key ^ YELLOW_ON_TURN : key;
+    }
+
+    /**
+     * Returns the change of a key by the player dropping a disc into the cell, which also passes the turn.
+     */
+    static long drop(Player player, int row, int col) {
+        long feature = ((long) col << 32 | row) << 1 | (player == Player.red ? 1 : 0);
+        return mix((feature + 3) * GOLDEN_GAMMA) ^ YELLOW_ON_TURN;
+    }
+
+    /**
+     * Computes the key of a game from its board.
+     */
+    static long of(ConnectFourView game) {
+        Rules rules = game.getRules();
+        long key = empty(rules, game.getPlayerOnTurn());
+        for (int col = 0; col < rules.cols(); col++) {
+            for (int row = 0; row < rules.rows(); row++) {
+                Player player = game.getPlayerAt(row, col);
+                if (player != Player.none) {
+                    // a disc alone does not pass the turn
+                    key ^= drop(player, row, col) ^ YELLOW_ON_TURN;
+                }
+            }
+        }
+
+        return key;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ z >>> 30) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ z >>> 27) * 0x94d049bb133111ebL;
+        return z ^ z >>> 31;
+    }
+}
@@ -0,0 +1,205 @@
+package spw4.connectfour.ai;
+
+import spw4.connectfour.ConnectFourView;
+import spw4.connectfour.Player;
+import spw4.connectfour.Rules;
+
+import java.util.stream.IntStream;
+
+/**
+ * Bitboard geometry of one set of rules, used by the search on positions given as two {@code long}s.
+ * <p>
+ * Like {@link spw4.connectfour.BitboardConnectFour} every column takes {@code rows + 1} bits, bottom row first, and
+ * the extra bit on top stays empty so that lines cannot wrap from one column into the next. A position is the discs
+ * of the player on turn and the mask of all occupied cells, so a move only needs the mask and the side to move is
+ * swapped by {@code current ^ mask}.
+ */
+final class Board {
+    final Rules rules;
+    final int cells;
+    final long bottomMask;
+    final long boardMask;
+    final long[] columnMasks;
+    final int[] moveOrder;
+
+    private final int height;
+    private final int[] directions;
+    private final int[] columnWeights;
+
+    private Board(Rules rules) {
+        this.rules = rules;
+        cells = rules.cellCount();
+        height = rules.rows() + 1;
+
+        long column = (1L << rules.rows()) - 1;
+        columnMasks = new long[rules.cols()];
+        long bottom = 0;
+        long board = 0;
+        for (int col = 0; col < rules.cols(); col++) {
+            columnMasks[col] = column << col * height;
+            bottom |= 1L << col * height;
+            board |= columnMasks[col];
+        }
+        bottomMask = bottom;
+        boardMask = board;
+
+        moveOrder = centerFirst(rules.cols());
+        columnWeights = new int[rules.cols()];
+        for (int col = 0; col < rules.cols(); col++) {
+            columnWeights[col] = rules.cols() - Math.abs(2 * col - (rules.cols() - 1));
+        }
+
+        int span = rules.connect() - 1;
+        directions = IntStream.of(1, height, height - 1, height + 1)
+                .filter(direction -> (long) direction * span < Long.SIZE)
+                .toArray();
+    }
+
+    /**
+     * Returns the geometry of the rules, or {@code null} if their board does not fit into a {@code long}.
+     */
+    static Board of(Rules rules) {
+        return fits(rules) ? new Board(rules) : null;
+    }
+
+    static boolean fits(Rules rules) {
+        return (long) (rules.rows() + 1) * rules.cols() <= Long.SIZE;
+    }
+
+    /**
+     * Returns all columns, those closer to the center first.
+     */
+    static int[] centerFirst(int cols) {
+        int[] order = new int[cols];
+        for (int i = 0; i < cols; i++) {
+            order[i] = cols / 2 + (i % 2 == 0 ? i / 2 : -(i + 1) / 2);
+        }
+
+        return order;
+    }
+
+    int column(long move) {
+        return Long.numberOfTrailingZeros(move) / height;
+    }
+
+    long cellMask(int row, int col) {
+        return 1L << col * height + row;
+    }
+
+    /**
+     * Returns the discs of the player on turn followed by the mask of all occupied cells.
+     */
+    long[] position(ConnectFourView game) {
+        Player onTurn = game.getPlayerOnTurn();
+        long current = 0;
+        long mask = 0;
+        for (int col = 0; col < rules.cols(); col++) {
+            for (int row = 0; row < rules.rows(); row++) {
+                Player player = game.getPlayerAt(row, col);
+                if (player != Player.none) {
+                    mask |= cellMask(row, col);
+                    if (player == onTurn) {
+                        current |= cellMask(row, col);
+                    }
+                }
+            }
+        }
+
+        return new long[]{current, mask};
+    }
+
+    /**
+     * Returns the lowest free cell of every column that is not full.
+     */
+    long possibleMoves(long mask) {
+        return (mask + bottomMask) & boardMask;
+    }
+
+    /**
+     * Returns the moves among {@code possible} that complete a line for the given discs.
+     */
+    long winningMoves(long discs, long possible) {
+        long wins = 0;
+        while (possible != 0) {
+            long move = possible & -possible;
+            if (isWin(discs | move)) {
+                wins |= move;
+            }
+            possible ^= move;
+        }
+
+        return wins;
+    }
+
+    boolean isWin(long discs) {
+        int connect = rules.connect();
+        for (int direction : directions) {
+            long line = discs;
+            for (int i = 1; i < connect && line != 0; i++) {
+                line &= discs >>> direction * i;
+            }
+            if (line != 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Scores a position without searching it: discs near the center are part of more lines.
+     */
+    int evaluate(long current, long mask) {
+        long opponent = current ^ mask;
+        int score = 0;
+        for (int col = 0; col < columnMasks.length; col++) {
+            score += columnWeights[col] * (Long.bitCount(current & columnMasks[col]) - Long.bitCount(opponent & columnMasks[col]));
+        }
+
+        return score;
+    }
+
+    /**
+     * Returns a key that identifies the position among all positions of these rules. Every column of the key holds
+     * the column's discs of the player on turn and a marker bit right above its top disc.
+     */
+    long key(long current, long mask) {
+        return current + mask + bottomMask;
+    }
+
+    /**
+     * Returns the key of the position mirrored left to right.
+     */
+    long mirror(long key) {
+        long mirrored = 0;
+        for (int col = 0; col < columnMasks.length; col++) {
+            long column = (key >>> col * height) & (-1L >>> Long.SIZE - height);
+            mirrored |= column << (columnMasks.length - 1 - col) * height;
+        }
+
+        return mirrored;
+    }
+
+    /**
+     * Returns the smaller of the keys of the position and its mirror image, which play alike.
+     */
+    long canonicalKey(long key) {
+        return Math.min(key, mirror(key));
+    }
+
+    /**
+     * Returns the discs of the player on turn followed by the mask of all occupied cells of a position's key.
+     */
+    long[] position(long key) {
+        long current = 0;
+        long mask = 0;
+        for (int col = 0; col < columnMasks.length; col++) {
+            long column = (key >>> col * height) & (-1L >>> Long.SIZE - height);
+            long marker = Long.highestOneBit(column);
+            mask |= (marker - 1) << col * height;
+            current |= (column ^ marker) << col * height;
+        }
+
+        return new long[]{current, mask};
+    }
+}
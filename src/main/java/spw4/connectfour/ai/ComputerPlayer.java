@@ -0,0 +1,406 @@
+package spw4.connectfour.ai;
+
+import spw4.connectfour.ConnectFourView;
+import spw4.connectfour.Player;
+import spw4.connectfour.Rules;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static spw4.connectfour.ai.TranspositionTable.*;
+
+/**
+ * Plays the side on turn by searching the position with negamax and alpha-beta pruning.
+ * <p>
+ * The search deepens iteratively until its time budget is spent and answers with the best move of the deepest
+ * completed iteration. The first iteration always completes, so there is an answer however short the budget. Moves
+ * are tried center first, after the best move an earlier search stored for the position in the transposition table.
+ * A move that wins at once is played without searching. A move that hands the opponent a win with its next move is
+ * never searched, whether it leaves one of the opponent's threats open or fills the cell right below one.
+ * <p>
+ * Positions are searched as bitboards, so boards that take more than 64 bits with a spare row per column are not
+ * searched at all and the computer just plays the free column closest to the center. Positions found in the
+ * {@link OpeningBook} are answered from the book without searching.
+ * <p>
+ * A player is thread-safe and meant to be shared by all games with its rules, which then share its table. Only a
+ * fixed number of searches run at once. A search that cannot start within half of its budget looks a single move
+ * ahead, so the answer stays in time even when more games are waiting for the computer than there are processors.
+ * <p>
+ * A search may use several threads (lazy SMP): helpers on the common fork-join pool search the same position,
+ * half of them one ply deeper, and share their results through the table, which lets the main search cut off
+ * earlier. Each helper needs a free search slot of its own and is simply skipped when there is none. The answer is
+ * the deepest iteration any of the threads completed, and its node count is the sum over all of them.
+ */
+public class ComputerPlayer {
+    public static final Duration DEFAULT_TIME_BUDGET = Duration.ofMillis(200);
+    public static final int DEFAULT_TABLE_SIZE = 1 << 20;
+    public static final int WIN_SCORE = 1 << 20;
+
+    private static final int INFINITY = WIN_SCORE + 1;
+    private static final int CLOCK_INTERVAL = 1023;
+
+    private final Rules rules;
+    private final Board board;
+    private final TranspositionTable table;
+    private final Semaphore searches;
+    private final OpeningBook book;
+
+    public ComputerPlayer(Rules rules) {
+        this(rules, DEFAULT_TABLE_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param tableSize             number of transposition table entries, rounded up to a power of two
+     * @param maxConcurrentSearches number of searches allowed to run at the same time
+     */
+    public ComputerPlayer(Rules rules, int tableSize, int maxConcurrentSearches) {
+        this(rules, tableSize, maxConcurrentSearches, null);
+    }
+
+    /**
+     * @param book opening book with the same rules answering positions before any search, or {@code null}
+     */
+    public ComputerPlayer(Rules rules, int tableSize, int maxConcurrentSearches, OpeningBook book) {
+        if (maxConcurrentSearches < 1) {
+            throw new IllegalArgumentException("maxConcurrentSearches must be positive");
+        }
+        if (book != null && !book.getRules().equals(rules)) {
+            throw new IllegalArgumentException("opening book has other rules than this player");
+        }
+
+        this.rules = rules;
+        board = Board.of(rules);
+        table = board != null ? new TranspositionTable(tableSize) : null;
+        searches = new Semaphore(maxConcurrentSearches);
+        this.book = book;
+    }
+
+    public Rules getRules() {
+        return rules;
+    }
+
+    public int chooseMove(ConnectFourView game, Duration budget) {
+        return search(game, budget).col();
+    }
+
+    public SearchResult search(ConnectFourView game, Duration budget) {
+        return search(game, budget, 1);
+    }
+
+    /**
+     * Searches the game's position for the player on turn with up to the given number of threads, answering within
+     * the budget.
+     *
+     * @throws IllegalArgumentException if the game has other rules or is over
+     */
+    public SearchResult search(ConnectFourView game, Duration budget, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+
+        long start = System.nanoTime();
+        if (!game.getRules().equals(rules)) {
+            throw new IllegalArgumentException("game has other rules than this player");
+        }
+        if (game.isGameOver() || game.getPlayerOnTurn() == Player.none) {
+            throw new IllegalArgumentException("game has no move to make");
+        }
+
+        if (board == null) {
+            return new SearchResult(centermostFreeColumn(game), 0, 0, 0, Duration.ofNanos(System.nanoTime() - start));
+        }
+
+        long[] position = board.position(game);
+        if (book != null) {
+            SearchResult known = book.probe(position[0], position[1]);
+            if (known != null) {
+                return known;
+            }
+        }
+
+        return search(position[0], position[1], budget, threads, start);
+    }
+
+    SearchResult search(long current, long mask, Duration budget, int threads, long start) {
+        long budgetNanos = Math.max(0, budget.toNanos());
+
+        boolean permitted;
+        try {
+            permitted = searches.tryAcquire(budgetNanos / 2, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            permitted = false;
+        }
+
+        if (!permitted) {
+            return new Search(start + budgetNanos, new AtomicBoolean(), 0).run(current, mask, 1, start);
+        }
+
+        try {
+            return searchInParallel(current, mask, start, start + budgetNanos, threads);
+        } finally {
+            searches.release();
+        }
+    }
+
+    private SearchResult searchInParallel(long current, long mask, long start, long deadline, int threads) {
+        AtomicBoolean stopped = new AtomicBoolean();
+        List<ForkJoinTask<SearchResult>> helpers = new ArrayList<>(threads - 1);
+        for (int helper = 1; helper < threads && searches.tryAcquire(); helper++) {
+            Search search = new Search(deadline, stopped, helper);
+            helpers.add(ForkJoinTask.adapt(() -> {
+                try {
+                    return search.run(current, mask, board.cells, start);
+                } finally {
+                    searches.release();
+                }
+            }).fork());
+        }
+
+        SearchResult best = new Search(deadline, stopped, 0).run(current, mask, board.cells, start);
+        stopped.set(true);
+
+        long nodes = best.nodes();
+        for (ForkJoinTask<SearchResult> helper : helpers) {
+            SearchResult result = helper.join();
+            nodes += result.nodes();
+            if (isBetter(result, best)) {
+                best = result;
+            }
+        }
+
+        return new SearchResult(best.col(), best.score(), best.depth(), nodes, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * A proven outcome beats any estimate, otherwise the deeper search wins.
+     */
+    private static boolean isBetter(SearchResult result, SearchResult best) {
+        boolean proven = result.isWin() || result.isLoss();
+        boolean bestProven = best.isWin() || best.isLoss();
+
+        return proven != bestProven ? proven : result.depth() > best.depth();
+    }
+
+    private static int centermostFreeColumn(ConnectFourView game) {
+        for (int col : Board.centerFirst(game.getRules().cols())) {
+            if (!game.isColumnFull(col)) {
+                return col;
+            }
+        }
+
+        throw new IllegalArgumentException("game has no move to make");
+    }
+
+    private static final class SearchTimeout extends RuntimeException {
+        private static final SearchTimeout INSTANCE = new SearchTimeout();
+
+        private SearchTimeout() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * State of a single search thread. The main search, number {@code 0}, always completes its first iteration,
+     * helpers may stop at any time.
+     */
+    private final class Search {
+        private final long deadline;
+        private final AtomicBoolean stopped;
+        private final int number;
+        private long nodes;
+        private boolean abortable;
+        private int rootCol;
+        private int rootScore;
+
+        private Search(long deadline, AtomicBoolean stopped, int number) {
+            this.deadline = deadline;
+            this.stopped = stopped;
+            this.number = number;
+        }
+
+        private boolean isOver() {
+            return abortable && (stopped.get() || System.nanoTime() - deadline > 0);
+        }
+
+        private SearchResult run(long current, long mask, int maxDepth, long start) {
+            int moves = Long.bitCount(mask);
+            int remaining = Math.min(maxDepth, board.cells - moves);
+
+            int bestCol = NO_MOVE;
+            int bestScore = 0;
+            int completedDepth = 0;
+            for (int depth = 1 + number % 2; depth <= remaining; depth++) {
+                abortable = number > 0 || depth > 1;
+                if (isOver()) {
+                    break;
+                }
+
+                try {
+                    searchRoot(current, mask, moves, depth, bestCol);
+                } catch (SearchTimeout e) {
+                    break;
+                }
+
+                bestCol = rootCol;
+                bestScore = rootScore;
+                completedDepth = depth;
+                if (Math.abs(bestScore) > WIN_SCORE - Long.SIZE) {
+                    break;
+                }
+            }
+
+            if (completedDepth == remaining || Math.abs(bestScore) > WIN_SCORE - Long.SIZE) {
+                stopped.set(true);
+            }
+
+            return new SearchResult(bestCol, bestScore, completedDepth, nodes, Duration.ofNanos(System.nanoTime() - start));
+        }
+
+        private void searchRoot(long current, long mask, int moves, int depth, int firstCol) {
+            long possible = board.possibleMoves(mask);
+            long wins = board.winningMoves(current, possible);
+            if (wins != 0) {
+                rootCol = board.column(wins & -wins);
+                rootScore = WIN_SCORE - (moves + 1);
+                return;
+            }
+
+            long candidates = nonLosingMoves(current, mask, possible);
+            if (candidates == 0) {
+                long threats = board.winningMoves(current ^ mask, possible);
+                long lost = threats != 0 ? threats : possible;
+                rootCol = board.column(lost & -lost);
+                rootScore = -(WIN_SCORE - (moves + 2));
+                return;
+            }
+
+            int alpha = -INFINITY;
+            rootCol = NO_MOVE;
+            for (int i = -1; i < board.moveOrder.length; i++) {
+                int col = i < 0 ? firstCol : board.moveOrder[i];
+                if (col == NO_MOVE || i >= 0 && col == firstCol) {
+                    continue;
+                }
+
+                long move = candidates & board.columnMasks[col];
+                if (move == 0) {
+                    continue;
+                }
+
+                int score = -negamax(current ^ mask, mask | move, moves + 1, depth - 1, -INFINITY, -alpha);
+                if (score > alpha) {
+                    alpha = score;
+                    rootCol = col;
+                }
+            }
+            rootScore = alpha;
+        }
+
+        private int negamax(long current, long mask, int moves, int depth, int alpha, int beta) {
+            if ((++nodes & CLOCK_INTERVAL) == 0 && isOver()) {
+                throw SearchTimeout.INSTANCE;
+            }
+
+            long possible = board.possibleMoves(mask);
+            if (board.winningMoves(current, possible) != 0) {
+                return WIN_SCORE - (moves + 1);
+            }
+            if (moves + 1 >= board.cells) {
+                return 0;
+            }
+
+            long candidates = nonLosingMoves(current, mask, possible);
+            if (candidates == 0) {
+                return -(WIN_SCORE - (moves + 2));
+            }
+            if (depth == 0) {
+                return board.evaluate(current, mask);
+            }
+
+            int max = WIN_SCORE - (moves + 3);
+            if (beta > max) {
+                beta = max;
+                if (alpha >= beta) {
+                    return beta;
+                }
+            }
+
+            long key = board.key(current, mask);
+            long entry = table.probe(key);
+            int tableCol = NO_MOVE;
+            if (entry != MISS) {
+                tableCol = move(entry);
+                if (depth(entry) >= depth) {
+                    int score = score(entry);
+                    switch (bound(entry)) {
+                        case EXACT -> {
+                            return score;
+                        }
+                        case LOWER_BOUND -> alpha = Math.max(alpha, score);
+                        case UPPER_BOUND -> beta = Math.min(beta, score);
+                    }
+                    if (alpha >= beta) {
+                        return score;
+                    }
+                }
+            }
+
+            int originalAlpha = alpha;
+            int bestScore = -INFINITY;
+            int bestCol = NO_MOVE;
+            for (int i = -1; i < board.moveOrder.length; i++) {
+                int col = i < 0 ? tableCol : board.moveOrder[i];
+                if (col == NO_MOVE || i >= 0 && col == tableCol) {
+                    continue;
+                }
+
+                long move = candidates & board.columnMasks[col];
+                if (move == 0) {
+                    continue;
+                }
+
+                int score = -negamax(current ^ mask, mask | move, moves + 1, depth - 1, -beta, -alpha);
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestCol = col;
+                    if (score > alpha) {
+                        alpha = score;
+                        if (alpha >= beta) {
+                            break;
+                        }
+                    }
+                }
+            }
+
+            int bound = bestScore <= originalAlpha ? UPPER_BOUND : bestScore >= beta ? LOWER_BOUND : EXACT;
+            table.store(key, depth, bound, bestScore, bestCol);
+
+            return bestScore;
+        }
+
+        /**
+         * Returns the possible moves that do not let the opponent win with the next move: the single move blocking
+         * the opponent's only threat, none if the opponent has two of them, otherwise all, less those right below a
+         * cell that would complete a line for the opponent.
+         */
+        private long nonLosingMoves(long current, long mask, long possible) {
+            long opponent = current ^ mask;
+            long threats = board.winningMoves(opponent, possible);
+            if (threats != 0) {
+                if ((threats & (threats - 1)) != 0) {
+                    return 0;
+                }
+                possible = threats;
+            }
+
+            long above = (possible << 1) & board.boardMask;
+            return possible & ~(board.winningMoves(opponent, above) >>> 1);
+        }
+    }
+}
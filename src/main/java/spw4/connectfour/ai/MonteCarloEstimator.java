@@ -0,0 +1,297 @@
+package spw4.connectfour.ai;
+
+import spw4.connectfour.ConnectFourView;
+import spw4.connectfour.Player;
+import spw4.connectfour.PositionCache;
+import spw4.connectfour.Rules;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estimates win probabilities by playing random games to the end.
+ * <p>
+ * Playouts run on bitboards with each thread's {@link ThreadLocalRandom} and allocate nothing, so a single core plays
+ * millions of them per second. An estimate is anytime: it plays in batches on the estimator's own fork-join pool
+ * until either its time or its playout budget is spent, so estimates never take threads from the common pool other
+ * searches run on. Tallies are cached per position in a {@link PositionCache}, so asking again for a position
+ * continues from the playouts already made, and a position that already has enough of them is answered at once.
+ * {@link #estimateIfReady} only answers from the cache and leaves missing estimates to the pool, for callers that
+ * must not wait. Tallies are kept from the view of the player on turn, so a position and the one with the colors
+ * swapped share them. Boards that do not fit into a bitboard cannot be estimated.
+ */
+public class MonteCarloEstimator implements AutoCloseable {
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+    public static final int MAX_PENDING_ESTIMATES = 64;
+
+    private static final int BATCH_SIZE = 256;
+    private static final long TALLY_BYTES = 48;
+
+    private final int parallelism;
+    private final PositionCache<Tally> cache;
+    private final ForkJoinPool pool;
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    public MonteCarloEstimator() {
+        this(DEFAULT_CACHE_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param cacheSize   number of cached positions, rounded up to a power of two
+     * @param parallelism number of threads playing out estimates
+     */
+    public MonteCarloEstimator(int cacheSize, int parallelism) {
+        if (cacheSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("cacheSize and parallelism must be positive");
+        }
+
+        this.parallelism = parallelism;
+        cache = new PositionCache<>(cacheSize, tally -> TALLY_BYTES);
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    public PositionCache.Stats cacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Estimates the game's win probabilities with at least {@code playouts} playouts, unless the time budget runs
+     * out first.
+     *
+     * @return the estimate, or {@code null} if the board is too large to be estimated
+     */
+    public WinProbability estimate(ConnectFourView game, long playouts, Duration budget) {
+        Request request = request(game);
+        if (request == null) {
+            return null;
+        }
+
+        Tally tally = request.cached(playouts);
+        if (tally == null) {
+            tally = request.play(playouts, budget);
+        }
+
+        return tally.toProbability(game.getPlayerOnTurn());
+    }
+
+    /**
+     * Returns the estimate if the cache holds at least {@code playouts} playouts of the game's position. Otherwise
+     * starts estimating it in the background, unless {@link #MAX_PENDING_ESTIMATES} estimates are pending already,
+     * and returns {@code null} at once, so asking again later finds the estimate.
+     *
+     * @return the estimate, or {@code null} if it is not ready or the board is too large to be estimated
+     */
+    public WinProbability estimateIfReady(ConnectFourView game, long playouts, Duration budget) {
+        Request request = request(game);
+        if (request == null) {
+            return null;
+        }
+
+        Tally tally = request.cached(playouts);
+        if (tally != null) {
+            return tally.toProbability(game.getPlayerOnTurn());
+        }
+
+        if (pending.size() < MAX_PENDING_ESTIMATES && pending.add(request.cacheKey)) {
+            try {
+                pool.execute(() -> {
+                    try {
+                        request.play(playouts, budget);
+                    } finally {
+                        pending.remove(request.cacheKey);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                pending.remove(request.cacheKey);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns whether games with the given rules fit into a bitboard and can be estimated.
+     */
+    public boolean canEstimate(Rules rules) {
+        return Board.fits(rules);
+    }
+
+    /**
+     * Stops the estimator's threads. Estimates still running are abandoned.
+     */
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Captures the game's position, or returns {@code null} if the board is too large to be estimated.
+     */
+    private Request request(ConnectFourView game) {
+        if (game.isGameOver() || game.getPlayerOnTurn() == Player.none) {
+            throw new IllegalArgumentException("game has no move to make");
+        }
+
+        Board board = Board.of(game.getRules());
+        if (board == null) {
+            return null;
+        }
+
+        long[] position = board.position(game);
+        long key = board.key(position[0], position[1]);
+
+        return new Request(board, game.getRules(), position[0], position[1], key, key ^ mix(game.getRules().hashCode()));
+    }
+
+    private final class Request {
+        private final Board board;
+        private final Rules rules;
+        private final long current;
+        private final long mask;
+        private final long key;
+        private final long cacheKey;
+
+        private Request(Board board, Rules rules, long current, long mask, long key, long cacheKey) {
+            this.board = board;
+            this.rules = rules;
+            this.current = current;
+            this.mask = mask;
+            this.key = key;
+            this.cacheKey = cacheKey;
+        }
+
+        /**
+         * Returns the cached tally of the position if it has at least the given playouts.
+         */
+        private Tally cached(long playouts) {
+            Tally tally = cache.get(cacheKey);
+            return tally != null && tally.matches(key, rules) && tally.playouts() >= playouts ? tally : null;
+        }
+
+        /**
+         * Plays the playouts the cached tally lacks and caches the result.
+         */
+        private Tally play(long playouts, Duration budget) {
+            Tally cached = cache.get(cacheKey);
+            Tally tally = cached != null && cached.matches(key, rules) ? cached : new Tally(key, rules, 0, 0, 0);
+            if (tally.playouts() < playouts) {
+                long deadline = System.nanoTime() + Math.max(0, budget.toNanos());
+                tally = tally.add(MonteCarloEstimator.this.play(board, current, mask, playouts - tally.playouts(), deadline));
+                cache.put(cacheKey, tally);
+            }
+
+            return tally;
+        }
+    }
+
+    private long[] play(Board board, long current, long mask, long playouts, long deadline) {
+        AtomicLong remaining = new AtomicLong(playouts);
+        List<ForkJoinTask<long[]>> workers = new ArrayList<>(parallelism);
+        for (int i = 1; i < parallelism && playouts > (long) i * BATCH_SIZE; i++) {
+            workers.add(pool.submit(() -> playBatches(board, current, mask, remaining, deadline)));
+        }
+
+        long[] outcomes = playBatches(board, current, mask, remaining, deadline);
+        for (ForkJoinTask<long[]> worker : workers) {
+            long[] counted = worker.join();
+            for (int i = 0; i < outcomes.length; i++) {
+                outcomes[i] += counted[i];
+            }
+        }
+
+        return outcomes;
+    }
+
+    /**
+     * Plays batches until no playouts remain or the deadline passed, always at least one batch.
+     *
+     * @return the wins of the player on turn, of the opponent and the draws
+     */
+    private static long[] playBatches(Board board, long current, long mask, AtomicLong remaining, long deadline) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] outcomes = new long[3];
+
+        do {
+            long batch = Math.min(BATCH_SIZE, remaining.getAndAdd(-BATCH_SIZE));
+            if (batch <= 0) {
+                break;
+            }
+            for (long i = 0; i < batch; i++) {
+                outcomes[playout(board, current, mask, random)]++;
+            }
+        } while (System.nanoTime() - deadline < 0);
+
+        return outcomes;
+    }
+
+    /**
+     * Plays uniformly random moves to the end of the game.
+     *
+     * @return {@code 0} if the player on turn won, {@code 1} if the opponent won, {@code 2} for a draw
+     */
+    static int playout(Board board, long current, long mask, ThreadLocalRandom random) {
+        int mover = 0;
+        while (true) {
+            long possible = board.possibleMoves(mask);
+            if (possible == 0) {
+                return 2;
+            }
+
+            for (int skip = random.nextInt(Long.bitCount(possible)); skip > 0; skip--) {
+                possible &= possible - 1;
+            }
+            long move = possible & -possible;
+
+            current |= move;
+            if (board.isWin(current)) {
+                return mover;
+            }
+
+            mask |= move;
+            current ^= mask;
+            mover ^= 1;
+        }
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        return key ^ key >>> 33;
+    }
+
+    /**
+     * Outcomes of all playouts made from one position, seen from the player on turn.
+     */
+    private record Tally(long key, Rules rules, long wins, long losses, long draws) {
+
+        private boolean matches(long key, Rules rules) {
+            return this.key == key && this.rules.equals(rules);
+        }
+
+        private long playouts() {
+            return wins + losses + draws;
+        }
+
+        private Tally add(long[] outcomes) {
+            return new Tally(key, rules, wins + outcomes[0], losses + outcomes[1], draws + outcomes[2]);
+        }
+
+        private WinProbability toProbability(Player onTurn) {
+            long playouts = playouts();
+            double win = playouts == 0 ? 0 : (double) wins / playouts;
+            double loss = playouts == 0 ? 0 : (double) losses / playouts;
+
+            return onTurn == Player.red
+                    ? new WinProbability(win, loss, playouts)
+                    : new WinProbability(loss, win, playouts);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package spw4.connectfour.ai;
+
+import spw4.connectfour.ConnectFourView;
+import spw4.connectfour.Player;
+import spw4.connectfour.Rules;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+/**
+ * Precomputed best moves of early positions, read straight from a memory-mapped file.
+ * <p>
+ * The file is {@code magic:int, version:byte, rows:byte, cols:byte, connect:byte, maxPly:byte, 3 unused bytes,
+ * count:int} followed by {@code count} entries of {@code key:long, score:int, col:byte, depth:byte, 2 unused bytes}
+ * in ascending key order, all little-endian. A key is the bitboard key of the position or of its mirror image,
+ * whichever is smaller, and the column belongs to that orientation, so mirrored positions share an entry. Opening a
+ * book only maps the file and a lookup is a binary search over the mapping, so nothing is loaded onto the heap.
+ * Books are written by {@link OpeningBookGenerator}.
+ */
+public final class OpeningBook {
+    static final int MAGIC = 0x424F3443;
+    static final byte VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int ENTRY_SIZE = 16;
+
+    private final Rules rules;
+    private final Board board;
+    private final int maxPly;
+    private final int count;
+    private final ByteBuffer entries;
+
+    private OpeningBook(Rules rules, int maxPly, int count, ByteBuffer entries) {
+        this.rules = rules;
+        this.maxPly = maxPly;
+        this.count = count;
+        this.entries = entries;
+        board = Board.of(rules);
+    }
+
+    /**
+     * @throws IOException if the file cannot be read or is no opening book
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        ByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("opening book is larger than 2 GiB");
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        if (mapped.capacity() < HEADER_SIZE || mapped.getInt(0) != MAGIC) {
+            throw new IOException("not an opening book");
+        }
+        if (mapped.get(4) != VERSION) {
+            throw new IOException("unsupported opening book version " + mapped.get(4));
+        }
+
+        Rules rules;
+        try {
+            rules = new Rules(mapped.get(5) & 0xFF, mapped.get(6) & 0xFF, mapped.get(7) & 0xFF);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("opening book has invalid rules", e);
+        }
+        if (Board.of(rules) == null) {
+            throw new IOException("opening book board is too large");
+        }
+
+        int count = mapped.getInt(12);
+        if (count < 0 || (long) count * ENTRY_SIZE != mapped.capacity() - HEADER_SIZE) {
+            throw new IOException("opening book is truncated");
+        }
+
+        return new OpeningBook(rules, mapped.get(8) & 0xFF, count, mapped.slice(HEADER_SIZE, count * ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    public Rules getRules() {
+        return rules;
+    }
+
+    /**
+     * Returns the number of moves up to which the book holds every position.
+     */
+    public int getMaxPly() {
+        return maxPly;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the book's move for the player on turn, or {@code null} if the position is not in the book.
+     */
+    public SearchResult probe(ConnectFourView game) {
+        if (!game.getRules().equals(rules) || game.isGameOver() || game.getPlayerOnTurn() == Player.none) {
+            return null;
+        }
+
+        long[] position = board.position(game);
+        return probe(position[0], position[1]);
+    }
+
+    SearchResult probe(long current, long mask) {
+        if (Long.bitCount(mask) > maxPly) {
+            return null;
+        }
+
+        long key = board.key(current, mask);
+        long canonical = board.canonicalKey(key);
+
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int offset = middle * ENTRY_SIZE;
+            long entry = entries.getLong(offset);
+            if (entry < canonical) {
+                low = middle + 1;
+            } else if (entry > canonical) {
+                high = middle - 1;
+            } else {
+                int col = entries.get(offset + 12);
+                return new SearchResult(
+                        canonical == key ? col : rules.cols() - 1 - col,
+                        entries.getInt(offset + 8),
+                        entries.get(offset + 13) & 0xFF,
+                        0,
+                        Duration.ZERO);
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,167 @@
+package spw4.connectfour.ai;
+
+import spw4.connectfour.Rules;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Writes an {@link OpeningBook} by searching every position up to a number of moves.
+ * <p>
+ * Positions are enumerated ply by ply, keeping only one of each mirrored pair and none in which the game is over.
+ * Every position is searched with the given budget, in parallel on the given number of threads, all sharing one
+ * transposition table. Run it as
+ * {@code java spw4.connectfour.ai.OpeningBookGenerator <file> <maxPly> <budgetMillis> [threads] [rows cols connect]}.
+ */
+public class OpeningBookGenerator {
+    private final Rules rules;
+    private final Board board;
+    private final int maxPly;
+    private final Duration budget;
+    private final int threads;
+
+    /**
+     * @throws IllegalArgumentException if the board does not fit into a bitboard or the book would need more than
+     *                                  255 moves
+     */
+    public OpeningBookGenerator(Rules rules, int maxPly, Duration budget, int threads) {
+        board = Board.of(rules);
+        if (board == null) {
+            throw new IllegalArgumentException("board is too large for an opening book");
+        }
+        if (maxPly < 0 || maxPly > 0xFF) {
+            throw new IllegalArgumentException("maxPly must be between 0 and 255");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+
+        this.rules = rules;
+        this.maxPly = maxPly;
+        this.budget = budget;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3 && args.length != 4 && args.length != 7) {
+            System.err.println("usage: OpeningBookGenerator <file> <maxPly> <budgetMillis> [threads] [rows cols connect]");
+            System.exit(2);
+        }
+
+        Rules rules = args.length == 7
+                ? new Rules(Integer.parseInt(args[4]), Integer.parseInt(args[5]), Integer.parseInt(args[6]))
+                : Rules.STANDARD;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        OpeningBookGenerator generator = new OpeningBookGenerator(rules, Integer.parseInt(args[1]), Duration.ofMillis(Long.parseLong(args[2])), threads);
+        long start = System.nanoTime();
+        int count = generator.generate(Path.of(args[0]));
+        System.out.printf("wrote %d positions in %d s%n", count, Duration.ofNanos(System.nanoTime() - start).toSeconds());
+    }
+
+    /**
+     * Searches all positions and writes the book to the file, replacing it.
+     *
+     * @return the number of positions written
+     */
+    public int generate(Path file) throws IOException {
+        long[] keys = positions();
+        // the pool already bounds the number of searches, none of them should fall back to a shallow one
+        ComputerPlayer computer = new ComputerPlayer(rules, ComputerPlayer.DEFAULT_TABLE_SIZE * 4, Integer.MAX_VALUE);
+
+        ByteBuffer entries = ByteBuffer.allocate(keys.length * OpeningBook.ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(() -> IntStream.range(0, keys.length).parallel().forEach(index -> {
+                long[] position = board.position(keys[index]);
+                SearchResult result = computer.search(position[0], position[1], budget, 1, System.nanoTime());
+
+                int offset = index * OpeningBook.ENTRY_SIZE;
+                entries.putLong(offset, keys[index]);
+                entries.putInt(offset + 8, result.score());
+                entries.put(offset + 12, (byte) result.col());
+                entries.put(offset + 13, (byte) Math.min(result.depth(), 0xFF));
+            })).join();
+        } finally {
+            pool.shutdown();
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(OpeningBook.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(OpeningBook.MAGIC)
+                .put(OpeningBook.VERSION)
+                .put((byte) rules.rows())
+                .put((byte) rules.cols())
+                .put((byte) rules.connect())
+                .put((byte) maxPly)
+                .put(new byte[3])
+                .putInt(keys.length);
+
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            out.write(header.array());
+            out.write(entries.array());
+        }
+
+        return keys.length;
+    }
+
+    /**
+     * Returns the canonical keys of all positions with at most {@code maxPly} moves in which the game goes on,
+     * sorted ascending.
+     */
+    long[] positions() {
+        long[] level = {board.key(0, 0)};
+        long[] all = level.clone();
+
+        for (int ply = 1; ply <= maxPly; ply++) {
+            long[] next = new long[level.length * rules.cols()];
+            int count = 0;
+            for (long key : level) {
+                long[] position = board.position(key);
+                long current = position[0];
+                long mask = position[1];
+                long possible = board.possibleMoves(mask);
+                while (possible != 0) {
+                    long move = possible & -possible;
+                    possible ^= move;
+
+                    if (!board.isWin(current | move) && Long.bitCount(mask | move) < board.cells) {
+                        next[count++] = board.canonicalKey(board.key(current ^ mask, mask | move));
+                    }
+                }
+            }
+
+            level = unique(next, count);
+            all = merge(all, level);
+        }
+
+        return all;
+    }
+
+    private static long[] unique(long[] keys, int count) {
+        Arrays.sort(keys, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || keys[unique - 1] != keys[i]) {
+                keys[unique++] = keys[i];
+            }
+        }
+
+        return Arrays.copyOf(keys, unique);
+    }
+
+    private static long[] merge(long[] first, long[] second) {
+        long[] merged = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, merged, first.length, second.length);
+
+        return unique(merged, merged.length);
+    }
+}
@@ -0,0 +1,25 @@
+package spw4.connectfour.ai;
+
+import java.time.Duration;
+
+/**
+ * The column a search chose, its score from the view of the player on turn, the depth of the deepest completed
+ * iteration, the number of positions searched and the time it took.
+ * <p>
+ * Scores beyond {@code ±(}{@link ComputerPlayer#WIN_SCORE}{@code  - 64)} are proven: the player on turn can force
+ * a win, or the opponent can, the closer to {@code WIN_SCORE} the sooner. Other scores are estimates.
+ */
+public record SearchResult(int col, int score, int depth, long nodes, Duration elapsed) {
+
+    public long nodesPerSecond() {
+        return elapsed.isZero() ? 0 : (long) (nodes / (elapsed.toNanos() / 1e9));
+    }
+
+    public boolean isWin() {
+        return score > ComputerPlayer.WIN_SCORE - Long.SIZE;
+    }
+
+    public boolean isLoss() {
+        return score < -(ComputerPlayer.WIN_SCORE - Long.SIZE);
+    }
+}
@@ -0,0 +1,90 @@
+package spw4.connectfour.ai;
+
+/**
+ * Fixed-size hash table of search results that any number of searches share without locking.
+ * <p>
+ * An entry is two plain {@code long}s, the packed result and the position key xor-ed with it. Concurrent stores may
+ * interleave or tear an entry, but then the key no longer matches its data and the entry reads as a miss, so a probe
+ * never returns another position's result. Every store simply replaces the slot's previous entry.
+ */
+final class TranspositionTable {
+    static final int EXACT = 0;
+    static final int LOWER_BOUND = 1;
+    static final int UPPER_BOUND = 2;
+
+    static final long MISS = 0;
+    static final int NO_MOVE = -1;
+
+    private static final long VALID = 1L << 63;
+    private static final int DEPTH_SHIFT = 32;
+    private static final int BOUND_SHIFT = 40;
+    private static final int MOVE_SHIFT = 42;
+
+    private final long[] checks;
+    private final long[] entries;
+    private final int indexMask;
+
+    /**
+     * @param size number of entries, rounded up to a power of two
+     */
+    TranspositionTable(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+
+        int slots = size == 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+        checks = new long[slots];
+        entries = new long[slots];
+        indexMask = slots - 1;
+    }
+
+    int size() {
+        return entries.length;
+    }
+
+    /**
+     * Returns the entry stored for the key, or {@link #MISS}.
+     */
+    long probe(long key) {
+        int index = index(key);
+        long entry = entries[index];
+
+        return (checks[index] ^ entry) == key && entry != MISS ? entry : MISS;
+    }
+
+    void store(long key, int depth, int bound, int score, int move) {
+        long entry = VALID
+                | (score & 0xFFFF_FFFFL)
+                | (long) depth << DEPTH_SHIFT
+                | (long) bound << BOUND_SHIFT
+                | (long) (move + 1) << MOVE_SHIFT;
+        int index = index(key);
+
+        entries[index] = entry;
+        checks[index] = key ^ entry;
+    }
+
+    static int score(long entry) {
+        return (int) entry;
+    }
+
+    static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & 0b11;
+    }
+
+    static int move(long entry) {
+        return ((int) (entry >>> MOVE_SHIFT) & 0xFF) - 1;
+    }
+
+    private int index(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+
+        return (int) key & indexMask;
+    }
+}
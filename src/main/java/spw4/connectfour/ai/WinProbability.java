@@ -0,0 +1,11 @@
+package spw4.connectfour.ai;
+
+/**
+ * Share of random playouts won by each player, the rest were drawn.
+ */
+public record WinProbability(double red, double yellow, long playouts) {
+
+    public double draw() {
+        return Math.max(0, 1 - red - yellow);
+    }
+}
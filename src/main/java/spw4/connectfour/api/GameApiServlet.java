@@ -0,0 +1,86 @@
+package spw4.connectfour.api;
+
+import spw4.connectfour.GameServer;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Machine interface to the games: runs a {@link GameBatch} posted as JSON or, with content type
+ * {@code application/octet-stream}, in its binary form.
+ */
+@WebServlet(urlPatterns = "/api/games")
+public class GameApiServlet extends HttpServlet {
+    private static final String BINARY = "application/octet-stream";
+    private static final int MAX_REQUEST_SIZE = 4 << 20;
+
+    private GameBatch batch;
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+
+        try {
+            batch = new GameBatch(GameServer.of(getServletContext()).getRegistry());
+        } catch (IOException e) {
+            throw new ServletException("cannot start the game server", e);
+        }
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (request.getContentLengthLong() > MAX_REQUEST_SIZE) {
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            return;
+        }
+
+        byte[] body = request.getInputStream().readNBytes(MAX_REQUEST_SIZE + 1);
+        if (body.length > MAX_REQUEST_SIZE) {
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            return;
+        }
+
+        String contentType = request.getContentType();
+        if (contentType != null && contentType.startsWith(BINARY)) {
+            executeBinary(body, response);
+        } else {
+            executeJson(body, response);
+        }
+    }
+
+    private void executeJson(byte[] body, HttpServletResponse response) throws IOException {
+        String result;
+        try {
+            result = batch.executeJson(new String(body, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            StringBuilder error = new StringBuilder("{\"error\":");
+            Json.appendString(error, String.valueOf(e.getMessage()));
+            result = error.append('}').toString();
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        }
+
+        byte[] encoded = result.getBytes(StandardCharsets.UTF_8);
+        response.setContentType("application/json;charset=UTF-8");
+        response.setContentLength(encoded.length);
+        response.getOutputStream().write(encoded);
+    }
+
+    private void executeBinary(byte[] body, HttpServletResponse response) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream(body.length * 4);
+        try {
+            batch.executeBinary(new DataInputStream(new ByteArrayInputStream(body)), new DataOutputStream(result));
+        } catch (IOException | IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        response.setContentType(BINARY);
+        response.setContentLength(result.size());
+        result.writeTo(response.getOutputStream());
+    }
+}
@@ -0,0 +1,336 @@
+package spw4.connectfour.api;
+
+import spw4.connectfour.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Runs a batch of game operations and reports a result for each of them.
+ * <p>
+ * A JSON batch is an array of operations, each an object with an {@code op} of {@code create} (optional
+ * {@code rows}, {@code cols}, {@code connect}, {@code player}), {@code drop} ({@code id}, {@code col}) or
+ * {@code get} ({@code id}). The result is an array with one {@code {"ok": true, "game": ...}} or
+ * {@code {"ok": false, "error": ...}} per operation, in order. A failing operation does not stop the batch.
+ * Every operation is read before the first one runs: a binary batch that cannot be read is rejected as a whole
+ * without changing any game, a JSON operation that cannot be read reports an error in its place.
+ * <p>
+ * A binary batch is {@code count:int} operations of {@code type:byte} followed by
+ * {@code rows:byte, cols:byte, connect:byte, player:byte} for {@link #CREATE}, {@code id:16 bytes, col:short} for
+ * {@link #DROP} and {@code id:16 bytes} for {@link #GET}. The result is {@code count:int} followed by a
+ * {@code status:byte} per operation and, if it is {@link #OK}, the game as {@code id:16 bytes, version:long,
+ * state:byte, board}. The state holds the winner's ordinal in bits 0-1 and the game over flag in bit 2. A standard
+ * board with a player on turn is {@code 0:byte, position:long} as encoded by {@link GameCodec#encodePosition}, any
+ * other board is {@code 1:byte, rows:byte, cols:byte, connect:byte, player:byte} followed by the player ordinals
+ * of all cells, row by row, packed four to a byte.
+ */
+public class GameBatch {
+    public static final int MAX_OPERATIONS = 10_000;
+
+    public static final byte CREATE = 1;
+    public static final byte DROP = 2;
+    public static final byte GET = 3;
+
+    public static final byte OK = 0;
+    public static final byte UNKNOWN_GAME = 1;
+    public static final byte ILLEGAL_MOVE = 2;
+    public static final byte INVALID_OPERATION = 3;
+
+    private static final byte POSITION_BOARD = 0;
+    private static final byte CELL_BOARD = 1;
+
+    private static final Player[] PLAYERS = Player.values();
+
+    private final GameRegistry registry;
+
+    public GameBatch(GameRegistry registry) {
+        this.registry = registry;
+    }
+
+    private interface Operation {
+    }
+
+    private record Create(Rules rules, Player player) implements Operation {
+    }
+
+    private record Drop(UUID id, int col) implements Operation {
+    }
+
+    private record Get(UUID id) implements Operation {
+    }
+
+    /**
+     * An operation that was read but cannot run, reported in its place.
+     */
+    private record Invalid(String error) implements Operation {
+    }
+
+    /**
+     * The game an operation ended with, or why it failed.
+     */
+    private record Result(GameSession session, byte status, String error) {
+        static final Result UNKNOWN = new Result(null, UNKNOWN_GAME, "unknown game");
+        static final Result ILLEGAL = new Result(null, ILLEGAL_MOVE, "illegal move");
+        static final Result INVALID_PLAYER = new Result(null, INVALID_OPERATION, "invalid player");
+    }
+
+    /**
+     * Reads every operation before running the first one, so a malformed request changes nothing.
+     *
+     * @throws IllegalArgumentException if the request is no JSON array of at most {@link #MAX_OPERATIONS} entries
+     */
+    public String executeJson(String request) {
+        if (!(Json.parse(request) instanceof List<?> entries)) {
+            throw new IllegalArgumentException("request must be an array of operations");
+        }
+        checkOperationCount(entries.size());
+
+        List<Operation> operations = new ArrayList<>(entries.size());
+        for (Object entry : entries) {
+            operations.add(readJson(entry));
+        }
+
+        StringBuilder out = new StringBuilder(operations.size() * 128);
+        out.append('[');
+        for (int i = 0; i < operations.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+
+            Result result = execute(operations.get(i));
+            if (result.session() != null) {
+                appendGame(out, result.session());
+            } else {
+                appendError(out, result.error());
+            }
+        }
+        out.append(']');
+
+        return out.toString();
+    }
+
+    /**
+     * Reads every operation before running the first one, so a malformed request changes nothing.
+     *
+     * @throws IOException if the request is truncated, holds an unknown operation type or too many operations
+     */
+    public void executeBinary(DataInput in, DataOutput out) throws IOException {
+        int count = in.readInt();
+        checkOperationCount(count);
+
+        List<Operation> operations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            operations.add(readBinary(in));
+        }
+
+        out.writeInt(count);
+        for (Operation operation : operations) {
+            Result result = execute(operation);
+            if (result.session() != null) {
+                writeGame(out, result.session());
+            } else {
+                out.writeByte(result.status());
+            }
+        }
+    }
+
+    private static Operation readJson(Object entry) {
+        try {
+            if (!(entry instanceof Map<?, ?> fields)) {
+                throw new IllegalArgumentException("operation must be an object");
+            }
+
+            return switch (stringField(fields, "op")) {
+                case "create" -> new Create(readRules(fields), readPlayer(fields));
+                case "drop" -> new Drop(readId(fields), intField(fields, "col", -1));
+                case "get" -> new Get(readId(fields));
+                default -> throw new IllegalArgumentException("unknown operation");
+            };
+        } catch (InvalidPlayerException e) {
+            return new Invalid(Result.INVALID_PLAYER.error());
+        } catch (IllegalArgumentException e) {
+            return new Invalid(e.getMessage());
+        }
+    }
+
+    private static Operation readBinary(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case CREATE -> {
+                int rows = in.readUnsignedByte();
+                int cols = in.readUnsignedByte();
+                int connect = in.readUnsignedByte();
+                int player = in.readUnsignedByte();
+                try {
+                    Rules rules = new Rules(rows, cols, connect);
+                    return player < PLAYERS.length ? new Create(rules, PLAYERS[player]) : new Invalid("invalid player");
+                } catch (IllegalArgumentException e) {
+                    return new Invalid(e.getMessage());
+                }
+            }
+            case DROP -> {
+                UUID id = new UUID(in.readLong(), in.readLong());
+                return new Drop(id, in.readShort());
+            }
+            case GET -> {
+                return new Get(new UUID(in.readLong(), in.readLong()));
+            }
+            default -> throw new IOException("unknown operation type " + type);
+        }
+    }
+
+    private Result execute(Operation operation) {
+        try {
+            if (operation instanceof Create create) {
+                return found(registry.create(create.rules(), create.player()));
+            }
+            if (operation instanceof Invalid invalid) {
+                return new Result(null, INVALID_OPERATION, invalid.error());
+            }
+
+            UUID id = operation instanceof Drop drop ? drop.id() : ((Get) operation).id();
+            GameSession session = registry.get(id);
+            if (session == null) {
+                return Result.UNKNOWN;
+            }
+            if (operation instanceof Drop drop && !session.drop(drop.col())) {
+                return Result.ILLEGAL;
+            }
+
+            return found(session);
+        } catch (IndexOutOfBoundsException e) {
+            return Result.ILLEGAL;
+        } catch (InvalidPlayerException e) {
+            return Result.INVALID_PLAYER;
+        }
+    }
+
+    private static Result found(GameSession session) {
+        return new Result(session, OK, null);
+    }
+
+    private static void checkOperationCount(int count) {
+        if (count < 0 || count > MAX_OPERATIONS) {
+            throw new IllegalArgumentException("a batch holds at most %d operations".formatted(MAX_OPERATIONS));
+        }
+    }
+
+    private static void appendGame(StringBuilder out, GameSession session) {
+        GameSnapshot game = session.getSnapshot();
+        Rules rules = game.getRules();
+
+        out.append("{\"ok\":true,\"game\":{\"id\":\"").append(session.getId())
+                .append("\",\"version\":").append(game.getVersion())
+                .append(",\"rows\":").append(rules.rows())
+                .append(",\"cols\":").append(rules.cols())
+                .append(",\"connect\":").append(rules.connect())
+                .append(",\"player\":\"").append(game.getPlayerOnTurn())
+                .append("\",\"winner\":\"").append(game.getWinner())
+                .append("\",\"over\":").append(game.isGameOver())
+                .append(",\"moves\":").append(game.getMoveCount())
+                .append(",\"board\":\"");
+        for (int row = 0; row < rules.rows(); row++) {
+            for (int col = 0; col < rules.cols(); col++) {
+                out.append(switch (game.getPlayerAt(row, col)) {
+                    case red -> 'r';
+                    case yellow -> 'y';
+                    default -> '.';
+                });
+            }
+        }
+        out.append("\"}}");
+    }
+
+    private static void appendError(StringBuilder out, String message) {
+        out.append("{\"ok\":false,\"error\":");
+        Json.appendString(out, message != null ? message : "invalid operation");
+        out.append('}');
+    }
+
+    private static void writeGame(DataOutput out, GameSession session) throws IOException {
+        GameSnapshot game = session.getSnapshot();
+        Rules rules = game.getRules();
+
+        out.writeByte(OK);
+        out.writeLong(session.getId().getMostSignificantBits());
+        out.writeLong(session.getId().getLeastSignificantBits());
+        out.writeLong(game.getVersion());
+        out.writeByte(game.getWinner().ordinal() | (game.isGameOver() ? 0b100 : 0));
+
+        if (rules.equals(Rules.STANDARD) && game.getPlayerOnTurn() != Player.none) {
+            out.writeByte(POSITION_BOARD);
+            out.writeLong(GameCodec.encodePosition(game));
+            return;
+        }
+
+        out.writeByte(CELL_BOARD);
+        out.writeByte(rules.rows());
+        out.writeByte(rules.cols());
+        out.writeByte(rules.connect());
+        out.writeByte(game.getPlayerOnTurn().ordinal());
+
+        int packed = 0;
+        int cell = 0;
+        for (int row = 0; row < rules.rows(); row++) {
+            for (int col = 0; col < rules.cols(); col++) {
+                packed |= game.getPlayerAt(row, col).ordinal() << 2 * (cell++ & 3);
+                if ((cell & 3) == 0) {
+                    out.writeByte(packed);
+                    packed = 0;
+                }
+            }
+        }
+        if ((cell & 3) != 0) {
+            out.writeByte(packed);
+        }
+    }
+
+    private static Rules readRules(Map<?, ?> fields) {
+        return new Rules(
+                intField(fields, "rows", Rules.STANDARD.rows()),
+                intField(fields, "cols", Rules.STANDARD.cols()),
+                intField(fields, "connect", Rules.STANDARD.connect()));
+    }
+
+    private static Player readPlayer(Map<?, ?> fields) {
+        Object player = fields.get("player");
+        if (player == null) {
+            return Player.red;
+        }
+
+        try {
+            return Player.valueOf(String.valueOf(player));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPlayerException();
+        }
+    }
+
+    private static UUID readId(Map<?, ?> fields) {
+        return UUID.fromString(stringField(fields, "id"));
+    }
+
+    private static String stringField(Map<?, ?> fields, String name) {
+        if (!(fields.get(name) instanceof String value)) {
+            throw new IllegalArgumentException("missing string field " + name);
+        }
+
+        return value;
+    }
+
+    private static int intField(Map<?, ?> fields, String name, int defaultValue) {
+        Object value = fields.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (!(value instanceof Long number) || number != number.intValue()) {
+            throw new IllegalArgumentException("field " + name + " must be an integer");
+        }
+
+        return number.intValue();
+    }
+}
@@ -0,0 +1,60 @@
+package spw4.connectfour.api;
+
+import spw4.connectfour.GameServer;
+import spw4.connectfour.PositionCache;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Reports the number of live games and the hit rates and memory use of the position caches as JSON.
+ */
+@WebServlet(urlPatterns = "/api/stats")
+public class GameStatsServlet extends HttpServlet {
+    private GameServer server;
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+
+        try {
+            server = GameServer.of(getServletContext());
+        } catch (IOException e) {
+            throw new ServletException("cannot start the game server", e);
+        }
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        byte[] encoded = toJson(server.getRegistry().size(), server.getPositionCacheStats()).getBytes(StandardCharsets.UTF_8);
+        response.setContentType("application/json;charset=UTF-8");
+        response.setContentLength(encoded.length);
+        response.getOutputStream().write(encoded);
+    }
+
+    static String toJson(int games, Map<String, PositionCache.Stats> caches) {
+        StringBuilder out = new StringBuilder("{\"games\":").append(games).append(",\"positionCaches\":{");
+        String separator = "";
+        for (Map.Entry<String, PositionCache.Stats> cache : caches.entrySet()) {
+            PositionCache.Stats stats = cache.getValue();
+            out.append(separator);
+            Json.appendString(out, cache.getKey());
+            out.append(":{\"hits\":").append(stats.hits())
+                    .append(",\"misses\":").append(stats.misses())
+                    .append(",\"hitRate\":").append(stats.hitRate())
+                    .append(",\"size\":").append(stats.size())
+                    .append(",\"capacity\":").append(stats.capacity())
+                    .append(",\"bytes\":").append(stats.bytes())
+                    .append('}');
+            separator = ",";
+        }
+
+        return out.append("}}").toString();
+    }
+}
@@ -0,0 +1,36 @@
+package spw4.connectfour.events;
+
+import java.io.IOException;
+
+/**
+ * Connection of one client watching a game.
+ * <p>
+ * Sinks never block: events are only sent while the sink is ready, and a sink that stopped being ready calls the
+ * listener given to {@link #whenReady} once it can take events again.
+ */
+public interface EventSink {
+
+    /**
+     * Sets what to call when the sink became ready again after {@link #isReady} returned {@code false}. Called
+     * once, before anything is sent.
+     */
+    default void whenReady(Runnable listener) {
+    }
+
+    /**
+     * Returns whether the client can take an event now.
+     */
+    default boolean isReady() {
+        return true;
+    }
+
+    /**
+     * Writes and flushes an encoded event without blocking. Only called while the sink is ready.
+     */
+    void send(byte[] event) throws IOException;
+
+    /**
+     * Ends the connection. Called once, after which nothing is sent anymore.
+     */
+    void close();
+}
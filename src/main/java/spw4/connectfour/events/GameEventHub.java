@@ -0,0 +1,288 @@
+package spw4.connectfour.events;
+
+import spw4.connectfour.ConnectFour;
+import spw4.connectfour.GameListener;
+import spw4.connectfour.Player;
+import spw4.connectfour.Rules;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes changes of games to the clients watching them as server-sent events.
+ * <p>
+ * Watching clients hold no thread. Every change is encoded once and queued at each of the game's watchers, and a
+ * small shared pool writes the queues, one task per watcher at a time, so events arrive in order. Writers never
+ * block on a client: a watcher whose connection cannot take more stops until its sink reports it is ready again,
+ * so a slow client never holds up the game or other clients. A client falling too far behind is disconnected. Idle connections get
+ * a comment line now and then, which also reveals clients that went away.
+ * <p>
+ * A drop sends a {@code drop} event with {@code col}, {@code row}, {@code player}, {@code winner}, {@code over} and
+ * {@code moves}, a move taken back an {@code undo} event with {@code col}, {@code player} and {@code moves}, a reset
+ * sends a {@code reset} event and a removed game a final {@code removed} event.
+ */
+public class GameEventHub implements GameListener, AutoCloseable {
+    public static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(30);
+    public static final int MAX_QUEUED_EVENTS = 64;
+
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final Map<UUID, Set<Watcher>> watchers = new ConcurrentHashMap<>();
+    private final ExecutorService writers;
+    private final ScheduledExecutorService heartbeat;
+
+    public GameEventHub() {
+        this(Math.max(2, Runtime.getRuntime().availableProcessors() / 2), HEARTBEAT_INTERVAL);
+    }
+
+    public GameEventHub(int writerThreads, Duration heartbeatInterval) {
+        AtomicInteger threadCount = new AtomicInteger();
+        writers = Executors.newFixedThreadPool(writerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "game-event-writer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-event-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long interval = heartbeatInterval.toMillis();
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeat, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts sending the changes of a game to a client until the client goes away, the game is removed or
+     * {@link #unwatch} is called.
+     */
+    public void watch(UUID id, EventSink sink) {
+        Watcher watcher = new Watcher(id, sink);
+        watchers.computeIfAbsent(id, key -> ConcurrentHashMap.newKeySet()).add(watcher);
+        sink.whenReady(watcher::resume);
+    }
+
+    public void unwatch(UUID id, EventSink sink) {
+        Set<Watcher> gameWatchers = watchers.get(id);
+        if (gameWatchers == null) {
+            return;
+        }
+
+        for (Watcher watcher : gameWatchers) {
+            if (watcher.sink == sink) {
+                watcher.disconnect();
+            }
+        }
+    }
+
+    public int getWatcherCount() {
+        return watchers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @Override
+    public void discDropped(UUID id, ConnectFour game, int col) {
+        Set<Watcher> gameWatchers = watchers.get(id);
+        if (gameWatchers == null || gameWatchers.isEmpty()) {
+            return;
+        }
+
+        int row = landingRow(game, col);
+        Player winner = game.getWinner();
+        String data = "{\"col\":%d,\"row\":%d,\"player\":\"%s\",\"winner\":\"%s\",\"over\":%b,\"moves\":%d}"
+                .formatted(col, row, game.getPlayerAt(row, col), winner, game.isGameOver(), game.getMoveCount());
+
+        publish(gameWatchers, event("drop", data));
+    }
+
+    @Override
+    public void moveUndone(UUID id, ConnectFour game, int col) {
+        Set<Watcher> gameWatchers = watchers.get(id);
+        if (gameWatchers == null || gameWatchers.isEmpty()) {
+            return;
+        }
+
+        String data = "{\"col\":%d,\"player\":\"%s\",\"moves\":%d}".formatted(col, game.getPlayerOnTurn(), game.getMoveCount());
+        publish(gameWatchers, event("undo", data));
+    }
+
+    @Override
+    public void gameReset(UUID id, ConnectFour game) {
+        Set<Watcher> gameWatchers = watchers.get(id);
+        if (gameWatchers == null || gameWatchers.isEmpty()) {
+            return;
+        }
+
+        publish(gameWatchers, event("reset", "{\"player\":\"%s\"}".formatted(game.getPlayerOnTurn())));
+    }
+
+    @Override
+    public void gameRemoved(UUID id) {
+        Set<Watcher> gameWatchers = watchers.remove(id);
+        if (gameWatchers == null) {
+            return;
+        }
+
+        byte[] event = event("removed", "{}");
+        for (Watcher watcher : gameWatchers) {
+            watcher.offer(event);
+            watcher.offer(null);
+        }
+    }
+
+    @Override
+    public void close() {
+        heartbeat.shutdownNow();
+
+        List<Watcher> remaining = new ArrayList<>();
+        for (Set<Watcher> gameWatchers : watchers.values()) {
+            for (Watcher watcher : gameWatchers) {
+                watcher.offer(null);
+                remaining.add(watcher);
+            }
+        }
+        watchers.clear();
+
+        writers.shutdown();
+        try {
+            writers.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // clients that never became ready again did not get to their end of connection
+        remaining.forEach(Watcher::disconnect);
+    }
+
+    private static int landingRow(ConnectFour game, int col) {
+        Rules rules = game.getRules();
+        int row = 0;
+        while (row < rules.rows() && game.getPlayerAt(row, col) != Player.none) {
+            row++;
+        }
+
+        return row - 1;
+    }
+
+    private static byte[] event(String name, String data) {
+        return ("event: " + name + "\ndata: " + data + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void publish(Set<Watcher> gameWatchers, byte[] event) {
+        for (Watcher watcher : gameWatchers) {
+            watcher.offer(event);
+        }
+    }
+
+    private void sendHeartbeat() {
+        for (Set<Watcher> gameWatchers : watchers.values()) {
+            publish(gameWatchers, HEARTBEAT);
+        }
+    }
+
+    private final class Watcher implements Runnable {
+        private static final byte[] DISCONNECT = new byte[0];
+
+        private final UUID id;
+        private final EventSink sink;
+        private final Queue<byte[]> events = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean waiting = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Watcher(UUID id, EventSink sink) {
+            this.id = id;
+            this.sink = sink;
+        }
+
+        /**
+         * Queues an event, or the end of the connection for {@code null}.
+         */
+        private void offer(byte[] event) {
+            if (closed.get()) {
+                return;
+            }
+
+            if (event != null && queued.incrementAndGet() > MAX_QUEUED_EVENTS) {
+                // the queue may never drain if the client stopped reading, so do not wait for it
+                disconnect();
+                return;
+            }
+            events.add(event != null ? event : DISCONNECT);
+            schedule();
+        }
+
+        /**
+         * Continues writing once the sink is ready again.
+         */
+        private void resume() {
+            waiting.set(false);
+            schedule();
+        }
+
+        private void schedule() {
+            if (closed.get() || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+
+            try {
+                writers.execute(this);
+            } catch (RejectedExecutionException e) {
+                disconnect();
+            }
+        }
+
+        private void disconnect() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+
+            watchers.computeIfPresent(id, (key, gameWatchers) -> {
+                gameWatchers.remove(this);
+                return gameWatchers.isEmpty() ? null : gameWatchers;
+            });
+            sink.close();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed.get() && !events.isEmpty()) {
+                    if (events.peek() == DISCONNECT) {
+                        disconnect();
+                        return;
+                    }
+
+                    // set before asking, so a resume right after the sink said no is not lost
+                    waiting.set(true);
+                    if (!sink.isReady()) {
+                        break;
+                    }
+                    waiting.set(false);
+
+                    queued.decrementAndGet();
+                    sink.send(events.poll());
+                }
+            } catch (IOException e) {
+                disconnect();
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+
+            if (!waiting.get() && !events.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package spw4.connectfour.events;
+
+import spw4.connectfour.GameServer;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Server-sent event stream of the changes of one game, see {@link GameEventHub}.
+ */
+@WebServlet(urlPatterns = "/ConnectFour/events", asyncSupported = true)
+public class GameEventServlet extends HttpServlet {
+    private static final byte[] STREAM_START = "retry: 5000\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private GameServer server;
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+
+        try {
+            server = GameServer.of(getServletContext());
+        } catch (IOException e) {
+            throw new ServletException("cannot start the game server", e);
+        }
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        UUID id;
+        try {
+            id = UUID.fromString(String.valueOf(request.getParameter("id")));
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+
+        if (server.getRegistry().get(id) == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        response.setContentType("text/event-stream;charset=UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("X-Accel-Buffering", "no");
+        response.getOutputStream().write(STREAM_START);
+        response.flushBuffer();
+
+        AsyncContext context = request.startAsync();
+        context.setTimeout(0);
+
+        AsyncSink sink = new AsyncSink(context);
+        GameEventHub events = server.getEvents();
+        context.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                events.unwatch(id, sink);
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                events.unwatch(id, sink);
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                events.unwatch(id, sink);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        events.watch(id, sink);
+
+        if (server.getRegistry().get(id) == null) {
+            events.unwatch(id, sink);
+        }
+    }
+
+    /**
+     * Writes events in the container's non-blocking mode, so a client that stops reading never holds a writer.
+     */
+    private static final class AsyncSink implements EventSink {
+        private final AsyncContext context;
+        private final ServletOutputStream out;
+
+        private AsyncSink(AsyncContext context) throws IOException {
+            this.context = context;
+            this.out = context.getResponse().getOutputStream();
+        }
+
+        @Override
+        public void whenReady(Runnable listener) {
+            out.setWriteListener(new WriteListener() {
+                @Override
+                public void onWritePossible() {
+                    listener.run();
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    close();
+                }
+            });
+        }
+
+        @Override
+        public boolean isReady() {
+            return out.isReady();
+        }
+
+        @Override
+        public void send(byte[] event) throws IOException {
+            out.write(event);
+            // a write the client cannot take yet is finished by the container, which then calls the listener
+            if (out.isReady()) {
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                context.complete();
+            } catch (IllegalStateException e) {
+                // already completed by the container
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package spw4.connectfour.journal;
+
+import spw4.connectfour.ConnectFour;
+import spw4.connectfour.GameListener;
+import spw4.connectfour.GameRegistry;
+import spw4.connectfour.Player;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Append-only journal of every game created, changed or removed in a {@link GameRegistry}.
+ * <p>
+ * Events are appended to numbered segment files through a {@link GroupCommitLog}, so a single fsync covers all
+ * moves that arrived while the previous batch was being written. Records are appended in order while the game's
+ * lock is held, but the wait for the disk happens once the lock is released, so a creation or move only returns
+ * once it is on disk without holding up readers of the game meanwhile. Removals are written without waiting. If the
+ * journal cannot be written, the change stays applied and every listener still sees it, and the caller gets an
+ * {@link UncheckedIOException} telling it the change is not durable. Whenever enough segments have been closed, they are folded together with the
+ * previous snapshot into a new snapshot in the background and deleted. Opening a journal replays the latest
+ * snapshot and all later segments into the registry.
+ */
+public class GameJournal implements GameListener, AutoCloseable {
+    public static final long DEFAULT_SEGMENT_SIZE = 64L << 20;
+    public static final int DEFAULT_COMPACT_AFTER_SEGMENTS = 4;
+
+    private static final System.Logger LOGGER = System.getLogger(GameJournal.class.getName());
+
+    private final Path directory;
+    private final GameRegistry registry;
+    private final int compactAfterSegments;
+    private final GroupCommitLog log;
+    private final ExecutorService compactor;
+    private final ThreadLocal<long[]> unsynced = ThreadLocal.withInitial(() -> new long[1]);
+
+    private long lastCompactedSegment;
+
+    private GameJournal(Path directory, GameRegistry registry, long firstSegment, long segmentSize, int compactAfterSegments) throws IOException {
+        this.directory = directory;
+        this.registry = registry;
+        this.compactAfterSegments = compactAfterSegments;
+        lastCompactedSegment = JournalState.latestSnapshot(directory, Long.MAX_VALUE);
+
+        compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        log = new GroupCommitLog(directory, firstSegment, segmentSize, this::segmentClosed);
+    }
+
+    public static GameJournal open(Path directory, GameRegistry registry) throws IOException {
+        return open(directory, registry, DEFAULT_SEGMENT_SIZE, DEFAULT_COMPACT_AFTER_SEGMENTS);
+    }
+
+    /**
+     * Restores all journaled games into the registry and starts journaling its changes into a new segment.
+     */
+    public static GameJournal open(Path directory, GameRegistry registry, long segmentSize, int compactAfterSegments) throws IOException {
+        Files.createDirectories(directory);
+
+        long[] segments = JournalState.segments(directory);
+        long lastSegment = segments.length > 0 ? segments[segments.length - 1] : -1;
+        JournalState state = JournalState.load(directory, lastSegment);
+        state.truncateTornTail();
+        state.restoreInto(registry);
+
+        long snapshot = JournalState.latestSnapshot(directory, Long.MAX_VALUE);
+        GameJournal journal = new GameJournal(directory, registry, Math.max(lastSegment, snapshot) + 1, segmentSize, compactAfterSegments);
+        registry.addListener(journal);
+
+        return journal;
+    }
+
+    @Override
+    public void gameCreated(UUID id, ConnectFour game, Player computerPlayer) {
+        append(JournalFormat.created(id, game.getRules(), game.getPlayerOnTurn(), computerPlayer));
+    }
+
+    @Override
+    public void discDropped(UUID id, ConnectFour game, int col) {
+        append(JournalFormat.dropped(id, col));
+    }
+
+    @Override
+    public void moveUndone(UUID id, ConnectFour game, int col) {
+        append(JournalFormat.undone(id));
+    }
+
+    @Override
+    public void gameReset(UUID id, ConnectFour game) {
+        append(JournalFormat.reset(id, game.getPlayerOnTurn()));
+    }
+
+    @Override
+    public void gameRemoved(UUID id) {
+        log.append(JournalFormat.removed(id));
+    }
+
+    /**
+     * Waits until the last change made by this thread is on disk.
+     */
+    @Override
+    public void changeDelivered(UUID id) {
+        long[] sequence = unsynced.get();
+        long awaited = sequence[0];
+        sequence[0] = 0;
+
+        log.awaitSync(awaited);
+    }
+
+    private void append(byte[] record) {
+        unsynced.get()[0] = log.append(record);
+    }
+
+    /**
+     * Folds the latest snapshot and all segments up to {@code lastSegment} into a new snapshot and deletes them.
+     */
+    void compact(long lastSegment) throws IOException {
+        JournalState.load(directory, lastSegment).writeSnapshot(JournalFormat.snapshotPath(directory, lastSegment));
+
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                long segment = JournalFormat.segmentNumber(file);
+                long snapshot = JournalFormat.snapshotNumber(file);
+                if ((segment >= 0 && segment <= lastSegment) || (snapshot >= 0 && snapshot < lastSegment)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private void segmentClosed(long segment) {
+        if (segment - lastCompactedSegment < compactAfterSegments) {
+            return;
+        }
+
+        lastCompactedSegment = segment;
+        compactor.execute(() -> {
+            try {
+                compact(segment);
+            } catch (IOException | RuntimeException e) {
+                // the segments stay in place and are folded into the next snapshot instead
+                LOGGER.log(System.Logger.Level.ERROR, "compacting the journal up to segment " + segment + " failed", e);
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        registry.removeListener(this);
+        log.close();
+
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
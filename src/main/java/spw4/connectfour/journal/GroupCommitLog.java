@@ -0,0 +1,216 @@
+package spw4.connectfour.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+
+/**
+ * Segmented append-only log with group commit.
+ * <p>
+ * Appenders copy their records into the pending batch buffer. A single writer thread swaps the pending buffer with
+ * its own, writes it with one {@code write} and makes it durable with one {@code force}, then wakes every appender
+ * waiting for a record that was part of that batch. While it writes, new records collect in the other buffer for
+ * the next batch. Appending never blocks: records that do not fit into the pending buffer wait in an overflow queue
+ * for the batch after it, and only {@link #awaitSync} waits for the disk.
+ */
+final class GroupCommitLog implements AutoCloseable {
+    private static final int BATCH_CAPACITY = 1 << 20;
+
+    private final Path directory;
+    private final long segmentSize;
+    private final LongConsumer segmentClosed;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasPending = lock.newCondition();
+    private final Condition batchSynced = lock.newCondition();
+
+    private ByteBuffer pending = ByteBuffer.allocateDirect(BATCH_CAPACITY);
+    private ByteBuffer writing = ByteBuffer.allocateDirect(BATCH_CAPACITY);
+    private final Queue<byte[]> overflow = new ArrayDeque<>();
+    private long appended;
+    private long synced;
+    private boolean closed;
+    private IOException failure;
+
+    private long segment;
+    private FileChannel channel;
+    private final Thread writer;
+
+    GroupCommitLog(Path directory, long firstSegment, long segmentSize, LongConsumer segmentClosed) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.segmentClosed = segmentClosed;
+
+        segment = firstSegment;
+        channel = openSegment(segment);
+
+        writer = new Thread(this::writeLoop, "game-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Adds a record to the next batch without waiting.
+     *
+     * @return the sequence number to pass to {@link #awaitSync}, or {@code -1} if the log failed or is closed
+     */
+    long append(byte[] record) {
+        if (record.length > BATCH_CAPACITY) {
+            throw new IllegalArgumentException("record larger than a batch");
+        }
+
+        lock.lock();
+        try {
+            if (failure != null || closed) {
+                return -1;
+            }
+
+            if (overflow.isEmpty() && pending.remaining() >= record.length) {
+                pending.put(record);
+            } else {
+                overflow.add(record);
+            }
+            hasPending.signal();
+
+            return ++appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the batch containing the record with the given sequence number has been forced to disk.
+     *
+     * @throws UncheckedIOException  if the record could not be written
+     * @throws IllegalStateException if the record was appended after the log was closed
+     */
+    void awaitSync(long sequence) {
+        lock.lock();
+        try {
+            while (sequence >= 0 && synced < sequence && failure == null) {
+                batchSynced.await();
+            }
+            if (sequence < 0 || synced < sequence) {
+                checkUsable();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for the journal", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkUsable() {
+        if (failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("journal is closed");
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                long batchEnd;
+
+                lock.lock();
+                try {
+                    while (pending.position() == 0 && !closed) {
+                        hasPending.await();
+                    }
+                    if (pending.position() == 0) {
+                        return;
+                    }
+
+                    ByteBuffer full = pending;
+                    pending = writing;
+                    writing = full;
+                    batchEnd = appended - overflow.size();
+                    while (!overflow.isEmpty() && pending.remaining() >= overflow.peek().length) {
+                        pending.put(overflow.poll());
+                    }
+                } finally {
+                    lock.unlock();
+                }
+
+                writing.flip();
+                while (writing.hasRemaining()) {
+                    channel.write(writing);
+                }
+                channel.force(false);
+                writing.clear();
+
+                lock.lock();
+                try {
+                    synced = batchEnd;
+                    batchSynced.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+
+                if (channel.position() >= segmentSize) {
+                    rollSegment();
+                }
+            }
+        } catch (IOException e) {
+            fail(e);
+        } catch (InterruptedException e) {
+            fail(new IOException("journal writer interrupted", e));
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        channel.close();
+        segmentClosed.accept(segment);
+
+        segment++;
+        channel = openSegment(segment);
+    }
+
+    private void fail(IOException e) {
+        lock.lock();
+        try {
+            failure = e;
+            batchSynced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(JournalFormat.segmentPath(directory, number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            hasPending.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package spw4.connectfour.journal;
+
+import spw4.connectfour.Player;
+import spw4.connectfour.Rules;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary layout of journal records and file names.
+ * <p>
+ * Every record is {@code type:byte, id:16 bytes, payload, crc32c:int} where the checksum covers everything before
+ * it. A record that is cut short or fails its checksum marks the end of the valid journal. Games against the
+ * computer are created by a {@link #CREATED_WITH_COMPUTER} record holding the computer's side as well, so journals
+ * written before it still read the same.
+ */
+final class JournalFormat {
+    static final byte CREATED = 1;
+    static final byte DROPPED = 2;
+    static final byte RESET = 3;
+    static final byte REMOVED = 4;
+    static final byte UNDONE = 5;
+    static final byte CREATED_WITH_COMPUTER = 6;
+
+    static final int HEADER_SIZE = 1 + 16;
+    static final int CHECKSUM_SIZE = 4;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private JournalFormat() {
+    }
+
+    static byte[] created(UUID id, Rules rules, Player playerOnTurn, Player computerPlayer) {
+        boolean computer = computerPlayer != Player.none;
+        ByteBuffer record = computer
+                ? header(CREATED_WITH_COMPUTER, id, 2 + 2 + 1 + 1 + 1)
+                : header(CREATED, id, 2 + 2 + 1 + 1);
+        record.putShort((short) rules.rows());
+        record.putShort((short) rules.cols());
+        record.put((byte) rules.connect());
+        record.put((byte) playerOnTurn.ordinal());
+        if (computer) {
+            record.put((byte) computerPlayer.ordinal());
+        }
+
+        return seal(record);
+    }
+
+    static byte[] dropped(UUID id, int col) {
+        ByteBuffer record = header(DROPPED, id, 2);
+        record.putShort((short) col);
+
+        return seal(record);
+    }
+
+    static byte[] reset(UUID id, Player playerOnTurn) {
+        ByteBuffer record = header(RESET, id, 1);
+        record.put((byte) playerOnTurn.ordinal());
+
+        return seal(record);
+    }
+
+    static byte[] undone(UUID id) {
+        return seal(header(UNDONE, id, 0));
+    }
+
+    static byte[] removed(UUID id) {
+        return seal(header(REMOVED, id, 0));
+    }
+
+    static int payloadSize(byte type) {
+        return switch (type) {
+            case CREATED -> 6;
+            case CREATED_WITH_COMPUTER -> 7;
+            case DROPPED -> 2;
+            case RESET -> 1;
+            case REMOVED, UNDONE -> 0;
+            default -> -1;
+        };
+    }
+
+    static boolean isChecksumValid(ByteBuffer buffer, int start, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(start, length));
+
+        return (int) crc.getValue() == buffer.getInt(start + length);
+    }
+
+    static Path segmentPath(Path directory, long segment) {
+        return directory.resolve(SEGMENT_PREFIX + "%020d".formatted(segment) + SEGMENT_SUFFIX);
+    }
+
+    static Path snapshotPath(Path directory, long lastSegment) {
+        return directory.resolve(SNAPSHOT_PREFIX + "%020d".formatted(lastSegment) + SNAPSHOT_SUFFIX);
+    }
+
+    static long segmentNumber(Path file) {
+        return fileNumber(file, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+    }
+
+    static long snapshotNumber(Path file) {
+        return fileNumber(file, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+    }
+
+    private static long fileNumber(Path file, String prefix, String suffix) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(prefix) || !name.endsWith(suffix)) {
+            return -1;
+        }
+
+        try {
+            return Long.parseLong(name, prefix.length(), name.length() - suffix.length(), 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static ByteBuffer header(byte type, UUID id, int payloadSize) {
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payloadSize + CHECKSUM_SIZE);
+        record.put(type);
+        record.putLong(id.getMostSignificantBits());
+        record.putLong(id.getLeastSignificantBits());
+
+        return record;
+    }
+
+    private static byte[] seal(ByteBuffer record) {
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), 0, record.position());
+        record.putInt((int) crc.getValue());
+
+        return record.array();
+    }
+}
@@ -0,0 +1,246 @@
+package spw4.connectfour.journal;
+
+import spw4.connectfour.GameCodec;
+import spw4.connectfour.GameHistory;
+import spw4.connectfour.GameRegistry;
+import spw4.connectfour.GameSession;
+import spw4.connectfour.Player;
+import spw4.connectfour.Rules;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static spw4.connectfour.journal.JournalFormat.*;
+
+/**
+ * The games described by a snapshot and the journal segments written after it, kept as move lists.
+ * <p>
+ * Only the newest segment of a journal may end in a torn record, left by a crash in the middle of a write, and
+ * {@link #truncateTornTail} cuts it off before new segments follow. A record that cannot be read anywhere else means
+ * the journal is corrupt, since replaying the segments after it would rebuild games that never existed.
+ */
+final class JournalState {
+    private static final Player[] PLAYERS = Player.values();
+
+    private final Map<UUID, GameRecord> games = new LinkedHashMap<>();
+    private Path tornSegment;
+    private long tornOffset;
+
+    static JournalState load(Path directory, long lastSegment) throws IOException {
+        JournalState state = new JournalState();
+
+        long snapshot = latestSnapshot(directory, lastSegment);
+        if (snapshot >= 0) {
+            state.readSnapshot(snapshotPath(directory, snapshot));
+        }
+
+        long[] segments = segments(directory);
+        long newest = segments.length > 0 ? segments[segments.length - 1] : -1;
+        for (long segment : segments) {
+            if (segment > snapshot && segment <= lastSegment) {
+                state.replay(segmentPath(directory, segment), segment == newest);
+            }
+        }
+
+        return state;
+    }
+
+    static long latestSnapshot(Path directory, long lastSegment) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.mapToLong(JournalFormat::snapshotNumber)
+                    .filter(number -> number >= 0 && number <= lastSegment)
+                    .max()
+                    .orElse(-1);
+        }
+    }
+
+    static long[] segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.mapToLong(JournalFormat::segmentNumber)
+                    .filter(number -> number >= 0)
+                    .sorted()
+                    .toArray();
+        }
+    }
+
+    int size() {
+        return games.size();
+    }
+
+    /**
+     * Cuts a torn record off the end of the newest segment, so it is not mistaken for corruption once later
+     * segments follow it.
+     */
+    void truncateTornTail() throws IOException {
+        if (tornSegment == null) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(tornSegment, StandardOpenOption.WRITE)) {
+            channel.truncate(tornOffset);
+            channel.force(true);
+        }
+        tornSegment = null;
+    }
+
+    /**
+     * @throws IOException if a journaled move cannot be played, so the journal does not describe a real game
+     */
+    void restoreInto(GameRegistry registry) throws IOException {
+        for (Map.Entry<UUID, GameRecord> entry : games.entrySet()) {
+            GameRecord record = entry.getValue();
+            if (record.playerOnTurn == Player.none) {
+                registry.restore(entry.getKey(), record.rules, Player.red, record.computerPlayer).reset(Player.none);
+                continue;
+            }
+
+            GameSession session = registry.restore(entry.getKey(), record.rules, record.playerOnTurn, record.computerPlayer);
+            for (int i = 0; i < record.moveCount; i++) {
+                int col = record.moves[i];
+                if (col < 0 || col >= record.rules.cols() || !session.drop(col)) {
+                    throw new IOException("corrupt journal: move %d of game %s in column %d cannot be played"
+                            .formatted(i + 1, entry.getKey(), col));
+                }
+            }
+        }
+    }
+
+    private void replay(Path segment, boolean newest) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                return;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (buffer.hasRemaining()) {
+                int start = buffer.position();
+                byte type = buffer.get(start);
+                int payloadSize = payloadSize(type);
+                int length = HEADER_SIZE + payloadSize;
+
+                if (   payloadSize < 0
+                        || buffer.remaining() < length + CHECKSUM_SIZE
+                        || !isChecksumValid(buffer, start, length)) {
+                    if (!newest) {
+                        throw new IOException("corrupt journal segment %s at offset %d".formatted(segment, start));
+                    }
+
+                    tornSegment = segment;
+                    tornOffset = start;
+                    return;
+                }
+
+                buffer.position(start + 1);
+                apply(type, new UUID(buffer.getLong(), buffer.getLong()), buffer);
+                buffer.position(start + length + CHECKSUM_SIZE);
+            }
+        }
+    }
+
+    private void apply(byte type, UUID id, ByteBuffer payload) {
+        switch (type) {
+            case CREATED, CREATED_WITH_COMPUTER -> {
+                Rules rules = new Rules(payload.getShort(), payload.getShort(), payload.get());
+                Player playerOnTurn = PLAYERS[payload.get()];
+                Player computerPlayer = type == CREATED_WITH_COMPUTER ? PLAYERS[payload.get()] : Player.none;
+                games.put(id, new GameRecord(rules, playerOnTurn, computerPlayer));
+            }
+            case DROPPED -> {
+                GameRecord record = games.get(id);
+                if (record != null) {
+                    record.add(payload.getShort());
+                }
+            }
+            case RESET -> {
+                GameRecord record = games.get(id);
+                if (record != null) {
+                    record.reset(PLAYERS[payload.get()]);
+                }
+            }
+            case UNDONE -> {
+                GameRecord record = games.get(id);
+                if (record != null) {
+                    record.undo();
+                }
+            }
+            case REMOVED -> games.remove(id);
+        }
+    }
+
+    void writeSnapshot(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+        Map<UUID, GameHistory> histories = new LinkedHashMap<>();
+        for (Map.Entry<UUID, GameRecord> entry : games.entrySet()) {
+            GameRecord record = entry.getValue();
+            histories.put(entry.getKey(), new GameHistory(record.rules, record.playerOnTurn, record.computerPlayer,
+                    Arrays.copyOf(record.moves, record.moveCount)));
+        }
+
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16)) {
+            GameCodec.writeSnapshot(out, histories);
+        }
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void readSnapshot(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            GameCodec.readSnapshot(in, (id, history) -> {
+                GameRecord record = new GameRecord(history.rules(), history.firstPlayer(), history.computerPlayer());
+                for (int col : history.moves()) {
+                    record.add(col);
+                }
+                games.put(id, record);
+            });
+        } catch (IllegalArgumentException e) {
+            throw new IOException("corrupt journal snapshot " + file, e);
+        }
+    }
+
+    private static final class GameRecord {
+        private final Rules rules;
+        private final Player computerPlayer;
+        private Player playerOnTurn;
+        private int[] moves = new int[8];
+        private int moveCount;
+
+        private GameRecord(Rules rules, Player playerOnTurn, Player computerPlayer) {
+            this.rules = rules;
+            this.playerOnTurn = playerOnTurn;
+            this.computerPlayer = computerPlayer;
+        }
+
+        private void add(int col) {
+            if (moveCount == moves.length) {
+                moves = Arrays.copyOf(moves, moves.length * 2);
+            }
+            moves[moveCount++] = col;
+        }
+
+        private void undo() {
+            if (moveCount > 0) {
+                moveCount--;
+            }
+        }
+
+        private void reset(Player playerOnTurn) {
+            this.playerOnTurn = playerOnTurn;
+            moveCount = 0;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package spw4.connectfour.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations in nanoseconds with HDR-style log-linear buckets.
+ * <p>
+ * Every power of two is split into {@code 2^SUB_BUCKET_BITS} buckets of equal width, so a recorded value is known
+ * to within 25% however large it is, from nanoseconds up to about 18 minutes. Larger values count as the largest.
+ * Buckets are {@link LongAdder}s, so threads recording at the same time update different cells instead of
+ * contending for one counter. Reading while others record gives counts that are each exact but may be taken at
+ * slightly different moments.
+ */
+public final class LatencyHistogram {
+    static final int SUB_BUCKET_BITS = 2;
+    static final int MAX_MAGNITUDE = 40;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final long MAX_VALUE = (1L << MAX_MAGNITUDE) - 1;
+
+    private final LongAdder[] buckets = new LongAdder[bucketIndex(MAX_VALUE) + 1];
+    private final LongAdder sum = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, Math.min(nanos, MAX_VALUE));
+        buckets[bucketIndex(value)].increment();
+        sum.add(value);
+    }
+
+    public long count() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+
+        return count;
+    }
+
+    public long sum() {
+        return sum.sum();
+    }
+
+    /**
+     * Returns the number of recorded values below {@code 2^magnitude} nanoseconds.
+     */
+    public long countBelowPowerOfTwo(int magnitude) {
+        long limit = magnitude >= MAX_MAGNITUDE ? Long.MAX_VALUE : 1L << magnitude;
+        long count = 0;
+        for (int i = 0; i < buckets.length && bucketUpperBound(i) <= limit; i++) {
+            count += buckets[i].sum();
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns an upper bound of the given quantile, or {@code 0} if nothing was recorded.
+     */
+    public long quantile(double quantile) {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return bucketUpperBound(i) - 1;
+            }
+        }
+
+        return MAX_VALUE;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Returns the smallest value above the bucket's values.
+     */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index + 1;
+        }
+
+        int shift = index / SUB_BUCKETS - 1;
+        long mantissa = SUB_BUCKETS + index % SUB_BUCKETS;
+        return mantissa + 1 << shift;
+    }
+}
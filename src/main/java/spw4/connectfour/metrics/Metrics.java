@@ -0,0 +1,170 @@
+package spw4.connectfour.metrics;
+
+import spw4.connectfour.ConnectFour;
+import spw4.connectfour.GameListener;
+import spw4.connectfour.Player;
+import spw4.connectfour.PositionCache;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Counters and latency histograms of a game server, written in the Prometheus text format.
+ * <p>
+ * Game counters are fed by listening to the registry, request latencies, rendered pages and errors are reported
+ * by the servlets. Every counter is a {@link LongAdder}, so recording never contends, and rates such as drops per
+ * second are left to the monitoring system. Gauges like the live games are read from their source when the metrics
+ * are written.
+ */
+public class Metrics implements GameListener {
+    private static final int MIN_BUCKET_MAGNITUDE = 10;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final IntSupplier liveGames;
+    private final Supplier<Map<String, PositionCache.Stats>> caches;
+
+    private final LongAdder gamesCreated = new LongAdder();
+    private final LongAdder gamesFinished = new LongAdder();
+    private final LongAdder drops = new LongAdder();
+    private final LongAdder undos = new LongAdder();
+    private final LongAdder renderedBytes = new LongAdder();
+    private final LatencyHistogram renderTime = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> requestLatencies = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    /**
+     * @param liveGames number of games currently registered
+     * @param caches    counters of the position caches by name
+     */
+    public Metrics(IntSupplier liveGames, Supplier<Map<String, PositionCache.Stats>> caches) {
+        this.liveGames = liveGames;
+        this.caches = caches;
+    }
+
+    /**
+     * Returns the latency histogram of requests for the given action, e.g. {@code new}, {@code drop} or
+     * {@code view}.
+     */
+    public LatencyHistogram requestLatency(String action) {
+        return requestLatencies.computeIfAbsent(action, key -> new LatencyHistogram());
+    }
+
+    public void pageRendered(long bytes, long nanos) {
+        renderedBytes.add(bytes);
+        renderTime.record(nanos);
+    }
+
+    public void error(Throwable error) {
+        errors.computeIfAbsent(error.getClass().getName(), key -> new LongAdder()).increment();
+    }
+
+    public long getGamesCreated() {
+        return gamesCreated.sum();
+    }
+
+    public long getGamesFinished() {
+        return gamesFinished.sum();
+    }
+
+    public long getDrops() {
+        return drops.sum();
+    }
+
+    public long getErrors(Class<? extends Throwable> type) {
+        LongAdder count = errors.get(type.getName());
+        return count != null ? count.sum() : 0;
+    }
+
+    @Override
+    public void gameCreated(UUID id, ConnectFour game, Player computerPlayer) {
+        gamesCreated.increment();
+    }
+
+    @Override
+    public void discDropped(UUID id, ConnectFour game, int col) {
+        drops.increment();
+        if (game.isGameOver()) {
+            gamesFinished.increment();
+        }
+    }
+
+    @Override
+    public void moveUndone(UUID id, ConnectFour game, int col) {
+        undos.increment();
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text exposition format.
+     */
+    public void writePrometheus(StringBuilder out) {
+        counter(out, "connectfour_games_created_total", "Games created.", gamesCreated.sum());
+        counter(out, "connectfour_games_finished_total", "Games won or drawn.", gamesFinished.sum());
+        gauge(out, "connectfour_games_live", "Games currently registered.", liveGames.getAsInt());
+        counter(out, "connectfour_drops_total", "Discs dropped.", drops.sum());
+        counter(out, "connectfour_undos_total", "Moves taken back.", undos.sum());
+        counter(out, "connectfour_rendered_bytes_total", "Bytes of game pages written.", renderedBytes.sum());
+
+        out.append("# HELP connectfour_render_seconds Time to prepare and write a game page.\n")
+                .append("# TYPE connectfour_render_seconds histogram\n");
+        histogram(out, "connectfour_render_seconds", "", renderTime);
+
+        out.append("# HELP connectfour_request_seconds Latency of game page requests by action.\n")
+                .append("# TYPE connectfour_request_seconds histogram\n");
+        requestLatencies.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> histogram(out, "connectfour_request_seconds", "action=\"" + entry.getKey() + "\",", entry.getValue()));
+
+        out.append("# HELP connectfour_errors_total Failed requests by exception type.\n")
+                .append("# TYPE connectfour_errors_total counter\n");
+        errors.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> out.append("connectfour_errors_total{type=\"").append(entry.getKey()).append("\"} ")
+                        .append(entry.getValue().sum()).append('\n'));
+
+        Map<String, PositionCache.Stats> cacheStats = caches.get();
+        cacheFamily(out, "connectfour_cache_hits_total", "counter", "Position cache hits.", cacheStats, PositionCache.Stats::hits);
+        cacheFamily(out, "connectfour_cache_misses_total", "counter", "Position cache misses.", cacheStats, PositionCache.Stats::misses);
+        cacheFamily(out, "connectfour_cache_entries", "gauge", "Positions in the cache.", cacheStats, PositionCache.Stats::size);
+        cacheFamily(out, "connectfour_cache_bytes", "gauge", "Estimated memory held by the cache.", cacheStats, PositionCache.Stats::bytes);
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        family(out, name, "counter", help).append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, long value) {
+        family(out, name, "gauge", help).append(name).append(' ').append(value).append('\n');
+    }
+
+    private static StringBuilder family(StringBuilder out, String name, String type, String help) {
+        return out.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void histogram(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        for (int magnitude = MIN_BUCKET_MAGNITUDE; magnitude < LatencyHistogram.MAX_MAGNITUDE; magnitude++) {
+            out.append(name).append("_bucket{").append(labels).append("le=\"").append((1L << magnitude) / NANOS_PER_SECOND)
+                    .append("\"} ").append(histogram.countBelowPowerOfTwo(magnitude)).append('\n');
+        }
+
+        long count = histogram.count();
+        out.append(name).append("_bucket{").append(labels).append("le=\"+Inf\"} ").append(count).append('\n');
+        String suffixLabels = labels.isEmpty() ? "" : "{" + labels.substring(0, labels.length() - 1) + "}";
+        out.append(name).append("_sum").append(suffixLabels).append(' ').append(histogram.sum() / NANOS_PER_SECOND).append('\n');
+        out.append(name).append("_count").append(suffixLabels).append(' ').append(count).append('\n');
+    }
+
+    private static void cacheFamily(StringBuilder out, String name, String type, String help,
+                                    Map<String, PositionCache.Stats> caches, ToLongFunction<PositionCache.Stats> value) {
+        family(out, name, type, help);
+        for (Map.Entry<String, PositionCache.Stats> cache : caches.entrySet()) {
+            out.append(name).append("{cache=\"").append(cache.getKey()).append("\"} ")
+                    .append(value.applyAsLong(cache.getValue())).append('\n');
+        }
+    }
+}
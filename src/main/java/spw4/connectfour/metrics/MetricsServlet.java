@@ -0,0 +1,41 @@
+package spw4.connectfour.metrics;
+
+import spw4.connectfour.GameServer;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves the server's {@link Metrics} for Prometheus to scrape.
+ */
+@WebServlet(urlPatterns = "/metrics")
+public class MetricsServlet extends HttpServlet {
+    private Metrics metrics;
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+
+        try {
+            metrics = GameServer.of(getServletContext()).getMetrics();
+        } catch (IOException e) {
+            throw new ServletException("cannot start the game server", e);
+        }
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        StringBuilder out = new StringBuilder(16 << 10);
+        metrics.writePrometheus(out);
+
+        byte[] encoded = out.toString().getBytes(StandardCharsets.UTF_8);
+        response.setContentType("text/plain;version=0.0.4;charset=UTF-8");
+        response.setContentLength(encoded.length);
+        response.getOutputStream().write(encoded);
+    }
+}
@@ -0,0 +1,144 @@
+package spw4.connectfour.tournament;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Elo ratings estimated from all games of a tournament at once.
+ * <p>
+ * The ratings are the maximum likelihood fit of the Bradley-Terry model, in which a player rated {@code d} points
+ * above another scores {@code 1 / (1 + 10^(-d / 400))} against it on average, counting a draw as half a win. Unlike
+ * updating ratings game by game, the fit does not depend on the order of the games. Every pair of players that met
+ * is given one extra draw, so that players who won or lost all their games still get finite ratings. The ratings
+ * average {@link #MEAN_RATING} and come with the margin of a 95% confidence interval taken from the curvature of the
+ * likelihood.
+ */
+public final class EloRatings {
+    public static final double MEAN_RATING = 1500;
+
+    private static final double ELO_PER_NEPER = 400 / Math.log(10);
+    private static final double Z_95 = 1.959964;
+    private static final int MAX_ITERATIONS = 10_000;
+    private static final double TOLERANCE = 1e-10;
+
+    /**
+     * @param margin half the width of the 95% confidence interval of the rating
+     * @param score  points scored, 1 per win and 1/2 per draw
+     */
+    public record Rating(String name, double elo, double margin, int games, double score) {
+    }
+
+    private EloRatings() {
+    }
+
+    /**
+     * Rates the players by the games among them, best first. Games involving other players are ignored.
+     */
+    public static List<Rating> of(List<String> players, List<GameResult> games) {
+        int count = players.size();
+        Map<String, Integer> indices = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            if (indices.put(players.get(i), i) != null) {
+                throw new IllegalArgumentException("duplicate player " + players.get(i));
+            }
+        }
+
+        double[][] played = new double[count][count];
+        double[] scores = new double[count];
+        int[] gameCounts = new int[count];
+        for (GameResult game : games) {
+            Integer red = indices.get(game.red());
+            Integer yellow = indices.get(game.yellow());
+            if (red == null || yellow == null || red.equals(yellow)) {
+                continue;
+            }
+
+            played[red][yellow]++;
+            played[yellow][red]++;
+            scores[red] += game.score(game.red());
+            scores[yellow] += game.score(game.yellow());
+            gameCounts[red]++;
+            gameCounts[yellow]++;
+        }
+
+        double[] strengths = fit(played, scores);
+
+        List<Rating> ratings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double information = 0;
+            for (int j = 0; j < count; j++) {
+                double meetings = prior(played, i, j);
+                if (meetings > 0) {
+                    double expected = strengths[i] / (strengths[i] + strengths[j]);
+                    information += meetings * expected * (1 - expected);
+                }
+            }
+
+            double margin = information > 0 ? Z_95 * ELO_PER_NEPER / Math.sqrt(information) : Double.POSITIVE_INFINITY;
+            ratings.add(new Rating(players.get(i), MEAN_RATING + ELO_PER_NEPER * Math.log(strengths[i]), margin, gameCounts[i], scores[i]));
+        }
+
+        ratings.sort(Comparator.comparingDouble(Rating::elo).reversed().thenComparing(Rating::name));
+        return ratings;
+    }
+
+    /**
+     * Returns the number of games between the players including the extra draw, if they met.
+     */
+    private static double prior(double[][] played, int i, int j) {
+        return played[i][j] > 0 ? played[i][j] + 1 : 0;
+    }
+
+    /**
+     * Fits the strengths {@code 10^(rating / 400)} by minorization-maximization, normalized to a geometric mean of 1.
+     */
+    private static double[] fit(double[][] played, double[] scores) {
+        int count = scores.length;
+        double[] wins = new double[count];
+        for (int i = 0; i < count; i++) {
+            wins[i] = scores[i];
+            for (int j = 0; j < count; j++) {
+                if (played[i][j] > 0) {
+                    wins[i] += 0.5;
+                }
+            }
+        }
+
+        double[] strengths = new double[count];
+        Arrays.fill(strengths, 1);
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double[] next = new double[count];
+            double logSum = 0;
+            for (int i = 0; i < count; i++) {
+                double denominator = 0;
+                for (int j = 0; j < count; j++) {
+                    double games = prior(played, i, j);
+                    if (games > 0) {
+                        denominator += games / (strengths[i] + strengths[j]);
+                    }
+                }
+
+                next[i] = denominator > 0 ? wins[i] / denominator : 1;
+                logSum += Math.log(next[i]);
+            }
+
+            double scale = Math.exp(-logSum / count);
+            double change = 0;
+            for (int i = 0; i < count; i++) {
+                next[i] *= scale;
+                change = Math.max(change, Math.abs(Math.log(next[i] / strengths[i])));
+            }
+
+            strengths = next;
+            if (change < TOLERANCE) {
+                break;
+            }
+        }
+
+        return strengths;
+    }
+}
@@ -0,0 +1,55 @@
+package spw4.connectfour.tournament;
+
+import spw4.connectfour.Player;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * One game of a tournament, red having moved first.
+ *
+ * @param round   number of the round, starting at 1
+ * @param game    number of the game within its round, starting at 1
+ * @param winner  the winner, {@link Player#none} for a draw
+ * @param moves   the columns played
+ * @param forfeit why the loser forfeited the game, or {@code null} if it was played to the end
+ */
+public record GameResult(int round, int game, String red, String yellow, Player winner, int[] moves, String forfeit) {
+
+    /**
+     * Returns the points the strategy scored: 1 for a win, 1/2 for a draw and 0 for a loss or a game it did not play.
+     */
+    public double score(String strategy) {
+        if (strategy.equals(red)) {
+            return winner == Player.red ? 1 : winner == Player.none ? 0.5 : 0;
+        }
+        if (strategy.equals(yellow)) {
+            return winner == Player.yellow ? 1 : winner == Player.none ? 0.5 : 0;
+        }
+
+        return 0;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof GameResult result
+                && round == result.round
+                && game == result.game
+                && red.equals(result.red)
+                && yellow.equals(result.yellow)
+                && winner == result.winner
+                && Arrays.equals(moves, result.moves)
+                && Objects.equals(forfeit, result.forfeit);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * (31 * round + game) + red.hashCode()) + Arrays.hashCode(moves);
+    }
+
+    @Override
+    public String toString() {
+        return "GameResult[round=%d, game=%d, red=%s, yellow=%s, winner=%s, moves=%s, forfeit=%s]"
+                .formatted(round, game, red, yellow, winner, Arrays.toString(moves), forfeit);
+    }
+}
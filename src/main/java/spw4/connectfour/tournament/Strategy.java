@@ -0,0 +1,121 @@
+package spw4.connectfour.tournament;
+
+import spw4.connectfour.ConnectFour;
+import spw4.connectfour.Player;
+import spw4.connectfour.ai.ComputerPlayer;
+
+import java.time.Duration;
+import java.util.random.RandomGenerator;
+
+/**
+ * A way of choosing moves that can take part in a {@link Tournament}.
+ * <p>
+ * A strategy is shared by all games it plays at the same time, so it has to be thread-safe. The game it is asked
+ * about is its own copy, which it may play on and take back moves from as it likes. Strategies that need randomness
+ * should draw it from the generator they are given, which is seeded per game, so a tournament can be played again
+ * with the same results.
+ */
+public interface Strategy {
+
+    /**
+     * Returns a name that tells the strategy apart from the others of a tournament.
+     */
+    String name();
+
+    /**
+     * Returns the column to drop the disc of the player on turn into, within the given time.
+     */
+    int chooseMove(ConnectFour game, Duration budget, RandomGenerator random);
+
+    /**
+     * Plays a uniformly random legal move.
+     */
+    static Strategy random() {
+        return new Strategy() {
+            @Override
+            public String name() {
+                return "random";
+            }
+
+            @Override
+            public int chooseMove(ConnectFour game, Duration budget, RandomGenerator random) {
+                int[] legal = game.legalMoves();
+                return legal[random.nextInt(legal.length)];
+            }
+        };
+    }
+
+    /**
+     * Wins at once if it can and otherwise plays a random move that does not let the opponent win at once, if there
+     * is one.
+     */
+    static Strategy greedy() {
+        return new Strategy() {
+            @Override
+            public String name() {
+                return "greedy";
+            }
+
+            @Override
+            public int chooseMove(ConnectFour game, Duration budget, RandomGenerator random) {
+                Player me = game.getPlayerOnTurn();
+                int[] legal = game.legalMoves();
+                int[] safe = new int[legal.length];
+                int safeCount = 0;
+
+                for (int col : legal) {
+                    game.drop(col);
+                    boolean wins = game.getWinner() == me;
+                    boolean safeMove = !wins && !opponentCanWin(game);
+                    game.undo();
+
+                    if (wins) {
+                        return col;
+                    }
+                    if (safeMove) {
+                        safe[safeCount++] = col;
+                    }
+                }
+
+                return safeCount > 0 ? safe[random.nextInt(safeCount)] : legal[random.nextInt(legal.length)];
+            }
+        };
+    }
+
+    /**
+     * Searches every move with the computer player on a single thread, using the whole budget. Its moves depend on
+     * how deep it gets within the budget, so games against it only repeat as far as the machine's speed does.
+     */
+    static Strategy computer(ComputerPlayer computer) {
+        return new Strategy() {
+            @Override
+            public String name() {
+                return "computer";
+            }
+
+            @Override
+            public int chooseMove(ConnectFour game, Duration budget, RandomGenerator random) {
+                return computer.search(game, budget, 1).col();
+            }
+        };
+    }
+
+    private static boolean opponentCanWin(ConnectFour game) {
+        if (game.isGameOver()) {
+            return false;
+        }
+
+        Player opponent = game.getPlayerOnTurn();
+        for (int col : game.legalMoves()) {
+            game.drop(col);
+            boolean wins = game.getWinner() == opponent;
+            game.undo();
+
+            if (wins) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
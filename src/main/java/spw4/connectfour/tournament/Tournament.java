@@ -0,0 +1,366 @@
+package spw4.connectfour.tournament;
+
+import spw4.connectfour.ConnectFour;
+import spw4.connectfour.ConnectFourEngine;
+import spw4.connectfour.Player;
+import spw4.connectfour.Rules;
+import spw4.connectfour.ai.ComputerPlayer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.random.RandomGenerator;
+
+/**
+ * Plays {@link Strategy strategies} against each other in round-robin or Swiss tournaments.
+ * <p>
+ * Every game runs on a virtual thread of its own, but only {@code parallelism} of them play at the same time, so each
+ * has a processor to itself and the time control measures thinking rather than waiting. A strategy gets the move time
+ * as its budget for every move and forfeits the game if it takes longer than that plus {@link #TIME_TOLERANCE}, if it
+ * throws or if it chooses a column it cannot play. Red always moves first. Each game's random generator is seeded
+ * from the tournament's seed, the round and the game's number, so games between strategies that only depend on it
+ * come out the same however the games are scheduled. Results are returned, and written by {@link #writeResults}, in
+ * the order of rounds and games.
+ * <p>
+ * Run it as {@code java spw4.connectfour.tournament.Tournament [--pairing roundRobin|swiss] [--rounds n]
+ * [--moveMillis ms] [--seed n] [--out file] <strategy>...} with the strategies {@code random}, {@code greedy} and
+ * {@code computer}.
+ */
+public class Tournament {
+    public static final Duration DEFAULT_MOVE_TIME = Duration.ofMillis(100);
+    public static final Duration TIME_TOLERANCE = Duration.ofMillis(100);
+
+    private static final int MAX_DIGIT_COLS = 9;
+
+    private final Rules rules;
+    private final List<Strategy> strategies;
+    private final Duration moveTime;
+    private final long seed;
+    private final Semaphore playing;
+
+    public Tournament(Rules rules, List<Strategy> strategies, Duration moveTime, long seed) {
+        this(rules, strategies, moveTime, seed, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism number of games played at the same time
+     */
+    public Tournament(Rules rules, List<Strategy> strategies, Duration moveTime, long seed, int parallelism) {
+        if (strategies.size() < 2) {
+            throw new IllegalArgumentException("a tournament needs at least two strategies");
+        }
+        if (strategies.stream().map(Strategy::name).distinct().count() != strategies.size()) {
+            throw new IllegalArgumentException("strategies need distinct names");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+
+        this.rules = rules;
+        this.strategies = List.copyOf(strategies);
+        this.moveTime = moveTime;
+        this.seed = seed;
+        playing = new Semaphore(parallelism);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].startsWith("--") && i + 1 < args.length) {
+                options.put(args[i].substring(2), args[++i]);
+            } else {
+                names.add(args[i]);
+            }
+        }
+        if (names.size() < 2) {
+            System.err.println("usage: Tournament [--pairing roundRobin|swiss] [--rounds n] [--moveMillis ms] [--seed n] [--out file] <strategy>...");
+            System.exit(2);
+        }
+
+        List<Strategy> strategies = new ArrayList<>();
+        for (String name : names) {
+            strategies.add(switch (name) {
+                case "random" -> Strategy.random();
+                case "greedy" -> Strategy.greedy();
+                case "computer" -> Strategy.computer(new ComputerPlayer(Rules.STANDARD));
+                default -> throw new IllegalArgumentException("unknown strategy " + name);
+            });
+        }
+
+        Tournament tournament = new Tournament(
+                Rules.STANDARD,
+                strategies,
+                Duration.ofMillis(Long.parseLong(options.getOrDefault("moveMillis", String.valueOf(DEFAULT_MOVE_TIME.toMillis())))),
+                Long.parseLong(options.getOrDefault("seed", "1")));
+        int rounds = Integer.parseInt(options.getOrDefault("rounds", "2"));
+
+        long start = System.nanoTime();
+        List<GameResult> results = "swiss".equals(options.get("pairing"))
+                ? tournament.swiss(rounds)
+                : tournament.roundRobin(rounds);
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        List<EloRatings.Rating> ratings = EloRatings.of(names, results);
+
+        System.out.printf("%,d games in %.1f s: %,.0f games/h%n", results.size(), seconds, results.size() / seconds * 3600);
+        for (EloRatings.Rating rating : ratings) {
+            System.out.printf("%-10s %6.0f +/- %3.0f  %5.1f / %d%n", rating.name(), rating.elo(), rating.margin(), rating.score(), rating.games());
+        }
+
+        String out = options.get("out");
+        if (out != null) {
+            try (Writer writer = Files.newBufferedWriter(Path.of(out))) {
+                tournament.writeResults(writer, results, ratings);
+            }
+        }
+    }
+
+    public List<String> getNames() {
+        return strategies.stream().map(Strategy::name).toList();
+    }
+
+    /**
+     * Lets every strategy play every other one once per round, changing colors from round to round.
+     */
+    public List<GameResult> roundRobin(int rounds) {
+        List<GameResult> results = new ArrayList<>();
+        for (int round = 1; round <= rounds; round++) {
+            List<Strategy[]> pairings = new ArrayList<>();
+            for (int i = 0; i < strategies.size(); i++) {
+                for (int j = i + 1; j < strategies.size(); j++) {
+                    pairings.add((i + j + round) % 2 == 0
+                            ? new Strategy[] {strategies.get(i), strategies.get(j)}
+                            : new Strategy[] {strategies.get(j), strategies.get(i)});
+                }
+            }
+
+            results.addAll(playRound(round, pairings));
+        }
+
+        return results;
+    }
+
+    /**
+     * Plays the rounds of a Swiss tournament: every round, strategies are ranked by their points and each plays one
+     * game against a strategy of similar rank that it has not met yet, with red going to the one that played red less
+     * often. The first round is paired at random from the seed. With an odd number of strategies, the lowest
+     * ranked one that has not sat out yet sits out the round, which counts as a win for the ranking, but not for the
+     * ratings.
+     */
+    public List<GameResult> swiss(int rounds) {
+        int count = strategies.size();
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            order.add(i);
+        }
+        Collections.shuffle(order, new Random(seed));
+
+        double[] points = new double[count];
+        int[] reds = new int[count];
+        boolean[][] met = new boolean[count][count];
+        boolean[] satOut = new boolean[count];
+
+        List<GameResult> results = new ArrayList<>();
+        for (int round = 1; round <= rounds; round++) {
+            List<Integer> ranking = new ArrayList<>(order);
+            ranking.sort(Comparator.comparingDouble(index -> -points[index]));
+
+            if (count % 2 == 1) {
+                int out = ranking.size() - 1;
+                while (out > 0 && satOut[ranking.get(out)]) {
+                    out--;
+                }
+                int index = ranking.remove(out);
+                satOut[index] = true;
+                points[index]++;
+            }
+
+            List<Strategy[]> pairings = new ArrayList<>();
+            List<int[]> players = new ArrayList<>();
+            List<Integer> paired = pair(ranking, met);
+            for (int i = 0; i < paired.size(); i += 2) {
+                int first = paired.get(i);
+                int second = paired.get(i + 1);
+                met[first][second] = met[second][first] = true;
+                int red = reds[second] < reds[first] ? second : first;
+                int yellow = red == first ? second : first;
+                reds[red]++;
+
+                pairings.add(new Strategy[] {strategies.get(red), strategies.get(yellow)});
+                players.add(new int[] {red, yellow});
+            }
+
+            List<GameResult> played = playRound(round, pairings);
+            for (int game = 0; game < played.size(); game++) {
+                GameResult result = played.get(game);
+                points[players.get(game)[0]] += result.score(result.red());
+                points[players.get(game)[1]] += result.score(result.yellow());
+            }
+            results.addAll(played);
+        }
+
+        return results;
+    }
+
+    /**
+     * Pairs the ranked strategies, each with the best ranked one it has not met, searching back when that leaves
+     * strategies that all met. If there is no pairing without rematches, each is paired with the next best ranked one.
+     *
+     * @return the pairs one after the other
+     */
+    private static List<Integer> pair(List<Integer> ranking, boolean[][] met) {
+        List<Integer> paired = new ArrayList<>(ranking.size());
+        return pairWithoutRematches(new ArrayList<>(ranking), met, paired) ? paired : ranking;
+    }
+
+    private static boolean pairWithoutRematches(List<Integer> unpaired, boolean[][] met, List<Integer> paired) {
+        if (unpaired.isEmpty()) {
+            return true;
+        }
+
+        int first = unpaired.remove(0);
+        for (int i = 0; i < unpaired.size(); i++) {
+            int second = unpaired.get(i);
+            if (met[first][second]) {
+                continue;
+            }
+
+            unpaired.remove(i);
+            paired.add(first);
+            paired.add(second);
+            if (pairWithoutRematches(unpaired, met, paired)) {
+                return true;
+            }
+            paired.remove(paired.size() - 1);
+            paired.remove(paired.size() - 1);
+            unpaired.add(i, second);
+        }
+        unpaired.add(0, first);
+
+        return false;
+    }
+
+    private List<GameResult> playRound(int round, List<Strategy[]> pairings) {
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<Future<GameResult>> games = new ArrayList<>(pairings.size());
+            for (int i = 0; i < pairings.size(); i++) {
+                Strategy red = pairings.get(i)[0];
+                Strategy yellow = pairings.get(i)[1];
+                int game = i + 1;
+                games.add(executor.submit(() -> {
+                    playing.acquire();
+                    try {
+                        return play(round, game, red, yellow);
+                    } finally {
+                        playing.release();
+                    }
+                }));
+            }
+
+            List<GameResult> results = new ArrayList<>(games.size());
+            for (Future<GameResult> game : games) {
+                results.add(game.get());
+            }
+
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("tournament was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("game could not be played", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Plays one game to its end or until a strategy forfeits it.
+     */
+    GameResult play(int round, int number, Strategy red, Strategy yellow) {
+        RandomGenerator random = new SplittableRandom(gameSeed(round, number));
+        ConnectFour game = ConnectFourEngine.bitboard.create(rules, Player.red);
+        long limitNanos = moveTime.plus(TIME_TOLERANCE).toNanos();
+
+        while (!game.isGameOver()) {
+            Player onTurn = game.getPlayerOnTurn();
+            Strategy strategy = onTurn == Player.red ? red : yellow;
+            Player opponent = onTurn == Player.red ? Player.yellow : Player.red;
+
+            int col;
+            long start = System.nanoTime();
+            try {
+                col = strategy.chooseMove(copy(game), moveTime, random);
+            } catch (RuntimeException e) {
+                return new GameResult(round, number, red.name(), yellow.name(), opponent, game.moves(), "threw " + e.getClass().getSimpleName());
+            }
+
+            if (System.nanoTime() - start > limitNanos) {
+                return new GameResult(round, number, red.name(), yellow.name(), opponent, game.moves(), "ran out of time");
+            }
+            if (col < 0 || col >= rules.cols() || game.isColumnFull(col)) {
+                return new GameResult(round, number, red.name(), yellow.name(), opponent, game.moves(), "played column " + col);
+            }
+
+            game.drop(col);
+        }
+
+        return new GameResult(round, number, red.name(), yellow.name(), game.getWinner(), game.moves(), null);
+    }
+
+    private ConnectFour copy(ConnectFour game) {
+        ConnectFour copy = ConnectFourEngine.bitboard.create(rules, Player.red);
+        for (int col : game.moves()) {
+            copy.drop(col);
+        }
+
+        return copy;
+    }
+
+    private long gameSeed(int round, int game) {
+        long key = seed + 0x9E3779B97F4A7C15L * ((long) round << 32 | game);
+        key = (key ^ key >>> 30) * 0xBF58476D1CE4E5B9L;
+        key = (key ^ key >>> 27) * 0x94D049BB133111EBL;
+        return key ^ key >>> 31;
+    }
+
+    /**
+     * Writes the games and the ratings as tab-separated lines, the ratings commented out. Moves are written as
+     * columns counted from 1, one digit each, or separated by commas on boards with more than 9 columns. Files of
+     * tournaments played with the same seed only differ where the games did.
+     */
+    public void writeResults(Writer writer, List<GameResult> results, List<EloRatings.Rating> ratings) throws IOException {
+        BufferedWriter out = writer instanceof BufferedWriter buffered ? buffered : new BufferedWriter(writer);
+        out.write("# round\tgame\tred\tyellow\twinner\tmoves\tforfeit\n");
+        for (GameResult result : results) {
+            StringBuilder moves = new StringBuilder(result.moves().length * 2);
+            for (int col : result.moves()) {
+                if (!moves.isEmpty() && rules.cols() > MAX_DIGIT_COLS) {
+                    moves.append(',');
+                }
+                moves.append(col + 1);
+            }
+
+            out.write("%d\t%d\t%s\t%s\t%s\t%s\t%s\n".formatted(
+                    result.round(), result.game(), result.red(), result.yellow(), result.winner(), moves,
+                    result.forfeit() != null ? result.forfeit() : ""));
+        }
+
+        out.write("#\n# rank\tstrategy\telo\tmargin\tgames\tscore\n");
+        for (int rank = 0; rank < ratings.size(); rank++) {
+            EloRatings.Rating rating = ratings.get(rank);
+            out.write(String.format(Locale.ROOT, "# %d\t%s\t%.0f\t%.0f\t%d\t%.1f\n",
+                    rank + 1, rating.name(), rating.elo(), rating.margin(), rating.games(), rating.score()));
+        }
+        out.flush();
+    }
+}
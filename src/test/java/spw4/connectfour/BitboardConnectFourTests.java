@@ -0,0 +1,9 @@
+package spw4.connectfour;
+
+class BitboardConnectFourTests extends ConnectFourImplTests {
+
+    @Override
+    protected ConnectFour createGame(Player playerOnTurn) {
+        return new BitboardConnectFour(playerOnTurn);
+    }
+}
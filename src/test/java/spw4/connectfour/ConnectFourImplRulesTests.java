@@ -0,0 +1,138 @@
+package spw4.connectfour;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.*;
+import org.junit.jupiter.params.provider.*;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectFourImplRulesTests {
+
+    @DisplayName("Rules with invalid dimensions throw IllegalArgumentException")
+    @ParameterizedTest(name = "rows {0}, cols {1}, connect {2}")
+    @MethodSource("invalidRulesProvider")
+    public void invalidRulesThrowIllegalArgumentException(int rows, int cols, int connect) {
+        assertThrows(IllegalArgumentException.class, () -> new Rules(rows, cols, connect));
+    }
+
+    @DisplayName("Empty board uses the configured size")
+    @Test
+    public void emptyBoardUsesConfiguredSize() {
+        ConnectFourImpl game = new ConnectFourImpl(new Rules(8, 9, 4), Player.red);
+
+        assertAll(
+                () -> assertEquals(Player.none, game.getPlayerAt(7, 8)),
+                () -> assertThrows(IndexOutOfBoundsException.class, () -> game.getPlayerAt(8, 0)),
+                () -> assertThrows(IndexOutOfBoundsException.class, () -> game.drop(9)),
+                () -> assertEquals(9, game.legalMoves().length)
+        );
+    }
+
+    @DisplayName("Every move of a large board can be taken back")
+    @Test
+    public void largeBoardMovesCanBeTakenBack() {
+        ConnectFourImpl game = new ConnectFourImpl(new Rules(10, 10, 10), Player.red);
+        for (int i = 0; i < 100; i++) {
+            game.drop(i / 10 % 2 == 0 ? i % 10 : 9 - i % 10);
+        }
+
+        assertEquals(100, game.moves().length);
+        while (game.undo() >= 0) {
+            assertFalse(game.isGameOver());
+        }
+
+        assertEquals(0, game.getMoveCount());
+    }
+
+    @DisplayName("Connect five needs five discs in a row")
+    @Test
+    public void connectFiveNeedsFiveDiscs() {
+        ConnectFourImpl game = new ConnectFourImpl(new Rules(15, 15, 5), Player.red);
+
+        for (int col = 0; col < 4; col++) {
+            game.drop(col);
+            game.drop(col);
+        }
+        assertFalse(game.isGameOver());
+
+        game.drop(4);
+
+        assertAll(
+                () -> assertTrue(game.isGameOver()),
+                () -> assertEquals(Player.red, game.getWinner())
+        );
+    }
+
+    @DisplayName("Vertical line crossing a word boundary is detected")
+    @Test
+    public void verticalLineAcrossWordBoundaryIsDetected() {
+        ConnectFourImpl game = new ConnectFourImpl(new Rules(100, 100, 8), Player.red);
+
+        for (int i = 0; i < 7; i++) {
+            game.drop(1);
+            game.drop(2);
+        }
+        game.drop(1);
+
+        assertEquals(Player.red, game.getWinner());
+    }
+
+    @DisplayName("Diagonal line on a large board is detected")
+    @Test
+    public void diagonalLineOnLargeBoardIsDetected() {
+        ConnectFourImpl game = new ConnectFourImpl(new Rules(100, 100, 4), Player.red);
+
+        int[] moves = {50, 51, 51, 52, 52, 53, 52, 53, 90, 53, 53};
+        for (int col : moves) {
+            game.drop(col);
+        }
+
+        assertEquals(Player.red, game.getWinner());
+    }
+
+    @DisplayName("Lines do not wrap from the top of one column into the next")
+    @Test
+    public void linesDoNotWrapBetweenColumns() {
+        ConnectFourImpl game = new ConnectFourImpl(new Rules(3, 5, 3), Player.yellow);
+
+        int[] moves = {0, 0, 3, 0, 4, 1};
+        for (int col : moves) {
+            game.drop(col);
+        }
+
+        assertAll(
+                () -> assertEquals(Player.none, game.getWinner()),
+                () -> assertFalse(game.isGameOver())
+        );
+    }
+
+    @DisplayName("Full small board without line is a draw")
+    @Test
+    public void fullSmallBoardIsDraw() {
+        ConnectFourImpl game = new ConnectFourImpl(new Rules(1, 3, 2), Player.red);
+
+        game.drop(0);
+        game.drop(1);
+        game.drop(2);
+
+        assertAll(
+                () -> assertTrue(game.isGameOver()),
+                () -> assertEquals(Player.none, game.getWinner())
+        );
+    }
+
+    private static Stream<Arguments> invalidRulesProvider() {
+        return Stream.of(
+                Arguments.of(0, 7, 4),
+                Arguments.of(6, 0, 4),
+                Arguments.of(6, 7, 1),
+                Arguments.of(3, 3, 4),
+                Arguments.of(100, 100, 65),
+                Arguments.of(101, 7, 4),
+                Arguments.of(6, 65536, 4),
+                Arguments.of(65536, 65536, 4)
+        );
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.params.*;
 import org.junit.jupiter.params.provider.*;
 import org.mockito.junit.jupiter.*;
 
+import java.util.Random;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -13,6 +14,10 @@ import static org.junit.jupiter.api.Assertions.*;
 @ExtendWith(MockitoExtension.class)
 class ConnectFourImplTests {
 
+    protected ConnectFour createGame(Player playerOnTurn) {
+        return new ConnectFourImpl(playerOnTurn);
+    }
+
     @Nested
     @DisplayName("Constructor ...")
     class ConstructorTests {
@@ -24,7 +29,7 @@ class ConnectFourImplTests {
         @ParameterizedTest(name = "Initial Player: {0}")
         @MethodSource("playerProvider")
         public void constrSetsCurrentPlayerCorrectly(Player initPlayer) {
-            ConnectFourImpl game = new ConnectFourImpl(initPlayer);
+            ConnectFour game = createGame(initPlayer);
 
             assertEquals(initPlayer, game.getPlayerOnTurn());
         }
@@ -32,7 +37,7 @@ class ConnectFourImplTests {
         @DisplayName("Constructor with none as Player throws InvalidPlayerException")
         @Test
         public void constrSetsCurrentPlayerCorrectly() {
-            assertThrows(InvalidPlayerException.class, () -> new ConnectFourImpl(Player.none));
+            assertThrows(InvalidPlayerException.class, () -> createGame(Player.none));
         }
     }
 
@@ -59,7 +64,7 @@ class ConnectFourImplTests {
         @ParameterizedTest(name = "Initial Player: {0}")
         @MethodSource("playerProvider")
         public void dropPlayerChangesAfterDrop(Player initPlayer) {
-            ConnectFourImpl game = new ConnectFourImpl(initPlayer);
+            ConnectFour game = createGame(initPlayer);
 
             game.drop(1);
             assertEquals(getOpposingPlayer(initPlayer), game.getPlayerOnTurn());
@@ -68,7 +73,7 @@ class ConnectFourImplTests {
         @DisplayName("... with Player.none as parameter throws InvalidPlayerException")
         @Test
         public void dropWithPlayerNoneThrowsInvalidPlayerException() {
-            ConnectFourImpl game = new ConnectFourImpl(Player.red);
+            ConnectFour game = createGame(Player.red);
             game.reset(Player.none);
 
             assertThrows(InvalidPlayerException.class, () -> game.drop(1));
@@ -78,7 +83,7 @@ class ConnectFourImplTests {
         @ParameterizedTest(name = "Player {0} places token at col {1}")
         @MethodSource("playerTurnProvider")
         public void dropPlacesPlayersTokenInTheCorrectLocation(Player player, int col) {
-            ConnectFourImpl game = new ConnectFourImpl(player);
+            ConnectFour game = createGame(player);
 
             game.drop(col);
 
@@ -89,7 +94,7 @@ class ConnectFourImplTests {
         @ParameterizedTest(name = "Dropped into column with index {0}")
         @ValueSource(ints = {-1, -10, ConnectFourImpl.BOARD_COLS, ConnectFourImpl.BOARD_COLS + 3})
         public void dropOnInvalidColThrowsIndexOutOfBoundsException(int col) {
-            ConnectFourImpl game = new ConnectFourImpl(Player.red);
+            ConnectFour game = createGame(Player.red);
 
             assertThrows(IndexOutOfBoundsException.class, () -> game.drop(col));
         }
@@ -97,7 +102,7 @@ class ConnectFourImplTests {
         @DisplayName("... to fill entire row works correctly")
         @Test
         public void dropToFillEntireRowWorksCorrectly() {
-            ConnectFourImpl game = new ConnectFourImpl(Player.red);
+            ConnectFour game = createGame(Player.red);
 
             fillEntireCol(game, 0);
 
@@ -112,7 +117,7 @@ class ConnectFourImplTests {
         @DisplayName("... on full column throws IndexOutOfRangeException")
         @Test
         public void dropFillingAboveRowThrowsIndexOutOfRangeException() {
-            ConnectFourImpl game = new ConnectFourImpl(Player.red);
+            ConnectFour game = createGame(Player.red);
             int col = 6;
 
             fillEntireCol(game, col);
@@ -132,7 +137,7 @@ class ConnectFourImplTests {
         @ParameterizedTest(name = "CurrentPlayer after reset: {0}")
         @MethodSource("playerProvider")
         public void resetChangesCurrentPlayerToParameterPlayer(Player afterResetPlayer) {
-            ConnectFourImpl game = new ConnectFourImpl(afterResetPlayer);
+            ConnectFour game = createGame(afterResetPlayer);
 
             game.reset(afterResetPlayer);
             assertEquals(afterResetPlayer, game.getPlayerOnTurn());
@@ -141,9 +146,9 @@ class ConnectFourImplTests {
         @DisplayName("... empties the entire board")
         @Test
         public void resetChangesCurrentPlayerToParameterPlayer() {
-            ConnectFourImpl game = new ConnectFourImpl(Player.red);
+            ConnectFour game = createGame(Player.red);
 
-            ConnectFourImpl gameOriginal = new ConnectFourImpl(Player.yellow);
+            ConnectFour gameOriginal = createGame(Player.yellow);
 
             fillEntireBoard(game);
 
@@ -151,6 +156,100 @@ class ConnectFourImplTests {
 
             assertEquals(gameOriginal.toString(), game.toString());
         }
+
+        @DisplayName("... clears winner, game over state and move count")
+        @Test
+        public void resetClearsWinnerAndGameOverState() {
+            ConnectFour game = createGame(Player.red);
+            fillGameWithForwardDiagonalConditionWinWithColOffset(game, 0);
+
+            game.reset(Player.red);
+
+            assertAll(
+                    () -> assertFalse(game.isGameOver()),
+                    () -> assertEquals(Player.none, game.getWinner()),
+                    () -> assertEquals(0, game.getMoveCount())
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("getMoveCount ...")
+    class MoveCountTests {
+        @DisplayName("... is zero on a new game")
+        @Test
+        public void moveCountOnNewGameIsZero() {
+            ConnectFour game = createGame(Player.red);
+
+            assertEquals(0, game.getMoveCount());
+        }
+
+        @DisplayName("... counts every drop")
+        @Test
+        public void moveCountCountsEveryDrop() {
+            ConnectFour game = createGame(Player.red);
+
+            fillEntireRow(game);
+
+            assertEquals(ConnectFourImpl.BOARD_COLS, game.getMoveCount());
+        }
+    }
+
+    @Nested
+    @DisplayName("isColumnFull and legalMoves ...")
+    class LegalMoveTests {
+        @DisplayName("... on new game reports every column as playable")
+        @Test
+        public void newGameHasEveryColumnPlayable() {
+            ConnectFour game = createGame(Player.red);
+
+            assertAll(
+                    () -> assertFalse(game.isColumnFull(0)),
+                    () -> assertArrayEquals(new int[] {0, 1, 2, 3, 4, 5, 6}, game.legalMoves())
+            );
+        }
+
+        @DisplayName("... excludes filled columns")
+        @Test
+        public void filledColumnIsNotLegal() {
+            ConnectFour game = createGame(Player.red);
+
+            fillEntireCol(game, 2);
+
+            assertAll(
+                    () -> assertTrue(game.isColumnFull(2)),
+                    () -> assertArrayEquals(new int[] {0, 1, 3, 4, 5, 6}, game.legalMoves())
+            );
+        }
+
+        @DisplayName("... is empty once the game is over")
+        @Test
+        public void gameOverHasNoLegalMoves() {
+            ConnectFour game = createGame(Player.red);
+
+            fillGameWithBackwardDiagonalConditionWinWithColOffset(game, 0);
+
+            assertEquals(0, game.legalMoves().length);
+        }
+
+        @DisplayName("... with invalid column throws IndexOutOfBoundsException")
+        @ParameterizedTest(name = "Column index {0}")
+        @ValueSource(ints = {-1, ConnectFourImpl.BOARD_COLS})
+        public void isColumnFullOnInvalidColThrowsIndexOutOfBoundsException(int col) {
+            ConnectFour game = createGame(Player.red);
+
+            assertThrows(IndexOutOfBoundsException.class, () -> game.isColumnFull(col));
+        }
+
+        @DisplayName("... drop on full column keeps the player on turn")
+        @Test
+        public void dropOnFullColumnKeepsPlayerOnTurn() {
+            ConnectFour game = createGame(Player.red);
+            fillEntireCol(game, 0);
+
+            assertThrows(IndexOutOfBoundsException.class, () -> game.drop(0));
+            assertEquals(Player.red, game.getPlayerOnTurn());
+        }
     }
 
     @Nested
@@ -164,7 +263,7 @@ class ConnectFourImplTests {
         @ParameterizedTest(name = "Dropped into column with row {0} and col {1}")
         @MethodSource("invalidPositionProvider")
         public void getPlayerAtWithInvalidPositionThrowsIndexOutOfBoundsException(int row, int col) {
-            ConnectFourImpl game = new ConnectFourImpl(Player.red);
+            ConnectFour game = createGame(Player.red);
 
             assertThrows(IndexOutOfBoundsException.class, () -> game.getPlayerAt(row, col));
         }
@@ -172,7 +271,7 @@ class ConnectFourImplTests {
         @DisplayName("... on empty position returns Player.none")
         @Test
         public void getPlayerAtOnEmptyPositionReturnsPlayerNone() {
-            ConnectFourImpl game = new ConnectFourImpl(Player.red);
+            ConnectFour game = createGame(Player.red);
 
             for (int rows = 0; rows < ConnectFourImpl.BOARD_ROWS; rows++) {
                 for (int cols = 0; cols < ConnectFourImpl.BOARD_COLS; cols++) {
@@ -192,7 +291,7 @@ class ConnectFourImplTests {
         @DisplayName("... prints filled board correctly")
         @Test
         public void toStringPrintsFilledBoardCorrectly() {
-            ConnectFourImpl game = new ConnectFourImpl(Player.red);
+            ConnectFour game = createGame(Player.red);
 
             fillEntireBoard(game);
 
@@ -221,7 +320,7 @@ class ConnectFourImplTests {
         @ParameterizedTest(name = "Player in output: {0}")
         @MethodSource("playerProvider")
         public void toStringOnInitialGameBoardPrintsAsEmptyBoard(Player outputPlayer) {
-            ConnectFourImpl game = new ConnectFourImpl(outputPlayer);
+            ConnectFour game = createGame(outputPlayer);
 
             String expectedString = "Player: %s\n".formatted(outputPlayer.toString().toUpperCase()) +
                     "| .  .  .  .  .  .  . |\n" +
@@ -237,7 +336,7 @@ class ConnectFourImplTests {
         @DisplayName("... prints board with bottom row filled correctly")
         @Test
         public void toStringPrintsBoardWithBottomLayerCorrectly() {
-            ConnectFourImpl game = new ConnectFourImpl(Player.red);
+            ConnectFour game = createGame(Player.red);
 
             for (int col = 0; col < ConnectFourImpl.BOARD_COLS; col++) {
                 game.drop(col);
@@ -260,7 +359,7 @@ class ConnectFourImplTests {
         @DisplayName("... Full Board with no win condition met is game over and winner is Player.none")
         @Test
         public void fullBoardWithNoWinConditionIsGameOverWithoutWinner() {
-            ConnectFourImpl game = createGameWithFullBoardWithoutWinner();
+            ConnectFour game = createGameWithFullBoardWithoutWinner();
 
             assertAll(
                     () -> assertTrue(game.isGameOver()),
@@ -271,7 +370,7 @@ class ConnectFourImplTests {
         @DisplayName("...horizontal alignment 4 row and red won")
         @Test
         public void boardWithHorizontalWinCondition() {
-            ConnectFourImpl game = new ConnectFourImpl(Player.red);
+            ConnectFour game = createGame(Player.red);
             int winCount = 4;
 
             for (int col = 0; col < winCount - 1; col++) {
@@ -289,7 +388,7 @@ class ConnectFourImplTests {
         @DisplayName("...vertical alignment 4 row and yellow won")
         @Test
         public void boardWithVerticalWinCondition() {
-            ConnectFourImpl game = new ConnectFourImpl(Player.red);
+            ConnectFour game = createGame(Player.red);
             int winCount = 4;
 
             game.drop(6); // 1x drop to also check for yellow win condition
@@ -307,7 +406,7 @@ class ConnectFourImplTests {
         @ParameterizedTest(name="diagonal starting from 0 0 to 3 3 with a col offset of {0}")
         @ValueSource(ints = {0, 1, 2})
         public void boardWithForwardDiagonalWinCondition(int colOffset) {
-            ConnectFourImpl game = new ConnectFourImpl(Player.red);
+            ConnectFour game = createGame(Player.red);
             fillGameWithForwardDiagonalConditionWinWithColOffset(game, colOffset);
 
             assertAll(
@@ -320,7 +419,7 @@ class ConnectFourImplTests {
         @ParameterizedTest(name="diagonal starting from 0 0 to 3 3 with a col offset of {0}")
         @ValueSource(ints = {0, 1, 2})
         public void boardWithRowOffsetAndForwardDiagonalWinCondition(int colOffset) {
-            ConnectFourImpl game = new ConnectFourImpl(Player.red);
+            ConnectFour game = createGame(Player.red);
             fillEntireRow(game);
 
             fillGameWithForwardDiagonalConditionWinWithColOffset(game, colOffset);
@@ -335,7 +434,7 @@ class ConnectFourImplTests {
         @ParameterizedTest(name="diagonal starting from 3 0 to 0 3 with a col offset of {0}")
         @ValueSource(ints = {0, 1, 2})
         public void boardWithBackwardsDiagonalWinCondition(int colOffset) {
-            ConnectFourImpl game = new ConnectFourImpl(Player.red);
+            ConnectFour game = createGame(Player.red);
 
             fillGameWithBackwardDiagonalConditionWinWithColOffset(game, colOffset);
 
@@ -348,13 +447,13 @@ class ConnectFourImplTests {
         @DisplayName("... is not met if board is still empty")
         @Test
         public void emptyBoardGameIsNotOver() {
-            ConnectFourImpl game = new ConnectFourImpl(Player.red);
+            ConnectFour game = createGame(Player.red);
 
             assertFalse(game.isGameOver());
         }
     }
 
-    private static void fillGameWithForwardDiagonalConditionWinWithColOffset(ConnectFourImpl game, int colOffset) {
+    private static void fillGameWithForwardDiagonalConditionWinWithColOffset(ConnectFour game, int colOffset) {
         game.drop(colOffset);
         game.drop(1 + colOffset);
 
@@ -373,7 +472,7 @@ class ConnectFourImplTests {
         game.drop(3 + colOffset);
     }
 
-    private static void fillGameWithBackwardDiagonalConditionWinWithColOffset(ConnectFourImpl game, int colOffset) {
+    private static void fillGameWithBackwardDiagonalConditionWinWithColOffset(ConnectFour game, int colOffset) {
         int baseline = 4 + colOffset;
 
         game.drop(baseline);
@@ -394,8 +493,8 @@ class ConnectFourImplTests {
         game.drop(baseline - 3);
     }
 
-    private static ConnectFourImpl createGameWithFullBoardWithoutWinner() {
-        ConnectFourImpl game = new ConnectFourImpl(Player.red);
+    private ConnectFour createGameWithFullBoardWithoutWinner() {
+        ConnectFour game = createGame(Player.red);
 
         /** For Visual guidance
          *
@@ -438,19 +537,180 @@ class ConnectFourImplTests {
         return game;
     }
 
-    private static void fillEntireBoard(ConnectFourImpl game) {
+    private static void fillEntireBoard(ConnectFour game) {
         for (int col = 0; col < ConnectFourImpl.BOARD_COLS; col++) {
             fillEntireCol(game, col);
         }
     }
 
-    private static void fillEntireCol(ConnectFourImpl game, int col) {
+    private static void fillEntireCol(ConnectFour game, int col) {
         for (int row = 0; row < ConnectFourImpl.BOARD_ROWS; row++) {
             game.drop(col);
         }
     }
 
-    private static void fillEntireRow(ConnectFourImpl game) {
+    @Nested
+    @DisplayName("positionKey ...")
+    class PositionKeyTests {
+        @DisplayName("... is the same for move orders reaching the same position")
+        @Test
+        public void transpositionsShareKey() {
+            ConnectFour game = createGame(Player.red);
+            ConnectFour other = createGame(Player.red);
+            for (int col : new int[]{3, 2, 4, 2}) {
+                game.drop(col);
+            }
+            for (int col : new int[]{4, 2, 3, 2}) {
+                other.drop(col);
+            }
+
+            assertEquals(game.positionKey(), other.positionKey());
+        }
+
+        @DisplayName("... differs for other discs or another player on turn")
+        @Test
+        public void differentPositionsDiffer() {
+            ConnectFour game = createGame(Player.red);
+            ConnectFour other = createGame(Player.yellow);
+            long empty = game.positionKey();
+            game.drop(3);
+            other.drop(3);
+
+            assertAll(
+                    () -> assertNotEquals(empty, other.positionKey()),
+                    () -> assertNotEquals(empty, game.positionKey()),
+                    () -> assertNotEquals(game.positionKey(), other.positionKey())
+            );
+        }
+
+        @DisplayName("... follows every drop and reset")
+        @Test
+        public void keyMatchesBoard() {
+            ConnectFour game = createGame(Player.yellow);
+            long empty = game.positionKey();
+            Random random = new Random(42);
+
+            while (!game.isGameOver()) {
+                int[] moves = game.legalMoves();
+                game.drop(moves[random.nextInt(moves.length)]);
+                assertEquals(Zobrist.of(game), game.positionKey());
+            }
+            game.reset(Player.yellow);
+
+            assertEquals(empty, game.positionKey());
+        }
+    }
+
+    @Nested
+    @DisplayName("undo, redo and moves ...")
+    class UndoTests {
+        @DisplayName("... have nothing to take back or replay on a new game")
+        @Test
+        public void newGameHasNoHistory() {
+            ConnectFour game = createGame(Player.red);
+
+            assertAll(
+                    () -> assertEquals(-1, game.undo()),
+                    () -> assertEquals(-1, game.redo()),
+                    () -> assertArrayEquals(new int[0], game.moves())
+            );
+        }
+
+        @DisplayName("... list the columns played in order")
+        @Test
+        public void movesListHistory() {
+            ConnectFour game = createGame(Player.yellow);
+            game.drop(3);
+            game.drop(3);
+            game.drop(6);
+
+            assertArrayEquals(new int[]{3, 3, 6}, game.moves());
+        }
+
+        @DisplayName("... take every move back to the previous position")
+        @Test
+        public void undoRestoresPreviousPosition() {
+            ConnectFour game = createGame(Player.red);
+            Random random = new Random(7);
+
+            while (!game.isGameOver()) {
+                String before = game.toString();
+                long key = game.positionKey();
+                int[] moves = game.legalMoves();
+                int col = moves[random.nextInt(moves.length)];
+
+                game.drop(col);
+                Player winner = game.getWinner();
+                assertEquals(col, game.undo());
+                assertAll(
+                        () -> assertEquals(before, game.toString()),
+                        () -> assertEquals(key, game.positionKey()),
+                        () -> assertFalse(game.isGameOver())
+                );
+
+                assertEquals(col, game.redo());
+                assertEquals(winner, game.getWinner());
+            }
+
+            while (game.getMoveCount() > 0) {
+                game.undo();
+            }
+            assertEquals(createGame(Player.red).toString(), game.toString());
+        }
+
+        @DisplayName("... take back a winning move")
+        @Test
+        public void undoTakesBackWin() {
+            ConnectFour game = createGame(Player.red);
+            for (int col : new int[]{0, 1, 0, 1, 0, 1, 0}) {
+                game.drop(col);
+            }
+
+            game.undo();
+
+            assertAll(
+                    () -> assertFalse(game.isGameOver()),
+                    () -> assertEquals(Player.none, game.getWinner()),
+                    () -> assertEquals(Player.red, game.getPlayerOnTurn())
+            );
+        }
+
+        @DisplayName("... replay moves until a new disc is dropped")
+        @Test
+        public void dropDiscardsRedo() {
+            ConnectFour game = createGame(Player.red);
+            game.drop(1);
+            game.drop(2);
+            game.undo();
+            game.undo();
+
+            assertEquals(1, game.redo());
+            game.drop(5);
+
+            assertAll(
+                    () -> assertEquals(-1, game.redo()),
+                    () -> assertArrayEquals(new int[]{1, 5}, game.moves())
+            );
+        }
+
+        @DisplayName("... start over after a reset")
+        @Test
+        public void resetClearsHistory() {
+            ConnectFour game = createGame(Player.red);
+            game.drop(1);
+            game.undo();
+            game.drop(2);
+            game.reset(Player.red);
+
+            assertAll(
+                    () -> assertEquals(-1, game.undo()),
+                    () -> assertEquals(-1, game.redo()),
+                    () -> assertArrayEquals(new int[0], game.moves())
+            );
+        }
+    }
+
+    private static void fillEntireRow(ConnectFour game) {
         for (int col = 0; col < ConnectFourImpl.BOARD_COLS; col++) {
             game.drop(col);
         }
@@ -0,0 +1,230 @@
+package spw4.connectfour;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameArchiveAnalyzerTests {
+    private static final Rules ROW_RULES = new Rules(1, 4, 2);
+
+    @TempDir
+    Path directory;
+
+    private Path write(String name, List<GameHistory> games) throws IOException {
+        Map<UUID, GameHistory> snapshot = new LinkedHashMap<>();
+        for (GameHistory game : games) {
+            snapshot.put(UUID.randomUUID(), game);
+        }
+
+        Path file = directory.resolve(name);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            GameCodec.writeSnapshot(out, snapshot);
+        }
+
+        return file;
+    }
+
+    private static GameHistory standard(Player firstPlayer, int... moves) {
+        return new GameHistory(Rules.STANDARD, firstPlayer, moves);
+    }
+
+    private static List<GameHistory> randomGames(Random random, int count) {
+        List<GameHistory> games = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Rules rules = random.nextInt(10) == 0 ? ROW_RULES : Rules.STANDARD;
+            Player firstPlayer = random.nextBoolean() ? Player.red : Player.yellow;
+            ConnectFour game = ConnectFourEngine.array.create(rules, firstPlayer);
+            while (!game.isGameOver() && random.nextInt(50) != 0) {
+                int[] legal = game.legalMoves();
+                game.drop(legal[random.nextInt(legal.length)]);
+            }
+            games.add(new GameHistory(rules, firstPlayer, game.moves()));
+        }
+
+        return games;
+    }
+
+    @DisplayName("Outcomes, first moves and lengths of finished games are counted")
+    @Test
+    public void finishedGamesAreCounted() throws IOException {
+        Path file = write("games.bin", List.of(
+                standard(Player.red, 0, 1, 0, 1, 0, 1, 0),
+                standard(Player.yellow, 0, 1, 0, 1, 0, 1, 0),
+                standard(Player.red, 3, 0, 4, 0, 5, 0, 1, 0),
+                new GameHistory(ROW_RULES, Player.red, new int[] {0, 1, 2, 3})));
+
+        GameArchiveAnalyzer.Result result = new GameArchiveAnalyzer(2).analyze(List.of(file));
+        GameStatistics standard = result.statistics().get(Rules.STANDARD);
+        GameStatistics row = result.statistics().get(ROW_RULES);
+
+        assertAll(
+                () -> assertEquals(4, result.games()),
+                () -> assertEquals(Files.size(file), result.bytes()),
+                () -> assertEquals(3, standard.getFinishedGames()),
+                () -> assertEquals(1, standard.getWins(Player.red)),
+                () -> assertEquals(2, standard.getWins(Player.yellow)),
+                () -> assertEquals(2, standard.getGamesStartingIn(0)),
+                () -> assertEquals(1, standard.getFirstPlayerWinRate(0)),
+                () -> assertEquals(0, standard.getFirstPlayerWinRate(3)),
+                () -> assertEquals(2, standard.getGamesOfLength(7)),
+                () -> assertEquals(22 / 3.0, standard.getMeanLength(), 1e-9),
+                () -> assertEquals(1, row.getWins(Player.none)),
+                () -> assertEquals(1, row.getGamesOfLength(4))
+        );
+    }
+
+    @DisplayName("Games with impossible moves are illegal and games that stop early are unfinished")
+    @Test
+    public void illegalAndUnfinishedGamesAreCounted() throws IOException {
+        Path file = write("games.bin", List.of(
+                standard(Player.red, 0, 0, 0, 0, 0, 0, 0),
+                standard(Player.red, 0, 1, 0, 1, 0, 1, 0, 1),
+                standard(Player.red, 3, 9),
+                standard(Player.red, 3, 3, 2),
+                standard(Player.yellow)));
+
+        GameStatistics statistics = new GameArchiveAnalyzer(1).analyze(List.of(file)).statistics().get(Rules.STANDARD);
+
+        assertAll(
+                () -> assertEquals(5, statistics.getGames()),
+                () -> assertEquals(3, statistics.getIllegalGames()),
+                () -> assertEquals(2, statistics.getUnfinishedGames()),
+                () -> assertEquals(0, statistics.getFinishedGames())
+        );
+    }
+
+    @DisplayName("Entries that cannot be decoded are counted as corrupt and skipped")
+    @Test
+    public void corruptEntriesAreSkipped() throws IOException {
+        Path file = write("games.bin", List.of(
+                standard(Player.red, 0, 1, 0, 1, 0, 1, 0),
+                standard(Player.red, 0, 1, 0, 1, 0, 1, 0)));
+        byte[] bytes = Files.readAllBytes(file);
+        // header, id and length of the first entry precede its version
+        bytes[9 + 16 + 1] = 99;
+        Files.write(file, bytes);
+
+        GameArchiveAnalyzer.Result result = new GameArchiveAnalyzer(1).analyze(List.of(file));
+
+        assertAll(
+                () -> assertEquals(1, result.corruptEntries()),
+                () -> assertEquals(1, result.statistics().get(Rules.STANDARD).getWins(Player.red))
+        );
+    }
+
+    @DisplayName("Entries whose rules the engine cannot play are counted as corrupt instead of stalling the analysis")
+    @Test
+    public void unplayableEntriesAreCorrupt() throws IOException {
+        Path file = directory.resolve("games.bin");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeInt(GameCodec.SNAPSHOT_MAGIC);
+            out.writeByte(GameCodec.VERSION);
+            out.writeInt(1);
+            out.write(new byte[16]);
+            // red first on custom 65536x65536 connect 4 rules, one move into column 0
+            byte[] entry = {GameCodec.VERSION, 0b0101, (byte) 0x80, (byte) 0x80, 0x04, (byte) 0x80, (byte) 0x80, 0x04, 4, 1, 0};
+            out.writeByte(entry.length);
+            out.write(entry);
+        }
+
+        GameArchiveAnalyzer.Result result = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> new GameArchiveAnalyzer(1).analyze(List.of(file)));
+
+        assertAll(
+                () -> assertEquals(1, result.corruptEntries()),
+                () -> assertEquals(1, result.games())
+        );
+    }
+
+    @DisplayName("Negative entry lengths are rejected instead of rewinding the scan")
+    @Test
+    public void negativeEntryLengthsAreRejected() throws IOException {
+        Path file = write("games.bin", List.of(
+                standard(Player.red, 0, 1, 0, 1, 0, 1, 0),
+                standard(Player.red, 0, 1, 0, 1, 0, 1, 0)));
+        byte[] bytes = Files.readAllBytes(file);
+        ByteArrayOutputStream patched = new ByteArrayOutputStream();
+        // the one-byte length of the first entry becomes the varint of -1000
+        patched.write(bytes, 0, 9 + 16);
+        patched.write(new byte[]{(byte) 0x98, (byte) 0xf8, (byte) 0xff, (byte) 0xff, 0x0f});
+        patched.write(bytes, 9 + 16 + 1, bytes.length - (9 + 16 + 1));
+        Files.write(file, patched.toByteArray());
+
+        IOException e = assertThrows(IOException.class, () -> new GameArchiveAnalyzer(1).analyze(List.of(file)));
+        assertTrue(e.getMessage().startsWith("malformed entry length"), e.getMessage());
+    }
+
+    @DisplayName("Small windows, small chunks and many threads add up to the same statistics as one thread")
+    @Test
+    public void parallelAnalysisMatchesSequential() throws IOException {
+        Random random = new Random(42);
+        List<Path> files = List.of(
+                write("first.bin", randomGames(random, 3000)),
+                write("second.bin", randomGames(random, 2000)));
+
+        GameArchiveAnalyzer.Result sequential = new GameArchiveAnalyzer(1).analyze(files);
+        GameArchiveAnalyzer.Result parallel = new GameArchiveAnalyzer(4, 4096, 512).analyze(files);
+
+        assertEquals(5000, sequential.games());
+        assertEquals(sequential.bytes(), parallel.bytes());
+        for (Rules rules : List.of(Rules.STANDARD, ROW_RULES)) {
+            GameStatistics expected = sequential.statistics().get(rules);
+            GameStatistics actual = parallel.statistics().get(rules);
+            assertAll(
+                    () -> assertEquals(expected.getGames(), actual.getGames()),
+                    () -> assertEquals(expected.getUnfinishedGames(), actual.getUnfinishedGames()),
+                    () -> assertEquals(expected.getWins(Player.red), actual.getWins(Player.red)),
+                    () -> assertEquals(expected.getWins(Player.yellow), actual.getWins(Player.yellow)),
+                    () -> assertEquals(expected.getWins(Player.none), actual.getWins(Player.none)),
+                    () -> assertEquals(expected.getMeanLength(), actual.getMeanLength(), 1e-9),
+                    () -> assertEquals(expected.getGamesStartingIn(2), actual.getGamesStartingIn(2))
+            );
+        }
+    }
+
+    @DisplayName("Results agree with replaying every game on its own")
+    @Test
+    public void resultsMatchReplay() throws IOException {
+        List<GameHistory> games = randomGames(new Random(7), 1000);
+        long redWins = 0;
+        long unfinished = 0;
+        for (GameHistory history : games) {
+            if (!history.rules().equals(Rules.STANDARD)) {
+                continue;
+            }
+            ConnectFour game = history.replay(ConnectFourEngine.array);
+            redWins += game.getWinner() == Player.red ? 1 : 0;
+            unfinished += game.isGameOver() ? 0 : 1;
+        }
+
+        GameStatistics statistics = new GameArchiveAnalyzer(2, 1024, 128).analyze(List.of(write("games.bin", games))).statistics().get(Rules.STANDARD);
+
+        assertEquals(redWins, statistics.getWins(Player.red));
+        assertEquals(unfinished, statistics.getUnfinishedGames());
+    }
+
+    @DisplayName("Files that are no snapshot or are cut short are rejected")
+    @Test
+    public void invalidFilesAreRejected() throws IOException {
+        Path other = Files.write(directory.resolve("other.bin"), new byte[32]);
+        Path games = write("games.bin", randomGames(new Random(1), 100));
+        byte[] bytes = Files.readAllBytes(games);
+        Path truncated = Files.write(directory.resolve("truncated.bin"), Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertAll(
+                () -> assertThrows(IOException.class, () -> new GameArchiveAnalyzer(1).analyze(List.of(other))),
+                () -> assertThrows(IOException.class, () -> new GameArchiveAnalyzer(2, 256, 64).analyze(List.of(truncated)))
+        );
+    }
+}
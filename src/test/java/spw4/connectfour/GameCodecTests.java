@@ -0,0 +1,196 @@
+package spw4.connectfour;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static spw4.connectfour.TestGames.assertSameBoard;
+
+class GameCodecTests {
+    private static final long SEED = 42;
+
+    private static GameHistory randomHistory(Random random, Rules rules, ConnectFourEngine engine) {
+        Player firstPlayer = random.nextBoolean() ? Player.red : Player.yellow;
+        ConnectFour game = engine.create(rules, firstPlayer);
+
+        int length = random.nextInt(rules.cellCount() + 1);
+        int[] moves = new int[length];
+        int count = 0;
+        while (count < length && !game.isGameOver()) {
+            int[] legal = game.legalMoves();
+            int col = legal[random.nextInt(legal.length)];
+            game.drop(col);
+            moves[count++] = col;
+        }
+
+        return new GameHistory(rules, firstPlayer, Arrays.copyOf(moves, count));
+    }
+
+    @Nested
+    class PositionTests {
+
+        @DisplayName("Positions of both engines survive an encode/decode roundtrip")
+        @ParameterizedTest
+        @EnumSource(ConnectFourEngine.class)
+        public void positionRoundtrip(ConnectFourEngine engine) {
+            Random random = new Random(SEED);
+
+            for (int i = 0; i < 1000; i++) {
+                ConnectFour game = randomHistory(random, Rules.STANDARD, engine).replay(engine);
+                ConnectFour decoded = GameCodec.decodePosition(GameCodec.encodePosition(game));
+
+                assertSameBoard(game, decoded);
+            }
+        }
+
+        @DisplayName("Decoded positions count their discs as moves but have no history")
+        @Test
+        public void decodedPositionsHaveNoHistory() {
+            ConnectFour decoded = GameCodec.decodePosition(GameCodec.encodePosition(
+                    new GameHistory(Rules.STANDARD, Player.red, new int[]{3, 3, 4}).replay(ConnectFourEngine.bitboard)));
+            long key = decoded.positionKey();
+
+            decoded.drop(2);
+            int undone = decoded.undo();
+
+            assertAll(
+                    () -> assertEquals(2, undone),
+                    () -> assertEquals(-1, decoded.undo()),
+                    () -> assertEquals(3, decoded.getMoveCount()),
+                    () -> assertArrayEquals(new int[0], decoded.moves()),
+                    () -> assertEquals(key, decoded.positionKey())
+            );
+        }
+
+        @DisplayName("Both engines encode the same position to the same value")
+        @Test
+        public void enginesAgreeOnPosition() {
+            GameHistory history = new GameHistory(Rules.STANDARD, Player.yellow, new int[]{3, 3, 4, 2, 6});
+
+            assertEquals(
+                    GameCodec.encodePosition(history.replay(ConnectFourEngine.array)),
+                    GameCodec.encodePosition(history.replay(ConnectFourEngine.bitboard)));
+        }
+
+        @DisplayName("Non-standard rules cannot be encoded as a position")
+        @Test
+        public void customRulesAreRejected() {
+            ConnectFour game = new ConnectFourImpl(new Rules(8, 9, 5), Player.red);
+
+            assertThrows(IllegalArgumentException.class, () -> GameCodec.encodePosition(game));
+        }
+    }
+
+    @Nested
+    class HistoryTests {
+
+        @DisplayName("Histories survive an encode/decode roundtrip")
+        @Test
+        public void historyRoundtrip() {
+            Random random = new Random(SEED);
+            List<Rules> rules = List.of(Rules.STANDARD, new Rules(8, 9, 5), new Rules(4, 16, 3), new Rules(3, 40, 4));
+
+            for (int i = 0; i < 500; i++) {
+                GameHistory history = randomHistory(random, rules.get(i % rules.size()), ConnectFourEngine.array);
+
+                assertEquals(history, GameCodec.decodeHistory(GameCodec.encodeHistory(history)));
+            }
+        }
+
+        @DisplayName("A standard game takes two header bytes, one count byte and half a byte per move")
+        @Test
+        public void standardHistoryIsCompact() {
+            GameHistory history = new GameHistory(Rules.STANDARD, Player.red, new int[]{3, 3, 2, 4, 1, 5, 6, 0, 0, 1, 1, 2, 2, 6});
+
+            assertEquals(2 + 1 + 7, GameCodec.encodeHistory(history).length);
+        }
+
+        @DisplayName("The side the computer plays survives an encode/decode roundtrip")
+        @Test
+        public void computerPlayerRoundtrip() {
+            for (Player computer : Player.values()) {
+                GameHistory history = new GameHistory(new Rules(5, 20, 4), Player.yellow, computer, new int[]{19, 0, 7});
+
+                assertEquals(history, GameCodec.decodeHistory(GameCodec.encodeHistory(history)));
+            }
+        }
+
+        @DisplayName("A game reset to no player keeps its first player")
+        @Test
+        public void historyWithoutPlayer() {
+            GameHistory history = new GameHistory(new Rules(5, 5, 3), Player.none, new int[0]);
+
+            assertEquals(history, GameCodec.decodeHistory(GameCodec.encodeHistory(history)));
+        }
+
+        @DisplayName("Unknown versions and truncated input are rejected")
+        @Test
+        public void malformedInputIsRejected() {
+            byte[] encoded = GameCodec.encodeHistory(new GameHistory(Rules.STANDARD, Player.red, new int[]{1, 2, 3}));
+            byte[] unknownVersion = encoded.clone();
+            unknownVersion[0] = 2;
+
+            assertAll(
+                    () -> assertThrows(IllegalArgumentException.class, () -> GameCodec.decodeHistory(unknownVersion)),
+                    () -> assertThrows(IllegalArgumentException.class, () -> GameCodec.decodeHistory(Arrays.copyOf(encoded, encoded.length - 1)))
+            );
+        }
+
+        @DisplayName("Move counts that are negative or exceed the board are rejected before allocating")
+        @Test
+        public void impossibleMoveCountsAreRejected() {
+            byte[] tooMany = GameCodec.encodeHistory(new GameHistory(Rules.STANDARD, Player.red, new int[]{1, 2, 3}));
+            tooMany[2] = (byte) (Rules.STANDARD.cellCount() + 1);
+            byte[] negative = {GameCodec.VERSION, (byte) Player.red.ordinal(), (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x0f};
+
+            assertAll(
+                    () -> assertThrows(IllegalArgumentException.class, () -> GameCodec.decodeHistory(tooMany)),
+                    () -> assertThrows(IllegalArgumentException.class, () -> GameCodec.decodeHistory(negative))
+            );
+        }
+    }
+
+    @DisplayName("Snapshots keep every game in order")
+    @Test
+    public void snapshotRoundtrip() throws IOException {
+        Random random = new Random(SEED);
+        Map<UUID, GameHistory> games = new LinkedHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            games.put(new UUID(random.nextLong(), random.nextLong()), randomHistory(random, i % 2 == 0 ? Rules.STANDARD : new Rules(7, 20, 4), ConnectFourEngine.array));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GameCodec.writeSnapshot(out, games);
+
+        Map<UUID, GameHistory> read = new LinkedHashMap<>();
+        GameCodec.readSnapshot(new ByteArrayInputStream(out.toByteArray()), read::put);
+
+        assertEquals(new ArrayList<>(games.entrySet()), new ArrayList<>(read.entrySet()));
+    }
+
+    @DisplayName("Snapshots with a negative entry length are rejected as malformed")
+    @Test
+    public void negativeSnapshotLengthsAreRejected() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GameCodec.writeSnapshot(out, Map.of(UUID.randomUUID(), new GameHistory(Rules.STANDARD, Player.red, new int[]{3})));
+        byte[] bytes = out.toByteArray();
+        ByteArrayOutputStream patched = new ByteArrayOutputStream();
+        // the one-byte length of the entry becomes the varint of -1000
+        patched.write(bytes, 0, 9 + 16);
+        patched.write(new byte[]{(byte) 0x98, (byte) 0xf8, (byte) 0xff, (byte) 0xff, 0x0f});
+        patched.write(bytes, 9 + 16 + 1, bytes.length - (9 + 16 + 1));
+
+        IOException e = assertThrows(IOException.class,
+                () -> GameCodec.readSnapshot(new ByteArrayInputStream(patched.toByteArray()), (id, game) -> {
+                }));
+        assertTrue(e.getMessage().startsWith("malformed entry length"), e.getMessage());
+    }
+}
@@ -0,0 +1,143 @@
+package spw4.connectfour;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import spw4.connectfour.ai.MonteCarloEstimator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static spw4.connectfour.TestGames.play;
+
+class GamePageRendererTests {
+    private static final UUID ID = UUID.fromString("2e7202ee-4e94-4964-beae-68653af4fa7b");
+
+    private static String render(GamePageRenderer renderer, UUID id, ConnectFour game) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        renderer.prepare(game).writeTo(out, id);
+
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @DisplayName("Every drop button and the refresh link carry the game id")
+    @Test
+    public void idIsInsertedIntoLinks() throws IOException {
+        String page = render(new GamePageRenderer(), ID, play(Rules.STANDARD, 3));
+
+        assertAll(
+                () -> assertTrue(page.contains("href=\"ConnectFour?id=" + ID + "&action=c1\"")),
+                () -> assertTrue(page.contains("href=\"ConnectFour?id=" + ID + "&action=c7\"")),
+                () -> assertTrue(page.contains("href=\"ConnectFour?id=" + ID + "\">Refresh</a>")),
+                () -> assertTrue(page.contains("new EventSource(\"ConnectFour/events?id=" + ID + "\")")),
+                () -> assertTrue(page.contains("<h5>Player: YELLOW</h5>"))
+        );
+    }
+
+    @DisplayName("Games in the same position share a cached page but keep their own id")
+    @Test
+    public void cachedPageUsesOwnId() throws IOException {
+        GamePageRenderer renderer = new GamePageRenderer();
+        UUID otherId = UUID.randomUUID();
+
+        String first = render(renderer, ID, play(Rules.STANDARD, 3, 4));
+        String second = render(renderer, otherId, play(Rules.STANDARD, 3, 4));
+
+        assertSame(renderer.prepare(play(Rules.STANDARD, 3, 4)), renderer.prepare(play(Rules.STANDARD, 3, 4)));
+        assertEquals(first.replace(ID.toString(), otherId.toString()), second);
+    }
+
+    @DisplayName("Cached and uncached pages are identical")
+    @Test
+    public void cachedPagesMatchUncachedPages() throws IOException {
+        GamePageRenderer cached = new GamePageRenderer(16);
+        GamePageRenderer uncached = new GamePageRenderer(0);
+        Random random = new Random(42);
+
+        for (int i = 0; i < 500; i++) {
+            ConnectFour game = ConnectFourEngine.bitboard.create(Player.red);
+            int moves = random.nextInt(Rules.STANDARD.cellCount());
+            for (int move = 0; move < moves && !game.isGameOver(); move++) {
+                int[] legal = game.legalMoves();
+                game.drop(legal[random.nextInt(legal.length)]);
+            }
+
+            UUID id = UUID.randomUUID();
+            assertEquals(render(uncached, id, game), render(cached, id, game));
+        }
+    }
+
+    @DisplayName("Finished games show the result and no drop buttons")
+    @Test
+    public void finishedGameShowsResult() throws IOException {
+        String page = render(new GamePageRenderer(), ID, play(Rules.STANDARD, 0, 1, 0, 1, 0, 1, 0));
+
+        assertAll(
+                () -> assertTrue(page.contains("RED WINS")),
+                () -> assertFalse(page.contains("&action=c"))
+        );
+    }
+
+    @DisplayName("Pages of games with other rules link to a new game with the same rules")
+    @Test
+    public void customRulesAreKeptForNewGame() throws IOException {
+        String page = render(new GamePageRenderer(), ID, play(new Rules(5, 9, 3), 8));
+
+        assertAll(
+                () -> assertTrue(page.contains("href=\"ConnectFour?action=new&rows=5&cols=9&connect=3\"")),
+                () -> assertTrue(page.contains("&action=c9\""))
+        );
+    }
+
+    @DisplayName("Pages against the computer keep the mode for a new game and are cached apart from two-player pages")
+    @Test
+    public void computerModeIsKeptForNewGame() throws IOException {
+        GamePageRenderer renderer = new GamePageRenderer();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        renderer.prepare(play(Rules.STANDARD, 3, 3), Player.yellow).writeTo(out, ID);
+        String page = out.toString(StandardCharsets.UTF_8);
+
+        assertAll(
+                () -> assertTrue(page.contains("href=\"ConnectFour?action=new&computer=yellow\">New Game</a>")),
+                () -> assertTrue(page.contains("href=\"ConnectFour?action=new\">Two Players</a>")),
+                () -> assertTrue(render(renderer, ID, play(Rules.STANDARD, 3, 3)).contains("href=\"ConnectFour?action=new&computer=yellow\">vs Computer</a>"))
+        );
+    }
+
+    @DisplayName("Running games show win probabilities below the board once estimated, finished games do not")
+    @Test
+    public void winProbabilitiesAreShown() throws Exception {
+        try (MonteCarloEstimator estimator = new MonteCarloEstimator()) {
+            GamePageRenderer renderer = new GamePageRenderer(16, estimator, 1_000);
+
+            String first = render(renderer, ID, play(Rules.STANDARD, 3));
+            String running = first;
+            for (int i = 0; i < 500 && !running.contains("DRAW "); i++) {
+                Thread.sleep(10);
+                running = render(renderer, ID, play(Rules.STANDARD, 3));
+            }
+            String estimated = running;
+            String finished = render(renderer, ID, play(Rules.STANDARD, 0, 1, 0, 1, 0, 1, 0));
+
+            assertAll(
+                    () -> assertFalse(first.contains("DRAW ")),
+                    () -> assertTrue(estimated.matches("(?s).*badge-danger\">RED \\d{1,3}%.*badge-secondary\">DRAW \\d{1,3}%.*badge-warning\">YELLOW \\d{1,3}%.*")),
+                    () -> assertFalse(finished.contains("DRAW "))
+            );
+        }
+    }
+
+    @DisplayName("Moves can be taken back once a disc was dropped")
+    @Test
+    public void takeBackNeedsMove() throws IOException {
+        GamePageRenderer renderer = new GamePageRenderer();
+
+        assertAll(
+                () -> assertTrue(render(renderer, ID, play(Rules.STANDARD)).contains("disabled\" aria-disabled=\"true\">Take Back")),
+                () -> assertTrue(render(renderer, ID, play(Rules.STANDARD, 3)).contains("href=\"ConnectFour?id=" + ID + "&action=undo\">Take Back"))
+        );
+    }
+}
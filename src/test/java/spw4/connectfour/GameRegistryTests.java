@@ -0,0 +1,165 @@
+package spw4.connectfour;
+
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameRegistryTests {
+    private static final int THREADS = 8;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @DisplayName("Games created concurrently are all registered")
+    @Test
+    public void concurrentlyCreatedGamesAreRegistered() throws Exception {
+        GameRegistry registry = new GameRegistry(ConnectFourEngine.bitboard);
+
+        List<Future<GameSession>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            futures.add(executor.submit(() -> registry.create(Rules.STANDARD, Player.red)));
+        }
+
+        for (Future<GameSession> future : futures) {
+            GameSession session = future.get();
+            assertSame(session, registry.get(session.getId()));
+        }
+        assertEquals(1000, registry.size());
+    }
+
+    @DisplayName("Concurrent drops on the same game are serialized")
+    @Test
+    public void concurrentDropsOnSameGameAreSerialized() throws Exception {
+        GameRegistry registry = new GameRegistry(ConnectFourEngine.array);
+        GameSession session = registry.create(new Rules(50, 50, 50), Player.red);
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int col = thread;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 100; i++) {
+                    if (session.drop(col)) {
+                        accepted.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        assertAll(
+                () -> assertEquals(THREADS * 50, accepted.get()),
+                () -> assertEquals(accepted.get(), session.read(ConnectFour::getMoveCount)),
+                () -> assertEquals(Player.red, session.read(ConnectFour::getPlayerOnTurn))
+        );
+    }
+
+    @DisplayName("Least recently used game is evicted when over capacity")
+    @Test
+    public void leastRecentlyUsedGameIsEvictedOverCapacity() {
+        AtomicLong clock = new AtomicLong();
+        GameRegistry registry = new GameRegistry(ConnectFourEngine.bitboard, 2, Duration.ofMinutes(1), clock::get);
+
+        GameSession first = registry.create(Rules.STANDARD, Player.red);
+        GameSession second = registry.create(Rules.STANDARD, Player.red);
+        registry.get(first.getId());
+        GameSession third = registry.create(Rules.STANDARD, Player.red);
+
+        assertAll(
+                () -> assertSame(first, registry.get(first.getId())),
+                () -> assertNull(registry.get(second.getId())),
+                () -> assertSame(third, registry.get(third.getId())),
+                () -> assertEquals(2, registry.size()),
+                () -> assertEquals(1, registry.getEvictionCount())
+        );
+    }
+
+    @DisplayName("Idle games expire after the timeout")
+    @Test
+    public void idleGamesExpireAfterTimeout() {
+        AtomicLong clock = new AtomicLong();
+        GameRegistry registry = new GameRegistry(ConnectFourEngine.bitboard, 1, Duration.ofSeconds(10), clock::get);
+
+        GameSession session = registry.create(Rules.STANDARD, Player.red);
+        clock.addAndGet(Duration.ofSeconds(9).toNanos());
+        assertSame(session, registry.get(session.getId()));
+
+        clock.addAndGet(Duration.ofSeconds(11).toNanos());
+
+        assertAll(
+                () -> assertNull(registry.get(session.getId())),
+                () -> assertEquals(0, registry.size()),
+                () -> assertEquals(1, registry.getExpirationCount()),
+                () -> assertEquals(0, registry.getEvictionCount())
+        );
+    }
+
+    @DisplayName("Listeners hear of every created game before its removal, however soon it is evicted")
+    @Test
+    public void creationIsAnnouncedBeforeRemoval() throws Exception {
+        GameRegistry registry = new GameRegistry(ConnectFourEngine.bitboard, 1, Duration.ofMinutes(1));
+        List<String> events = new CopyOnWriteArrayList<>();
+        registry.addListener(new GameListener() {
+            @Override
+            public void gameCreated(UUID id, ConnectFour game, Player computerPlayer) {
+                events.add("created " + id);
+            }
+
+            @Override
+            public void gameRemoved(UUID id) {
+                events.add("removed " + id);
+            }
+        });
+
+        List<Future<GameSession>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            futures.add(executor.submit(() -> registry.create(Rules.STANDARD, Player.red)));
+        }
+        for (Future<GameSession> future : futures) {
+            UUID id = future.get().getId();
+            int removed = events.indexOf("removed " + id);
+            assertTrue(removed < 0 || events.indexOf("created " + id) < removed);
+        }
+    }
+
+    @DisplayName("Evicted games cannot be read anymore")
+    @Test
+    public void evictedGamesAreNotRead() {
+        GameRegistry registry = new GameRegistry(ConnectFourEngine.bitboard, 1, Duration.ofMinutes(1));
+        GameSession evicted = registry.create(Rules.STANDARD, Player.red);
+        registry.create(Rules.STANDARD, Player.red);
+
+        assertNull(evicted.read(ConnectFour::getMoveCount));
+    }
+
+    @DisplayName("Unknown game id returns null")
+    @Test
+    public void unknownGameIdReturnsNull() {
+        GameRegistry registry = new GameRegistry(ConnectFourEngine.array);
+
+        assertNull(registry.get(UUID.randomUUID()));
+    }
+}
@@ -0,0 +1,137 @@
+package spw4.connectfour;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameSessionTests {
+
+    private static GameSession createSession() {
+        return new GameSession(UUID.randomUUID(), ConnectFourEngine.array.create(Player.red));
+    }
+
+    @DisplayName("A drop increases the version")
+    @Test
+    public void dropIncreasesVersion() {
+        GameSession session = createSession();
+        long before = session.getVersion();
+
+        session.drop(3);
+
+        assertTrue(session.getVersion() > before);
+    }
+
+    @DisplayName("A rejected drop keeps the version")
+    @Test
+    public void rejectedDropKeepsVersion() {
+        GameSession session = createSession();
+        for (int i = 0; i < Rules.STANDARD.rows(); i++) {
+            session.drop(0);
+        }
+        long before = session.getVersion();
+
+        assertAll(
+                () -> assertFalse(session.drop(0)),
+                () -> assertEquals(before, session.getVersion())
+        );
+    }
+
+    @DisplayName("A reset increases the version, even if the board was empty")
+    @Test
+    public void resetIncreasesVersion() {
+        GameSession session = createSession();
+        long before = session.getVersion();
+
+        session.reset(Player.yellow);
+
+        assertTrue(session.getVersion() > before);
+    }
+
+    @DisplayName("A drop for an outdated version is rejected")
+    @Test
+    public void dropForOutdatedVersionIsRejected() {
+        GameSession session = createSession();
+        long version = session.getVersion();
+        session.drop(3);
+
+        assertAll(
+                () -> assertFalse(session.drop(4, version)),
+                () -> assertTrue(session.drop(4, session.getVersion()))
+        );
+    }
+
+    @DisplayName("Taking a move back and playing it again notify the listener and increase the version")
+    @Test
+    public void undoAndRedoNotifyListener() {
+        StringBuilder events = new StringBuilder();
+        GameSession session = new GameSession(UUID.randomUUID(), ConnectFourEngine.array.create(Player.red), new GameListener() {
+            @Override
+            public void discDropped(UUID id, ConnectFour game, int col) {
+                events.append("drop ").append(col).append(';');
+            }
+
+            @Override
+            public void moveUndone(UUID id, ConnectFour game, int col) {
+                events.append("undo ").append(col).append(';');
+            }
+        });
+        session.drop(3);
+        long before = session.getVersion();
+
+        assertAll(
+                () -> assertTrue(session.undo()),
+                () -> assertFalse(session.undo()),
+                () -> assertTrue(session.redo()),
+                () -> assertEquals(before + 2, session.getVersion()),
+                () -> assertEquals("drop 3;undo 3;drop 3;", events.toString())
+        );
+    }
+
+    @DisplayName("Listeners hear of delivered changes only for applied ones, once other threads can use the game")
+    @Test
+    public void changeDeliveredAfterUnlock() {
+        List<Integer> moveCounts = new CopyOnWriteArrayList<>();
+        GameSession[] session = new GameSession[1];
+        session[0] = new GameSession(UUID.randomUUID(), ConnectFourEngine.array.create(Player.red), new GameListener() {
+            @Override
+            public void changeDelivered(UUID id) {
+                Thread reader = new Thread(() -> moveCounts.add(session[0].read(ConnectFour::getMoveCount)));
+                reader.start();
+                try {
+                    reader.join(5000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        session[0].drop(3);
+        session[0].drop(3, -1);
+        session[0].undo();
+        session[0].undo();
+        session[0].reset(Player.yellow);
+
+        assertEquals(List.of(1, 0, 0), moveCounts);
+    }
+
+    @DisplayName("Every change publishes a snapshot with the new version")
+    @Test
+    public void changesPublishSnapshot() {
+        GameSession session = createSession();
+        GameSnapshot before = session.getSnapshot();
+        session.drop(3);
+        GameSnapshot after = session.getSnapshot();
+
+        assertAll(
+                () -> assertEquals(0, before.getMoveCount()),
+                () -> assertEquals(1, after.getMoveCount()),
+                () -> assertEquals(session.getVersion(), after.getVersion()),
+                () -> assertTrue(after.getVersion() > before.getVersion())
+        );
+    }
+}
@@ -0,0 +1,111 @@
+package spw4.connectfour;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameSnapshotTests {
+
+    private static Stream<Arguments> storeProvider() {
+        return Stream.of(
+                Arguments.of(ConnectFourEngine.array, Rules.STANDARD),
+                Arguments.of(ConnectFourEngine.bitboard, Rules.STANDARD),
+                Arguments.of(new SlabGameStore(1), Rules.STANDARD),
+                Arguments.of(ConnectFourEngine.array, new Rules(5, 6, 4)),
+                Arguments.of(ConnectFourEngine.array, new Rules(9, 11, 5))
+        );
+    }
+
+    private static void assertSamePosition(ConnectFourView expected, ConnectFourView actual) {
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(expected.getPlayerOnTurn(), actual.getPlayerOnTurn());
+        assertEquals(expected.getWinner(), actual.getWinner());
+        assertEquals(expected.isGameOver(), actual.isGameOver());
+        assertEquals(expected.getMoveCount(), actual.getMoveCount());
+        assertEquals(expected.positionKey(), actual.positionKey());
+        assertArrayEquals(expected.legalMoves(), actual.legalMoves());
+    }
+
+    @DisplayName("Snapshots show the position of every engine")
+    @ParameterizedTest
+    @MethodSource("storeProvider")
+    public void snapshotMatchesGame(GameStore store, Rules rules) {
+        ConnectFour game = store.create(rules, Player.yellow);
+        Random random = new Random(3);
+
+        assertSamePosition(game, GameSnapshot.of(game, 0));
+        while (!game.isGameOver()) {
+            int[] moves = game.legalMoves();
+            game.drop(moves[random.nextInt(moves.length)]);
+
+            assertSamePosition(game, GameSnapshot.of(game, 0));
+        }
+    }
+
+    @DisplayName("Snapshots keep their position and offer no way to change it")
+    @Test
+    public void snapshotsAreImmutable() {
+        ConnectFour game = ConnectFourEngine.array.create(Player.red);
+        game.drop(3);
+        GameSnapshot snapshot = GameSnapshot.of(game, 1);
+        game.drop(4);
+
+        assertAll(
+                () -> assertEquals(Player.red, snapshot.getPlayerAt(0, 3)),
+                () -> assertEquals(Player.none, snapshot.getPlayerAt(0, 4)),
+                () -> assertEquals(1, snapshot.getVersion()),
+                () -> assertEquals(7, GameSnapshot.of(snapshot, 7).getVersion()),
+                () -> assertFalse(ConnectFour.class.isAssignableFrom(GameSnapshot.class))
+        );
+    }
+
+    @DisplayName("Readers never see a torn position while a session changes")
+    @Test
+    public void readersSeeConsistentPositions() throws InterruptedException {
+        GameSession session = new GameSession(UUID.randomUUID(), ConnectFourEngine.array.create(Player.red));
+        Thread writer = new Thread(() -> {
+            Random random = new Random(5);
+            for (int i = 0; i < 20_000; i++) {
+                if (session.getSnapshot().getMoveCount() > 0 && random.nextBoolean()) {
+                    session.undo();
+                } else if (!session.drop(random.nextInt(Rules.STANDARD.cols()))) {
+                    session.reset(Player.red);
+                }
+            }
+        });
+        writer.start();
+
+        long lastVersion = -1;
+        while (writer.isAlive()) {
+            GameSnapshot snapshot = session.getSnapshot();
+            assertAll(
+                    () -> assertEquals(Zobrist.of(snapshot), snapshot.positionKey()),
+                    () -> assertEquals(discCount(snapshot), snapshot.getMoveCount())
+            );
+            assertTrue(snapshot.getVersion() >= lastVersion);
+            lastVersion = snapshot.getVersion();
+        }
+        writer.join();
+    }
+
+    private static int discCount(ConnectFourView game) {
+        int count = 0;
+        for (int row = 0; row < game.getRules().rows(); row++) {
+            for (int col = 0; col < game.getRules().cols(); col++) {
+                if (game.getPlayerAt(row, col) != Player.none) {
+                    count++;
+                }
+            }
+        }
+
+        return count;
+    }
+}
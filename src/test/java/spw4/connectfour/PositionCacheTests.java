@@ -0,0 +1,67 @@
+package spw4.connectfour;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionCacheTests {
+
+    @DisplayName("Lookups count hits and misses")
+    @Test
+    public void lookupsAreCounted() {
+        PositionCache<String> cache = new PositionCache<>(16, String::length);
+        cache.put(1, "one");
+
+        assertAll(
+                () -> assertEquals("one", cache.get(1)),
+                () -> assertNull(cache.get(2)),
+                () -> assertEquals("one", cache.get(1)),
+                () -> assertEquals(2, cache.stats().hits()),
+                () -> assertEquals(1, cache.stats().misses()),
+                () -> assertEquals(2.0 / 3, cache.stats().hitRate(), 1e-9)
+        );
+    }
+
+    @DisplayName("A position replaces the one sharing its slot, so the cache never grows beyond its capacity")
+    @Test
+    public void cacheIsBounded() {
+        PositionCache<String> cache = new PositionCache<>(3, String::length);
+        for (long key = 0; key < 100; key++) {
+            cache.put(key, Long.toString(key));
+        }
+
+        assertAll(
+                () -> assertEquals(4, cache.capacity()),
+                () -> assertTrue(cache.stats().size() <= 4),
+                () -> assertEquals("99", cache.get(99))
+        );
+    }
+
+    @DisplayName("Memory use follows the weight of the cached values")
+    @Test
+    public void memoryUseIsEstimated() {
+        PositionCache<String> cache = new PositionCache<>(1, String::length);
+        cache.put(1, "x");
+        long small = cache.stats().bytes();
+        cache.put(2, "x".repeat(1000));
+
+        assertAll(
+                () -> assertEquals(1, cache.stats().size()),
+                () -> assertEquals(small + 999, cache.stats().bytes())
+        );
+    }
+
+    @DisplayName("Values are computed only for positions not in the cache")
+    @Test
+    public void valuesAreComputedOnce() {
+        PositionCache<String> cache = new PositionCache<>(16, String::length);
+        ConnectFour game = ConnectFourEngine.bitboard.create(Player.red);
+        game.drop(3);
+
+        String first = cache.computeIfAbsent(game.positionKey(), key -> game.toString());
+        String second = cache.computeIfAbsent(game.positionKey(), key -> fail("computed twice"));
+
+        assertSame(first, second);
+    }
+}
@@ -0,0 +1,97 @@
+package spw4.connectfour;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlabGameStoreTests extends ConnectFourImplTests {
+    private final SlabGameStore store = new SlabGameStore(1024);
+
+    @Override
+    protected ConnectFour createGame(Player playerOnTurn) {
+        return store.create(Rules.STANDARD, playerOnTurn);
+    }
+
+    @Nested
+    class SlotTests {
+
+        @DisplayName("Released slots are reused and start with an empty board")
+        @Test
+        public void releasedSlotsAreReused() {
+            SlabGameStore store = new SlabGameStore(2);
+            ConnectFour first = store.create(Rules.STANDARD, Player.red);
+            ConnectFour second = store.create(Rules.STANDARD, Player.red);
+            first.drop(3);
+            second.drop(4);
+
+            store.release(first);
+            ConnectFour third = store.create(Rules.STANDARD, Player.yellow);
+
+            assertAll(
+                    () -> assertEquals(2, store.size()),
+                    () -> assertEquals(0, third.getMoveCount()),
+                    () -> assertEquals(Player.yellow, third.getPlayerOnTurn()),
+                    () -> assertEquals(Player.red, second.getPlayerAt(0, 4))
+            );
+        }
+
+        @DisplayName("A released game cannot be used anymore, even after its slot was reused")
+        @Test
+        public void releasedGameFails() {
+            SlabGameStore store = new SlabGameStore(1);
+            ConnectFour game = store.create(Rules.STANDARD, Player.red);
+            store.release(game);
+            store.create(Rules.STANDARD, Player.red);
+
+            assertAll(
+                    () -> assertThrows(IllegalStateException.class, () -> game.getPlayerAt(0, 0)),
+                    () -> assertThrows(IllegalStateException.class, () -> game.drop(0)),
+                    () -> assertThrows(IllegalStateException.class, () -> store.release(game))
+            );
+        }
+
+        @DisplayName("Creating more games than slots throws IllegalStateException")
+        @Test
+        public void fullStoreThrows() {
+            SlabGameStore store = new SlabGameStore(1);
+            store.create(Rules.STANDARD, Player.red);
+
+            assertThrows(IllegalStateException.class, () -> store.create(Rules.STANDARD, Player.red));
+        }
+
+        @DisplayName("Games with other rules are kept on the heap")
+        @Test
+        public void customRulesUseNoSlot() {
+            SlabGameStore store = new SlabGameStore(1);
+            ConnectFour game = store.create(new Rules(8, 9, 5), Player.red);
+            store.release(game);
+
+            assertAll(
+                    () -> assertEquals(new Rules(8, 9, 5), game.getRules()),
+                    () -> assertEquals(0, store.size())
+            );
+        }
+
+        @DisplayName("Games leaving the registry free their slots for new games")
+        @Test
+        public void registryReleasesSlots() {
+            SlabGameStore store = new SlabGameStore(1024);
+            GameRegistry registry = new GameRegistry(store, 1024, Duration.ofHours(1));
+
+            UUID first = registry.create(Rules.STANDARD, Player.red).getId();
+            for (int i = 0; i < 5000; i++) {
+                registry.create(Rules.STANDARD, Player.red).drop(i % 7);
+            }
+
+            assertAll(
+                    () -> assertNull(registry.get(first)),
+                    () -> assertEquals(1024, store.size())
+            );
+        }
+    }
+}
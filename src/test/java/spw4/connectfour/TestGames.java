@@ -0,0 +1,47 @@
+package spw4.connectfour;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Games and assertions shared by the tests of all packages.
+ */
+public final class TestGames {
+
+    private TestGames() {
+    }
+
+    /**
+     * Plays the moves on the array engine, which supports any rules, with red moving first.
+     */
+    public static ConnectFour play(Rules rules, int... moves) {
+        return play(ConnectFourEngine.array, rules, Player.red, moves);
+    }
+
+    /**
+     * Plays the moves on the bitboard engine with the standard rules.
+     */
+    public static ConnectFour play(Player firstPlayer, int... moves) {
+        return play(ConnectFourEngine.bitboard, Rules.STANDARD, firstPlayer, moves);
+    }
+
+    public static ConnectFour play(ConnectFourEngine engine, Rules rules, Player firstPlayer, int... moves) {
+        ConnectFour game = engine.create(rules, firstPlayer);
+        for (int col : moves) {
+            game.drop(col);
+        }
+
+        return game;
+    }
+
+    public static void assertSameBoard(ConnectFourView expected, ConnectFourView actual) {
+        assertEquals(expected.getPlayerOnTurn(), actual.getPlayerOnTurn());
+        assertEquals(expected.getWinner(), actual.getWinner());
+        assertEquals(expected.getMoveCount(), actual.getMoveCount());
+        assertEquals(expected.positionKey(), actual.positionKey());
+        for (int row = 0; row < expected.getRules().rows(); row++) {
+            for (int col = 0; col < expected.getRules().cols(); col++) {
+                assertEquals(expected.getPlayerAt(row, col), actual.getPlayerAt(row, col));
+            }
+        }
+    }
+}
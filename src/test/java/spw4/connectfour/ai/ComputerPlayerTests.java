@@ -0,0 +1,241 @@
+package spw4.connectfour.ai;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import spw4.connectfour.*;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static spw4.connectfour.TestGames.play;
+
+class ComputerPlayerTests {
+    private static final long SEED = 42;
+    private static final Duration BUDGET = Duration.ofMillis(100);
+
+    /**
+     * Plain minimax over the whole game tree: 1 if the player on turn wins, -1 if they lose, 0 for a draw.
+     */
+    private static int outcome(Rules rules, int[] moves, int count) {
+        ConnectFour game = play(rules, Arrays.copyOf(moves, count));
+        if (game.isGameOver()) {
+            return game.getWinner() == Player.none ? 0 : -1;
+        }
+
+        int best = -1;
+        for (int col : game.legalMoves()) {
+            moves[count] = col;
+            best = Math.max(best, -outcome(rules, moves, count + 1));
+            if (best == 1) {
+                break;
+            }
+        }
+
+        return best;
+    }
+
+    @Nested
+    class TacticsTests {
+
+        @DisplayName("The computer completes its own line")
+        @ParameterizedTest
+        @EnumSource(value = ConnectFourEngine.class)
+        public void takesWin(ConnectFourEngine engine) {
+            ConnectFour game = engine.create(Player.red);
+            for (int col : new int[]{0, 6, 1, 6, 2, 5}) {
+                game.drop(col);
+            }
+
+            SearchResult result = new ComputerPlayer(Rules.STANDARD).search(game, BUDGET);
+
+            assertAll(
+                    () -> assertEquals(3, result.col()),
+                    () -> assertTrue(result.isWin())
+            );
+        }
+
+        @DisplayName("The computer blocks the opponent's only threat")
+        @Test
+        public void blocksThreat() {
+            ConnectFour game = play(Rules.STANDARD, 0, 6, 1, 6, 2);
+
+            assertEquals(3, new ComputerPlayer(Rules.STANDARD).chooseMove(game, BUDGET));
+        }
+
+        @DisplayName("The computer knows it lost against two threats")
+        @Test
+        public void seesLossAgainstTwoThreats() {
+            ConnectFour game = play(Rules.STANDARD, 2, 2, 3, 3, 4);
+
+            SearchResult result = new ComputerPlayer(Rules.STANDARD).search(game, BUDGET);
+
+            assertAll(
+                    () -> assertTrue(result.col() == 1 || result.col() == 5),
+                    () -> assertTrue(result.isLoss())
+            );
+        }
+
+        @DisplayName("The computer opens in the center column")
+        @Test
+        public void opensInCenter() {
+            assertEquals(3, new ComputerPlayer(Rules.STANDARD).chooseMove(play(Rules.STANDARD), BUDGET));
+        }
+    }
+
+    @DisplayName("Solved small boards agree with a plain minimax over the whole game")
+    @Test
+    public void solvedScoresMatchMinimax() {
+        Rules rules = new Rules(3, 4, 3);
+        ComputerPlayer computer = new ComputerPlayer(rules, 1 << 12, 1);
+        Random random = new Random(SEED);
+
+        for (int i = 0; i < 50; i++) {
+            int[] moves = new int[rules.cellCount()];
+            ConnectFour game = play(rules);
+            int length = 3 + random.nextInt(3);
+            int count = 0;
+            while (count < length && !game.isGameOver()) {
+                int[] legal = game.legalMoves();
+                moves[count] = legal[random.nextInt(legal.length)];
+                game.drop(moves[count++]);
+            }
+            if (game.isGameOver()) {
+                continue;
+            }
+
+            SearchResult result = computer.search(game, Duration.ofSeconds(10));
+            int expected = outcome(rules, moves, count);
+
+            assertEquals(expected, result.isWin() ? 1 : result.isLoss() ? -1 : 0, game.toString());
+        }
+    }
+
+    @DisplayName("Parallel searches solve positions like a single thread does")
+    @Test
+    public void parallelSearchAgreesWithSingleThread() {
+        Rules rules = new Rules(4, 5, 3);
+        Random random = new Random(SEED);
+
+        for (int i = 0; i < 20; i++) {
+            ConnectFour game = play(rules);
+            int length = random.nextInt(6);
+            for (int move = 0; move < length && !game.isGameOver(); move++) {
+                int[] legal = game.legalMoves();
+                game.drop(legal[random.nextInt(legal.length)]);
+            }
+            if (game.isGameOver()) {
+                continue;
+            }
+
+            SearchResult single = new ComputerPlayer(rules, 1 << 14, 1).search(game, Duration.ofSeconds(10));
+            SearchResult parallel = new ComputerPlayer(rules, 1 << 14, 4).search(game, Duration.ofSeconds(10), 4);
+
+            assertAll(
+                    () -> assertEquals(single.isWin(), parallel.isWin()),
+                    () -> assertEquals(single.isLoss(), parallel.isLoss()),
+                    () -> assertTrue(parallel.depth() >= 1)
+            );
+        }
+    }
+
+    @Nested
+    class BudgetTests {
+
+        @DisplayName("The computer answers within its budget")
+        @Test
+        public void answersInTime() {
+            ComputerPlayer computer = new ComputerPlayer(Rules.STANDARD);
+            ConnectFour game = play(Rules.STANDARD, 3);
+
+            long start = System.nanoTime();
+            SearchResult result = computer.search(game, Duration.ofMillis(50));
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+            assertAll(
+                    () -> assertFalse(game.isColumnFull(result.col())),
+                    () -> assertTrue(result.depth() >= 1),
+                    () -> assertTrue(elapsed.compareTo(Duration.ofMillis(250)) < 0, elapsed::toString)
+            );
+        }
+
+        @DisplayName("Moves right below a cell that wins for the opponent are not searched")
+        @Test
+        public void movesBelowOpponentWinsAreSkipped() {
+            // yellow completes the second row by playing on top of a red disc in column 3
+            ConnectFour game = play(Rules.STANDARD, 0, 1, 2, 0, 5, 1, 6, 2);
+
+            SearchResult result = new ComputerPlayer(Rules.STANDARD, 1 << 16, 1).search(game, Duration.ZERO);
+
+            assertAll(
+                    () -> assertEquals(1, result.depth()),
+                    () -> assertEquals(6, result.nodes()),
+                    () -> assertNotEquals(3, result.col())
+            );
+        }
+
+        @DisplayName("Without any budget the computer still answers with a legal move")
+        @Test
+        public void zeroBudgetGivesMove() {
+            SearchResult result = new ComputerPlayer(Rules.STANDARD).search(play(Rules.STANDARD, 3, 3), Duration.ZERO);
+
+            assertAll(
+                    () -> assertEquals(1, result.depth()),
+                    () -> assertTrue(result.col() >= 0 && result.col() < Rules.STANDARD.cols())
+            );
+        }
+
+        @DisplayName("Searches beyond the concurrency limit answer in time with a shallow search")
+        @Test
+        public void busyComputerStaysInTime() throws Exception {
+            ComputerPlayer computer = new ComputerPlayer(Rules.STANDARD, 1 << 16, 1);
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                Callable<SearchResult> search = () -> computer.search(play(Rules.STANDARD, 3), Duration.ofMillis(100));
+                List<Future<SearchResult>> results = executor.invokeAll(List.of(search, search, search, search));
+
+                for (Future<SearchResult> result : results) {
+                    assertTrue(result.get().elapsed().compareTo(Duration.ofMillis(400)) < 0, result.get().elapsed()::toString);
+                }
+                assertTrue(results.stream().anyMatch(result -> {
+                    try {
+                        return result.get().depth() == 1;
+                    } catch (InterruptedException | ExecutionException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }));
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    @DisplayName("Boards too large for a bitboard are played in the centermost free column")
+    @Test
+    public void largeBoardsUseCenterColumn() {
+        Rules rules = new Rules(10, 10, 4);
+        ConnectFour game = play(rules);
+        for (int i = 0; i < rules.rows(); i++) {
+            game.drop(5);
+        }
+
+        assertEquals(4, new ComputerPlayer(rules).chooseMove(game, BUDGET));
+    }
+
+    @DisplayName("Finished games and games with other rules are rejected")
+    @Test
+    public void invalidGamesAreRejected() {
+        ComputerPlayer computer = new ComputerPlayer(Rules.STANDARD);
+
+        assertAll(
+                () -> assertThrows(IllegalArgumentException.class, () -> computer.search(play(Rules.STANDARD, 0, 1, 0, 1, 0, 1, 0), BUDGET)),
+                () -> assertThrows(IllegalArgumentException.class, () -> computer.search(play(new Rules(5, 5, 4)), BUDGET))
+        );
+    }
+}
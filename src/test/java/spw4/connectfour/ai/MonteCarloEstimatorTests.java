@@ -0,0 +1,79 @@
+package spw4.connectfour.ai;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import spw4.connectfour.*;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static spw4.connectfour.TestGames.play;
+
+class MonteCarloEstimatorTests {
+    private static final Duration BUDGET = Duration.ofSeconds(5);
+
+    @DisplayName("Probabilities add up to one and cover the requested playouts")
+    @Test
+    public void probabilitiesAddUp() {
+        WinProbability probability = new MonteCarloEstimator().estimate(play(Player.red), 10_000, BUDGET);
+
+        assertAll(
+                () -> assertTrue(probability.playouts() >= 10_000),
+                () -> assertEquals(1, probability.red() + probability.yellow() + probability.draw(), 1e-9),
+                () -> assertTrue(probability.red() > probability.yellow())
+        );
+    }
+
+    @DisplayName("An open three makes its owner the favorite")
+    @Test
+    public void openThreeIsFavored() {
+        WinProbability probability = new MonteCarloEstimator().estimate(play(Player.red, 2, 2, 3, 3, 4), 10_000, BUDGET);
+
+        assertTrue(probability.red() > 2 * probability.yellow(), probability::toString);
+    }
+
+    @DisplayName("Estimates are cached per position and seen from the players' colors")
+    @Test
+    public void estimatesAreCached() {
+        MonteCarloEstimator estimator = new MonteCarloEstimator(16, 2);
+        WinProbability first = estimator.estimate(play(Player.red, 3, 2), 5_000, BUDGET);
+        WinProbability again = estimator.estimate(play(Player.red, 3, 2), 5_000, BUDGET);
+        WinProbability swapped = estimator.estimate(play(Player.yellow, 3, 2), 5_000, BUDGET);
+
+        assertAll(
+                () -> assertEquals(first, again),
+                () -> assertEquals(first.red(), swapped.yellow()),
+                () -> assertEquals(first.yellow(), swapped.red())
+        );
+    }
+
+    @DisplayName("Estimates that are not ready yet are played in the background")
+    @Test
+    public void estimatesArePlayedInTheBackground() throws InterruptedException {
+        try (MonteCarloEstimator estimator = new MonteCarloEstimator(16, 2)) {
+            WinProbability first = estimator.estimateIfReady(play(Player.red, 3), 5_000, BUDGET);
+            WinProbability ready = first;
+            for (int i = 0; i < 500 && ready == null; i++) {
+                Thread.sleep(10);
+                ready = estimator.estimateIfReady(play(Player.red, 3), 5_000, BUDGET);
+            }
+
+            assertNull(first);
+            assertEquals(estimator.estimate(play(Player.red, 3), 5_000, BUDGET), ready);
+        }
+    }
+
+    @DisplayName("Without any budget an estimate still plays a first batch")
+    @Test
+    public void zeroBudgetStillPlays() {
+        assertTrue(new MonteCarloEstimator().estimate(play(Player.red), 1_000_000, Duration.ZERO).playouts() > 0);
+    }
+
+    @DisplayName("Boards too large for a bitboard are not estimated")
+    @Test
+    public void largeBoardsAreNotEstimated() {
+        ConnectFour game = ConnectFourEngine.array.create(new Rules(10, 10, 4), Player.red);
+
+        assertNull(new MonteCarloEstimator().estimate(game, 100, BUDGET));
+    }
+}
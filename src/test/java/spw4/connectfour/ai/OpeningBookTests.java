@@ -0,0 +1,145 @@
+package spw4.connectfour.ai;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import spw4.connectfour.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static spw4.connectfour.TestGames.play;
+
+class OpeningBookTests {
+    private static final Rules RULES = new Rules(4, 5, 3);
+    private static final int MAX_PLY = 4;
+
+    @TempDir
+    static Path directory;
+
+    private static OpeningBook book;
+
+    @BeforeAll
+    public static void generateBook() throws IOException {
+        Path file = directory.resolve("book.bin");
+        new OpeningBookGenerator(RULES, MAX_PLY, Duration.ofSeconds(5), 2).generate(file);
+        book = OpeningBook.open(file);
+    }
+
+    private static int[] mirror(int... moves) {
+        int[] mirrored = new int[moves.length];
+        for (int i = 0; i < moves.length; i++) {
+            mirrored[i] = RULES.cols() - 1 - moves[i];
+        }
+
+        return mirrored;
+    }
+
+    private static void collect(ConnectFour game, int[] moves, int count, Set<String> positions) {
+        if (game.isGameOver() || count > MAX_PLY) {
+            return;
+        }
+
+        String board = game.toString();
+        String mirrored = mirrorBoard(board);
+        positions.add(board.compareTo(mirrored) <= 0 ? board : mirrored);
+        if (count == MAX_PLY) {
+            return;
+        }
+
+        for (int col : game.legalMoves()) {
+            moves[count] = col;
+            int[] played = Arrays.copyOf(moves, count + 1);
+            collect(play(RULES, played), moves, count + 1, positions);
+        }
+    }
+
+    private static String mirrorBoard(String board) {
+        StringBuilder mirrored = new StringBuilder();
+        for (String line : board.split("\n")) {
+            if (line.startsWith("|")) {
+                String[] cells = line.substring(1, line.length() - 1).trim().split("\\s+");
+                mirrored.append("|");
+                for (int i = cells.length - 1; i >= 0; i--) {
+                    mirrored.append(' ').append(cells[i]).append(' ');
+                }
+                mirrored.append("|\n");
+            } else {
+                mirrored.append(line).append('\n');
+            }
+        }
+
+        return mirrored.toString();
+    }
+
+    @DisplayName("The book holds one entry per position and mirror image up to its ply")
+    @Test
+    public void bookHoldsEveryCanonicalPosition() {
+        Set<String> positions = new HashSet<>();
+        collect(play(RULES), new int[MAX_PLY], 0, positions);
+
+        assertAll(
+                () -> assertEquals(positions.size(), book.size()),
+                () -> assertEquals(RULES, book.getRules()),
+                () -> assertEquals(MAX_PLY, book.getMaxPly())
+        );
+    }
+
+    @DisplayName("Mirrored positions get the mirrored move with the same score")
+    @Test
+    public void mirroredPositionsShareEntry() {
+        SearchResult left = book.probe(play(RULES, 0, 1, 0));
+        SearchResult right = book.probe(play(RULES, mirror(0, 1, 0)));
+
+        assertAll(
+                () -> assertEquals(RULES.cols() - 1 - left.col(), right.col()),
+                () -> assertEquals(left.score(), right.score())
+        );
+    }
+
+    @DisplayName("Book moves agree with a search of the position")
+    @Test
+    public void bookMovesMatchSearch() {
+        ConnectFour game = play(RULES, 2, 2, 1);
+        SearchResult searched = new ComputerPlayer(RULES).search(game, Duration.ofSeconds(5));
+        SearchResult known = book.probe(game);
+
+        assertAll(
+                () -> assertEquals(searched.isWin(), known.isWin()),
+                () -> assertEquals(searched.isLoss(), known.isLoss()),
+                () -> assertFalse(game.isColumnFull(known.col()))
+        );
+    }
+
+    @DisplayName("Positions beyond the book's ply and other rules are not found")
+    @Test
+    public void unknownPositionsMiss() {
+        assertAll(
+                () -> assertNull(book.probe(play(RULES, 0, 1, 2, 3, 4))),
+                () -> assertNull(book.probe(ConnectFourEngine.array.create(Rules.STANDARD, Player.red)))
+        );
+    }
+
+    @DisplayName("The computer answers book positions without searching")
+    @Test
+    public void computerPlaysFromBook() {
+        ComputerPlayer computer = new ComputerPlayer(RULES, 1 << 10, 1, book);
+
+        assertEquals(0, computer.search(play(RULES, 2), Duration.ofSeconds(1)).nodes());
+    }
+
+    @DisplayName("Files that are no opening book are rejected")
+    @Test
+    public void invalidFilesAreRejected() throws IOException {
+        Path file = Files.write(directory.resolve("other.bin"), new byte[32]);
+
+        assertThrows(IOException.class, () -> OpeningBook.open(file));
+    }
+}
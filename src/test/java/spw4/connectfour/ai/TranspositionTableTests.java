@@ -0,0 +1,45 @@
+package spw4.connectfour.ai;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranspositionTableTests {
+
+    @DisplayName("A stored entry is found again with all of its fields")
+    @Test
+    public void storedEntryIsFound() {
+        TranspositionTable table = new TranspositionTable(64);
+        table.store(12345, 7, TranspositionTable.LOWER_BOUND, -42, 3);
+
+        long entry = table.probe(12345);
+
+        assertAll(
+                () -> assertEquals(-42, TranspositionTable.score(entry)),
+                () -> assertEquals(7, TranspositionTable.depth(entry)),
+                () -> assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.bound(entry)),
+                () -> assertEquals(3, TranspositionTable.move(entry))
+        );
+    }
+
+    @DisplayName("Unknown keys and keys whose slot was taken by another position miss")
+    @Test
+    public void otherKeysMiss() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(1, 1, TranspositionTable.EXACT, 0, TranspositionTable.NO_MOVE);
+        table.store(2, 1, TranspositionTable.EXACT, 0, TranspositionTable.NO_MOVE);
+
+        assertAll(
+                () -> assertEquals(TranspositionTable.MISS, table.probe(1)),
+                () -> assertNotEquals(TranspositionTable.MISS, table.probe(2)),
+                () -> assertEquals(TranspositionTable.NO_MOVE, TranspositionTable.move(table.probe(2)))
+        );
+    }
+
+    @DisplayName("The size is rounded up to a power of two")
+    @Test
+    public void sizeIsPowerOfTwo() {
+        assertEquals(1024, new TranspositionTable(1000).size());
+    }
+}
@@ -0,0 +1,183 @@
+package spw4.connectfour.api;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import spw4.connectfour.*;
+
+import java.io.*;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static spw4.connectfour.TestGames.assertSameBoard;
+
+class GameBatchTests {
+    private GameRegistry registry;
+    private GameBatch batch;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new GameRegistry(ConnectFourEngine.bitboard);
+        batch = new GameBatch(registry);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> executeJson(String request) {
+        return (List<Map<String, Object>>) Json.parse(batch.executeJson(request));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> game(Map<String, Object> result) {
+        return (Map<String, Object>) result.get("game");
+    }
+
+    @Nested
+    class JsonTests {
+
+        @DisplayName("Created games can be played and read in later operations")
+        @Test
+        public void createDropAndGet() {
+            UUID id = registry.create(Rules.STANDARD, Player.red).getId();
+
+            List<Map<String, Object>> results = executeJson("""
+                    [{"op": "drop", "id": "%1$s", "col": 3},
+                     {"op": "drop", "id": "%1$s", "col": 3},
+                     {"op": "get", "id": "%1$s"},
+                     {"op": "create", "rows": 4, "cols": 5, "connect": 3, "player": "yellow"}]
+                    """.formatted(id));
+
+            assertAll(
+                    () -> assertEquals(4, results.size()),
+                    () -> assertEquals(true, results.get(2).get("ok")),
+                    () -> assertEquals(2L, game(results.get(2)).get("moves")),
+                    () -> assertEquals(2L, game(results.get(2)).get("version")),
+                    () -> assertEquals("...r......y..." + ".".repeat(28), game(results.get(2)).get("board")),
+                    () -> assertEquals(5L, game(results.get(3)).get("cols")),
+                    () -> assertEquals("yellow", game(results.get(3)).get("player")),
+                    () -> assertNotNull(registry.get(UUID.fromString((String) game(results.get(3)).get("id"))))
+            );
+        }
+
+        @DisplayName("Failing operations report an error without stopping the batch")
+        @Test
+        public void failuresAreReportedPerOperation() {
+            UUID id = registry.create(Rules.STANDARD, Player.red).getId();
+
+            List<Map<String, Object>> results = executeJson("""
+                    [{"op": "get", "id": "%1$s"},
+                     {"op": "drop", "id": "%2$s", "col": 1},
+                     {"op": "drop", "id": "%1$s", "col": 9},
+                     {"op": "create", "player": "none"},
+                     {"op": "fly"},
+                     42,
+                     {"op": "drop", "id": "%1$s", "col": 0}]
+                    """.formatted(id, UUID.randomUUID()));
+
+            assertAll(
+                    () -> assertEquals(true, results.get(0).get("ok")),
+                    () -> assertEquals("unknown game", results.get(1).get("error")),
+                    () -> assertEquals("illegal move", results.get(2).get("error")),
+                    () -> assertEquals("invalid player", results.get(3).get("error")),
+                    () -> assertEquals(false, results.get(4).get("ok")),
+                    () -> assertEquals(false, results.get(5).get("ok")),
+                    () -> assertEquals(true, results.get(6).get("ok"))
+            );
+        }
+
+        @DisplayName("Requests that are no array or too large are rejected as a whole")
+        @Test
+        public void invalidRequestsAreRejected() {
+            String tooLarge = "[" + "{\"op\":\"get\"},".repeat(GameBatch.MAX_OPERATIONS) + "{\"op\":\"get\"}]";
+
+            assertAll(
+                    () -> assertThrows(IllegalArgumentException.class, () -> batch.executeJson("{\"op\": \"get\"}")),
+                    () -> assertThrows(IllegalArgumentException.class, () -> batch.executeJson(tooLarge))
+            );
+        }
+    }
+
+    @Nested
+    class BinaryTests {
+
+        @DisplayName("Standard games are returned with their encoded position")
+        @Test
+        public void standardGamesUsePositionEncoding() throws IOException {
+            GameSession session = registry.create(Rules.STANDARD, Player.red);
+            UUID id = session.getId();
+
+            ByteArrayOutputStream request = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(request);
+            out.writeInt(3);
+            out.writeByte(GameBatch.DROP);
+            out.writeLong(id.getMostSignificantBits());
+            out.writeLong(id.getLeastSignificantBits());
+            out.writeShort(3);
+            out.writeByte(GameBatch.DROP);
+            out.writeLong(0);
+            out.writeLong(0);
+            out.writeShort(3);
+            out.writeByte(GameBatch.CREATE);
+            out.write(new byte[]{3, 3, 3, (byte) Player.yellow.ordinal()});
+
+            DataInputStream in = execute(request.toByteArray());
+
+            assertEquals(3, in.readInt());
+            assertEquals(GameBatch.OK, in.readByte());
+            assertEquals(id, new UUID(in.readLong(), in.readLong()));
+            assertEquals(1, in.readLong());
+            assertEquals(0, in.readByte());
+            assertEquals(0, in.readByte());
+            assertSameBoard(session.read(game -> game), GameCodec.decodePosition(in.readLong()));
+
+            assertEquals(GameBatch.UNKNOWN_GAME, in.readByte());
+
+            assertEquals(GameBatch.OK, in.readByte());
+            assertNotNull(registry.get(new UUID(in.readLong(), in.readLong())));
+            assertEquals(0, in.readLong());
+            assertEquals(0, in.readByte());
+            assertEquals(1, in.readByte());
+            assertArrayEquals(new byte[]{3, 3, 3, (byte) Player.yellow.ordinal(), 0, 0, 0}, in.readNBytes(7));
+            assertEquals(-1, in.read());
+        }
+
+        @DisplayName("Unknown operation types fail the whole batch")
+        @Test
+        public void unknownTypeFails() {
+            assertThrows(IOException.class, () -> execute(new byte[]{0, 0, 0, 1, 9}));
+        }
+
+        @DisplayName("Batches that cannot be read change no game")
+        @Test
+        public void unreadableBatchesChangeNothing() throws IOException {
+            GameSession session = registry.create(Rules.STANDARD, Player.red);
+            UUID id = session.getId();
+
+            ByteArrayOutputStream request = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(request);
+            out.writeInt(2);
+            out.writeByte(GameBatch.DROP);
+            out.writeLong(id.getMostSignificantBits());
+            out.writeLong(id.getLeastSignificantBits());
+            out.writeShort(3);
+            byte[] truncated = request.toByteArray();
+            out.writeByte(9);
+
+            assertAll(
+                    () -> assertThrows(IOException.class, () -> execute(request.toByteArray())),
+                    () -> assertThrows(IOException.class, () -> execute(truncated)),
+                    () -> assertEquals(0, session.getSnapshot().getMoveCount()),
+                    () -> assertEquals(1, registry.size())
+            );
+        }
+
+        private DataInputStream execute(byte[] request) throws IOException {
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            batch.executeBinary(new DataInputStream(new ByteArrayInputStream(request)), new DataOutputStream(response));
+
+            return new DataInputStream(new ByteArrayInputStream(response.toByteArray()));
+        }
+    }
+}
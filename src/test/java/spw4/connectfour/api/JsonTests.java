@@ -0,0 +1,50 @@
+package spw4.connectfour.api;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonTests {
+
+    @DisplayName("Objects, arrays, strings, numbers and literals are parsed")
+    @Test
+    public void parsesAllValueTypes() {
+        Object value = Json.parse(" {\"a\": [1, -2.5, true, false, null], \"b\": \"x\\\"y\\u0041\", \"c\": {}} ");
+
+        assertEquals(Map.of(
+                "a", java.util.Arrays.asList(1L, -2.5, true, false, null),
+                "b", "x\"yA",
+                "c", Map.of()), value);
+    }
+
+    @DisplayName("Malformed input throws IllegalArgumentException")
+    @ParameterizedTest
+    @ValueSource(strings = {"", "[1,", "{\"a\" 1}", "[1] x", "\"open", "{1: 2}", "tru", "[\"\\q\"]"})
+    public void malformedInputIsRejected(String text) {
+        assertThrows(IllegalArgumentException.class, () -> Json.parse(text));
+    }
+
+    @DisplayName("Deeply nested input is rejected instead of overflowing the stack")
+    @Test
+    public void deepNestingIsRejected() {
+        String text = "[".repeat(100_000);
+
+        assertThrows(IllegalArgumentException.class, () -> Json.parse(text));
+    }
+
+    @DisplayName("Written strings are escaped and parse back to the original")
+    @Test
+    public void stringsRoundtrip() {
+        String original = "quote \" backslash \\ newline \n tab \t bell \u0007";
+        StringBuilder out = new StringBuilder();
+        Json.appendString(out, original);
+
+        assertEquals(List.of(original), Json.parse("[" + out + "]"));
+    }
+}
@@ -0,0 +1,181 @@
+package spw4.connectfour.events;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import spw4.connectfour.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameEventHubTests {
+    private GameRegistry registry;
+    private GameEventHub hub;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new GameRegistry(ConnectFourEngine.bitboard, 1024, Duration.ofHours(1));
+        hub = new GameEventHub(2, Duration.ofHours(1));
+        registry.addListener(hub);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        hub.close();
+    }
+
+    @DisplayName("Watchers receive every drop of their game in order")
+    @Test
+    public void dropsArePushedInOrder() throws Exception {
+        GameSession session = registry.create(Rules.STANDARD, Player.red);
+        RecordingSink sink = new RecordingSink();
+        hub.watch(session.getId(), sink);
+
+        session.drop(3);
+        session.drop(3);
+
+        assertEquals("event: drop\ndata: {\"col\":3,\"row\":0,\"player\":\"red\",\"winner\":\"none\",\"over\":false,\"moves\":1}\n\n", sink.next());
+        assertEquals("event: drop\ndata: {\"col\":3,\"row\":1,\"player\":\"yellow\",\"winner\":\"none\",\"over\":false,\"moves\":2}\n\n", sink.next());
+    }
+
+    @DisplayName("Watchers of other games receive nothing")
+    @Test
+    public void otherGamesAreNotPushed() throws Exception {
+        GameSession watched = registry.create(Rules.STANDARD, Player.red);
+        GameSession other = registry.create(Rules.STANDARD, Player.red);
+        RecordingSink sink = new RecordingSink();
+        hub.watch(watched.getId(), sink);
+
+        other.drop(0);
+        watched.reset(Player.yellow);
+
+        assertEquals("event: reset\ndata: {\"player\":\"yellow\"}\n\n", sink.next());
+    }
+
+    @DisplayName("Removing a game sends a last event and disconnects its watchers")
+    @Test
+    public void removedGameDisconnects() throws Exception {
+        GameSession session = registry.create(Rules.STANDARD, Player.red);
+        RecordingSink sink = new RecordingSink();
+        hub.watch(session.getId(), sink);
+
+        hub.gameRemoved(session.getId());
+
+        assertEquals("event: removed\ndata: {}\n\n", sink.next());
+        assertTrue(sink.closed.await(5, TimeUnit.SECONDS));
+        assertEquals(0, hub.getWatcherCount());
+    }
+
+    @DisplayName("A watcher whose connection fails is dropped")
+    @Test
+    public void failingWatcherIsDropped() throws Exception {
+        GameSession session = registry.create(Rules.STANDARD, Player.red);
+        RecordingSink sink = new RecordingSink();
+        sink.failing = true;
+        hub.watch(session.getId(), sink);
+
+        session.drop(0);
+
+        assertTrue(sink.closed.await(5, TimeUnit.SECONDS));
+        assertEquals(0, hub.getWatcherCount());
+    }
+
+    @DisplayName("A watcher that cannot keep up is disconnected instead of buffering without limit")
+    @Test
+    public void slowWatcherIsDisconnected() throws Exception {
+        GameSession session = registry.create(new Rules(100, 100, 64), Player.red);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingSink sink = new RecordingSink() {
+            @Override
+            public void send(byte[] event) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                super.send(event);
+            }
+        };
+        hub.watch(session.getId(), sink);
+
+        for (int i = 0; i < GameEventHub.MAX_QUEUED_EVENTS * 2; i++) {
+            session.drop(i % 100);
+        }
+        release.countDown();
+
+        assertTrue(sink.closed.await(5, TimeUnit.SECONDS));
+        assertTrue(sink.events.size() <= GameEventHub.MAX_QUEUED_EVENTS + 1);
+    }
+
+    @DisplayName("A watcher that never becomes ready holds up no writer and is disconnected once too far behind")
+    @Test
+    public void stalledWatcherDoesNotBlockOthers() throws Exception {
+        hub.close();
+        hub = new GameEventHub(1, Duration.ofHours(1));
+        registry.addListener(hub);
+        GameSession session = registry.create(new Rules(100, 100, 64), Player.red);
+        RecordingSink stalled = new RecordingSink() {
+            @Override
+            public boolean isReady() {
+                return false;
+            }
+        };
+        RecordingSink other = new RecordingSink();
+        hub.watch(session.getId(), stalled);
+        hub.watch(session.getId(), other);
+
+        for (int i = 0; i < GameEventHub.MAX_QUEUED_EVENTS * 2; i++) {
+            session.drop(i % 100);
+            assertTrue(other.next().contains("\"moves\":" + (i + 1) + "}"));
+        }
+        assertAll(
+                () -> assertTrue(stalled.closed.await(5, TimeUnit.SECONDS)),
+                () -> assertTrue(stalled.events.isEmpty()),
+                () -> assertEquals(1, hub.getWatcherCount())
+        );
+    }
+
+    @DisplayName("Idle watchers receive heartbeats")
+    @Test
+    public void idleWatchersGetHeartbeats() throws Exception {
+        hub.close();
+        hub = new GameEventHub(1, Duration.ofMillis(10));
+        RecordingSink sink = new RecordingSink();
+        hub.watch(registry.create(Rules.STANDARD, Player.red).getId(), sink);
+
+        assertEquals(":\n\n", sink.next());
+    }
+
+    private static class RecordingSink implements EventSink {
+        final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        final CountDownLatch closed = new CountDownLatch(1);
+        volatile boolean failing;
+
+        @Override
+        public void send(byte[] event) throws IOException {
+            if (failing) {
+                throw new IOException("connection reset");
+            }
+            events.add(new String(event, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+
+        String next() throws InterruptedException {
+            String event = events.poll(5, TimeUnit.SECONDS);
+            assertNotNull(event, "no event within 5 seconds");
+            return event;
+        }
+    }
+}
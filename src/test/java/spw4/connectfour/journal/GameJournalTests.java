@@ -0,0 +1,207 @@
+package spw4.connectfour.journal;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import spw4.connectfour.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameJournalTests {
+    @TempDir
+    Path directory;
+
+    @DisplayName("Reopening the journal restores games with their moves")
+    @Test
+    public void reopeningRestoresGames() throws IOException {
+        GameRegistry registry = new GameRegistry(ConnectFourEngine.array);
+        GameSession first;
+        GameSession second;
+
+        try (GameJournal ignored = GameJournal.open(directory, registry)) {
+            first = registry.create(Rules.STANDARD, Player.red);
+            second = registry.create(new Rules(8, 9, 5), Player.yellow);
+
+            first.drop(3);
+            first.drop(4);
+            second.drop(8);
+        }
+
+        GameRegistry restored = new GameRegistry(ConnectFourEngine.array);
+        try (GameJournal ignored = GameJournal.open(directory, restored)) {
+            assertAll(
+                    () -> assertEquals(2, restored.size()),
+                    () -> assertEquals(describe(first), describe(restored.get(first.getId()))),
+                    () -> assertEquals(describe(second), describe(restored.get(second.getId()))),
+                    () -> assertEquals(new Rules(8, 9, 5), restored.get(second.getId()).read(ConnectFour::getRules))
+            );
+        }
+    }
+
+    @DisplayName("Resets, moves taken back and removed games are replayed")
+    @Test
+    public void resetsAndRemovalsAreReplayed() throws IOException {
+        GameRegistry registry = new GameRegistry(ConnectFourEngine.bitboard, 1, GameRegistry.DEFAULT_IDLE_TIMEOUT);
+        GameSession evicted;
+        GameSession kept;
+
+        try (GameJournal ignored = GameJournal.open(directory, registry)) {
+            evicted = registry.create(Rules.STANDARD, Player.red);
+            kept = registry.create(Rules.STANDARD, Player.red);
+            kept.drop(0);
+            kept.reset(Player.yellow);
+            kept.drop(6);
+            kept.drop(5);
+            kept.undo();
+        }
+
+        GameRegistry restored = new GameRegistry(ConnectFourEngine.bitboard);
+        try (GameJournal ignored = GameJournal.open(directory, restored)) {
+            assertAll(
+                    () -> assertNull(restored.get(evicted.getId())),
+                    () -> assertEquals(describe(kept), describe(restored.get(kept.getId()))),
+                    () -> assertEquals(Player.yellow, restored.get(kept.getId()).read(game -> game.getPlayerAt(0, 6)))
+            );
+        }
+    }
+
+    @DisplayName("Games against the computer keep its side after a restart, from segments and from snapshots")
+    @Test
+    public void computerSideSurvivesRestart() throws IOException {
+        for (long segmentSize : new long[]{GameJournal.DEFAULT_SEGMENT_SIZE, 64}) {
+            Path journal = directory.resolve("journal-" + segmentSize);
+            GameRegistry registry = new GameRegistry(ConnectFourEngine.array);
+            List<GameSession> sessions = new ArrayList<>();
+
+            try (GameJournal ignored = GameJournal.open(journal, registry, segmentSize, 2)) {
+                for (int i = 0; i < 12; i++) {
+                    GameSession session = registry.create(Rules.STANDARD, Player.red, Player.values()[i % 3]);
+                    session.drop(i % ConnectFourImpl.BOARD_COLS);
+                    sessions.add(session);
+                }
+            }
+
+            GameRegistry restored = new GameRegistry(ConnectFourEngine.array);
+            try (GameJournal ignored = GameJournal.open(journal, restored)) {
+                for (GameSession session : sessions) {
+                    GameSession restoredSession = restored.get(session.getId());
+                    assertEquals(session.getComputerPlayer(), restoredSession.getComputerPlayer());
+                    assertEquals(describe(session), describe(restoredSession));
+                }
+            }
+        }
+    }
+
+    @DisplayName("Closed segments are compacted into a snapshot")
+    @Test
+    public void closedSegmentsAreCompactedIntoSnapshot() throws IOException {
+        GameRegistry registry = new GameRegistry(ConnectFourEngine.array);
+        List<GameSession> sessions = new ArrayList<>();
+
+        try (GameJournal ignored = GameJournal.open(directory, registry, 64, 2)) {
+            for (int i = 0; i < 20; i++) {
+                GameSession session = registry.create(Rules.STANDARD, Player.red);
+                session.drop(i % ConnectFourImpl.BOARD_COLS);
+                sessions.add(session);
+            }
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.anyMatch(file -> file.getFileName().toString().startsWith("snapshot-")));
+        }
+
+        GameRegistry restored = new GameRegistry(ConnectFourEngine.array);
+        try (GameJournal ignored = GameJournal.open(directory, restored)) {
+            assertEquals(sessions.size(), restored.size());
+            for (GameSession session : sessions) {
+                assertEquals(describe(session), describe(restored.get(session.getId())));
+            }
+        }
+    }
+
+    @DisplayName("Torn record at the end of a segment is ignored")
+    @Test
+    public void tornRecordAtEndIsIgnored() throws IOException {
+        GameRegistry registry = new GameRegistry(ConnectFourEngine.array);
+        GameSession session;
+
+        try (GameJournal ignored = GameJournal.open(directory, registry)) {
+            session = registry.create(Rules.STANDARD, Player.red);
+            session.drop(2);
+        }
+
+        Path segment = JournalFormat.segmentPath(directory, 0);
+        Files.write(segment, new byte[] {JournalFormat.DROPPED, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        GameRegistry restored = new GameRegistry(ConnectFourEngine.array);
+        try (GameJournal ignored = GameJournal.open(directory, restored)) {
+            assertEquals(describe(session), describe(restored.get(session.getId())));
+        }
+    }
+
+    @DisplayName("A torn record is cut off when reopening, so it is not mistaken for corruption later")
+    @Test
+    public void tornRecordIsTruncated() throws IOException {
+        GameRegistry registry = new GameRegistry(ConnectFourEngine.array);
+        GameSession session;
+
+        try (GameJournal ignored = GameJournal.open(directory, registry)) {
+            session = registry.create(Rules.STANDARD, Player.red);
+            session.drop(2);
+        }
+        Files.write(JournalFormat.segmentPath(directory, 0), new byte[] {JournalFormat.DROPPED, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        GameRegistry reopened = new GameRegistry(ConnectFourEngine.array);
+        try (GameJournal ignored = GameJournal.open(directory, reopened)) {
+            reopened.get(session.getId()).drop(4);
+            session.drop(4);
+        }
+
+        GameRegistry restored = new GameRegistry(ConnectFourEngine.array);
+        try (GameJournal ignored = GameJournal.open(directory, restored)) {
+            assertEquals(describe(session), describe(restored.get(session.getId())));
+        }
+    }
+
+    @DisplayName("A damaged record before the newest segment fails the replay")
+    @Test
+    public void corruptionBeforeNewestSegmentFails() throws IOException {
+        GameRegistry registry = new GameRegistry(ConnectFourEngine.array);
+        try (GameJournal ignored = GameJournal.open(directory, registry)) {
+            registry.create(Rules.STANDARD, Player.red).drop(2);
+        }
+        try (GameJournal ignored = GameJournal.open(directory, new GameRegistry(ConnectFourEngine.array))) {
+            // starts the next segment
+        }
+
+        Path segment = JournalFormat.segmentPath(directory, 0);
+        byte[] content = Files.readAllBytes(segment);
+        content[content.length - 1] ^= 1;
+        Files.write(segment, content);
+
+        assertThrows(IOException.class, () -> GameJournal.open(directory, new GameRegistry(ConnectFourEngine.array)));
+    }
+
+    @DisplayName("A journaled move that cannot be played fails the replay")
+    @Test
+    public void impossibleMoveFails() throws IOException {
+        UUID id = UUID.randomUUID();
+        Files.createDirectories(directory);
+        Files.write(JournalFormat.segmentPath(directory, 0), JournalFormat.created(id, Rules.STANDARD, Player.red, Player.none));
+        Files.write(JournalFormat.segmentPath(directory, 0), JournalFormat.dropped(id, Rules.STANDARD.cols()), StandardOpenOption.APPEND);
+
+        assertThrows(IOException.class, () -> GameJournal.open(directory, new GameRegistry(ConnectFourEngine.array)));
+    }
+
+    private static String describe(GameSession session) {
+        return session.read(ConnectFour::toString);
+    }
+}
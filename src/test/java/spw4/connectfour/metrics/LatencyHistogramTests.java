@@ -0,0 +1,81 @@
+package spw4.connectfour.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTests {
+
+    @DisplayName("Every value falls into the bucket whose bounds contain it, which is at most a quarter wide")
+    @ParameterizedTest
+    @ValueSource(longs = {0, 1, 3, 4, 7, 8, 1000, 1023, 1024, 123_456_789, (1L << 40) - 1})
+    public void bucketsContainTheirValues(long value) {
+        int index = LatencyHistogram.bucketIndex(value);
+        long lower = index == 0 ? 0 : LatencyHistogram.bucketUpperBound(index - 1);
+        long upper = LatencyHistogram.bucketUpperBound(index);
+
+        assertAll(
+                () -> assertTrue(lower <= value && value < upper),
+                () -> assertTrue(upper - lower <= Math.max(1, lower / 4))
+        );
+    }
+
+    @DisplayName("Quantiles are within a bucket of the recorded values")
+    @Test
+    public void quantilesAreAccurate() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000);
+        }
+
+        assertAll(
+                () -> assertEquals(1000, histogram.count()),
+                () -> assertEquals(500_500_000, histogram.sum()),
+                () -> assertEquals(500_000, histogram.quantile(0.5), 500_000 / 4.0),
+                () -> assertEquals(990_000, histogram.quantile(0.99), 990_000 / 4.0),
+                () -> assertEquals(0, new LatencyHistogram().quantile(0.5))
+        );
+    }
+
+    @DisplayName("Counts below powers of two are cumulative and clamp out-of-range values")
+    @Test
+    public void countsBelowPowersOfTwo() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(1500);
+        histogram.record(5000);
+        histogram.record(Long.MAX_VALUE);
+
+        assertAll(
+                () -> assertEquals(1, histogram.countBelowPowerOfTwo(10)),
+                () -> assertEquals(2, histogram.countBelowPowerOfTwo(11)),
+                () -> assertEquals(3, histogram.countBelowPowerOfTwo(13)),
+                () -> assertEquals(4, histogram.countBelowPowerOfTwo(LatencyHistogram.MAX_MAGNITUDE))
+        );
+    }
+
+    @DisplayName("Concurrent recordings are all counted")
+    @Test
+    public void concurrentRecordingsAreCounted() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    histogram.record(ThreadLocalRandom.current().nextLong(1_000_000));
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40_000, histogram.count());
+    }
+}
@@ -0,0 +1,74 @@
+package spw4.connectfour.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import spw4.connectfour.*;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTests {
+
+    @DisplayName("Games created, finished and their drops are counted from the registry")
+    @Test
+    public void gamesAreCounted() {
+        GameRegistry registry = new GameRegistry(ConnectFourEngine.bitboard, 16, Duration.ofHours(1));
+        Metrics metrics = new Metrics(registry::size, Map::of);
+        registry.addListener(metrics);
+
+        GameSession session = registry.create(Rules.STANDARD, Player.red);
+        registry.create(Rules.STANDARD, Player.red);
+        for (int col : new int[]{0, 1, 0, 1, 0, 1, 0}) {
+            session.drop(col);
+        }
+
+        assertAll(
+                () -> assertEquals(2, metrics.getGamesCreated()),
+                () -> assertEquals(1, metrics.getGamesFinished()),
+                () -> assertEquals(7, metrics.getDrops())
+        );
+    }
+
+    @DisplayName("Errors are counted by type")
+    @Test
+    public void errorsAreCountedByType() {
+        Metrics metrics = new Metrics(() -> 0, Map::of);
+        metrics.error(new NumberFormatException());
+        metrics.error(new NumberFormatException());
+        metrics.error(new IllegalStateException());
+
+        assertAll(
+                () -> assertEquals(2, metrics.getErrors(NumberFormatException.class)),
+                () -> assertEquals(1, metrics.getErrors(IllegalStateException.class)),
+                () -> assertEquals(0, metrics.getErrors(IllegalArgumentException.class))
+        );
+    }
+
+    @DisplayName("Metrics are written in the Prometheus text format")
+    @Test
+    public void prometheusFormat() {
+        PositionCache.Stats pages = new PositionCache.Stats(3, 1, 1, 16, 4096);
+        Metrics metrics = new Metrics(() -> 5, () -> Map.of("pages", pages));
+        metrics.requestLatency("view").record(2_000_000);
+        metrics.pageRendered(8000, 50_000);
+        metrics.error(new NumberFormatException());
+
+        StringBuilder out = new StringBuilder();
+        metrics.writePrometheus(out);
+        String text = out.toString();
+
+        assertAll(
+                () -> assertTrue(text.contains("# TYPE connectfour_games_live gauge\nconnectfour_games_live 5\n")),
+                () -> assertTrue(text.contains("connectfour_rendered_bytes_total 8000\n")),
+                () -> assertTrue(text.contains("connectfour_request_seconds_bucket{action=\"view\",le=\"0.001048576\"} 0\n")),
+                () -> assertTrue(text.contains("connectfour_request_seconds_bucket{action=\"view\",le=\"0.002097152\"} 1\n")),
+                () -> assertTrue(text.contains("connectfour_request_seconds_count{action=\"view\"} 1\n")),
+                () -> assertTrue(text.contains("connectfour_render_seconds_count 1\n")),
+                () -> assertTrue(text.contains("connectfour_errors_total{type=\"java.lang.NumberFormatException\"} 1\n")),
+                () -> assertTrue(text.contains("connectfour_cache_hits_total{cache=\"pages\"} 3\n")),
+                () -> assertTrue(text.lines().allMatch(line -> line.startsWith("# ") || line.matches("[a-z_]+(\\{.*})? \\S+")))
+        );
+    }
+}
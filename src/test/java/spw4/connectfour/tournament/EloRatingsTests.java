@@ -0,0 +1,88 @@
+package spw4.connectfour.tournament;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import spw4.connectfour.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EloRatingsTests {
+
+    private static List<GameResult> games(String red, String yellow, int redWins, int draws, int yellowWins) {
+        List<GameResult> games = new ArrayList<>();
+        for (int i = 0; i < redWins + draws + yellowWins; i++) {
+            Player winner = i < redWins ? Player.red : i < redWins + draws ? Player.none : Player.yellow;
+            games.add(new GameResult(1, games.size() + 1, red, yellow, winner, new int[0], null));
+        }
+
+        return games;
+    }
+
+    @DisplayName("Even results give equal ratings around the mean")
+    @Test
+    public void evenResultsRateEqually() {
+        List<EloRatings.Rating> ratings = EloRatings.of(List.of("a", "b"), games("a", "b", 3, 2, 3));
+
+        assertAll(
+                () -> assertEquals(EloRatings.MEAN_RATING, ratings.get(0).elo(), 1e-6),
+                () -> assertEquals(EloRatings.MEAN_RATING, ratings.get(1).elo(), 1e-6),
+                () -> assertEquals(4, ratings.get(0).score()),
+                () -> assertEquals(8, ratings.get(0).games())
+        );
+    }
+
+    @DisplayName("The rating difference matches the score including the extra draw")
+    @Test
+    public void differenceMatchesScore() {
+        List<EloRatings.Rating> ratings = EloRatings.of(List.of("a", "b"), games("a", "b", 3, 0, 1));
+        // 3.5 of 5 points expected with the extra draw
+        double expected = 400 * Math.log10(3.5 / 1.5);
+
+        assertAll(
+                () -> assertEquals("a", ratings.get(0).name()),
+                () -> assertEquals(expected, ratings.get(0).elo() - ratings.get(1).elo(), 1e-6),
+                () -> assertEquals(2 * EloRatings.MEAN_RATING, ratings.get(0).elo() + ratings.get(1).elo(), 1e-6)
+        );
+    }
+
+    @DisplayName("Players winning or losing every game get finite ratings")
+    @Test
+    public void perfectScoresAreFinite() {
+        List<EloRatings.Rating> ratings = EloRatings.of(List.of("a", "b"), games("a", "b", 10, 0, 0));
+
+        assertAll(
+                () -> assertTrue(Double.isFinite(ratings.get(0).elo())),
+                () -> assertTrue(Double.isFinite(ratings.get(1).elo())),
+                () -> assertTrue(ratings.get(0).elo() > ratings.get(1).elo())
+        );
+    }
+
+    @DisplayName("Margins shrink with more games")
+    @Test
+    public void marginsShrink() {
+        double few = EloRatings.of(List.of("a", "b"), games("a", "b", 6, 2, 4)).get(0).margin();
+        double many = EloRatings.of(List.of("a", "b"), games("a", "b", 600, 200, 400)).get(0).margin();
+
+        assertTrue(many < few / 5);
+    }
+
+    @DisplayName("Ratings of a chain of players follow their results")
+    @Test
+    public void ratingsAreTransitive() {
+        List<GameResult> games = new ArrayList<>(games("a", "b", 7, 0, 3));
+        games.addAll(games("c", "b", 3, 0, 7));
+
+        List<EloRatings.Rating> ratings = EloRatings.of(List.of("a", "b", "c"), games);
+
+        assertEquals(List.of("a", "b", "c"), ratings.stream().map(EloRatings.Rating::name).toList());
+    }
+
+    @DisplayName("Players must not appear twice")
+    @Test
+    public void duplicatePlayersAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> EloRatings.of(List.of("a", "a"), List.of()));
+    }
+}
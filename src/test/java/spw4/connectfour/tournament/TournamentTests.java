@@ -0,0 +1,228 @@
+package spw4.connectfour.tournament;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import spw4.connectfour.ConnectFour;
+import spw4.connectfour.Player;
+import spw4.connectfour.Rules;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.*;
+import java.util.random.RandomGenerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static spw4.connectfour.TestGames.play;
+
+class TournamentTests {
+    private static final Duration MOVE_TIME = Duration.ofMillis(50);
+
+    private interface Moves {
+        int choose(ConnectFour game, Duration budget, RandomGenerator random);
+    }
+
+    private static Strategy named(String name, Moves moves) {
+        return new Strategy() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public int chooseMove(ConnectFour game, Duration budget, RandomGenerator random) {
+                return moves.choose(game, budget, random);
+            }
+        };
+    }
+
+    private static Strategy fixed(String name, int col) {
+        return named(name, (game, budget, random) -> col);
+    }
+
+    @Nested
+    class StrategyTests {
+
+        @DisplayName("Random strategies only play legal moves")
+        @Test
+        public void randomPlaysLegalMoves() {
+            ConnectFour game = play(Player.red, 0, 0, 0, 0, 0, 0);
+            RandomGenerator random = new SplittableRandom(1);
+
+            for (int i = 0; i < 100; i++) {
+                int col = Strategy.random().chooseMove(game, MOVE_TIME, random);
+                assertFalse(game.isColumnFull(col));
+            }
+        }
+
+        @DisplayName("Greedy strategies win at once and block the opponent's win")
+        @Test
+        public void greedyWinsAndBlocks() {
+            RandomGenerator random = new SplittableRandom(1);
+
+            assertAll(
+                    () -> assertEquals(3, Strategy.greedy().chooseMove(play(Player.red, 0, 6, 1, 6, 2, 5), MOVE_TIME, random)),
+                    () -> assertEquals(4, Strategy.greedy().chooseMove(play(Player.red, 0, 1, 6, 2, 6, 3), MOVE_TIME, random))
+            );
+        }
+
+        @DisplayName("Greedy strategies leave the game as they found it")
+        @Test
+        public void greedyRestoresGame() {
+            ConnectFour game = play(Player.red, 3, 3, 2);
+            long key = game.positionKey();
+
+            Strategy.greedy().chooseMove(game, MOVE_TIME, new SplittableRandom(1));
+
+            assertAll(
+                    () -> assertEquals(key, game.positionKey()),
+                    () -> assertEquals(3, game.getMoveCount())
+            );
+        }
+    }
+
+    @Nested
+    class GameTests {
+
+        @DisplayName("Games are played to the end with red moving first")
+        @Test
+        public void gamesArePlayedToTheEnd() {
+            Tournament tournament = new Tournament(Rules.STANDARD, List.of(Strategy.random(), Strategy.greedy()), MOVE_TIME, 1);
+
+            GameResult result = tournament.play(1, 1, Strategy.random(), Strategy.greedy());
+            ConnectFour replayed = play(Player.red, result.moves());
+
+            assertAll(
+                    () -> assertTrue(replayed.isGameOver()),
+                    () -> assertEquals(replayed.getWinner(), result.winner()),
+                    () -> assertNull(result.forfeit())
+            );
+        }
+
+        @DisplayName("Strategies playing full columns, throwing or running out of time forfeit")
+        @Test
+        public void strategiesForfeit() {
+            Strategy slow = named("slow", (game, budget, random) -> {
+                try {
+                    Thread.sleep(budget.plus(Tournament.TIME_TOLERANCE).toMillis() + 50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 0;
+            });
+            Strategy throwing = named("throwing", (game, budget, random) -> {
+                throw new IllegalStateException();
+            });
+            Tournament tournament = new Tournament(Rules.STANDARD, List.of(slow, throwing), Duration.ofMillis(1), 1);
+
+            GameResult full = tournament.play(1, 1, fixed("left", 0), fixed("right", 6));
+            GameResult stacked = tournament.play(1, 2, fixed("first", 0), fixed("second", 0));
+            GameResult thrown = tournament.play(1, 3, throwing, fixed("left", 0));
+            GameResult late = tournament.play(1, 4, fixed("left", 0), slow);
+
+            assertAll(
+                    () -> assertEquals(Player.red, full.winner()),
+                    () -> assertNull(full.forfeit()),
+                    () -> assertEquals(Player.yellow, stacked.winner()),
+                    () -> assertEquals("played column 0", stacked.forfeit()),
+                    () -> assertEquals(6, stacked.moves().length),
+                    () -> assertEquals(Player.yellow, thrown.winner()),
+                    () -> assertEquals("threw IllegalStateException", thrown.forfeit()),
+                    () -> assertEquals(Player.red, late.winner()),
+                    () -> assertEquals("ran out of time", late.forfeit())
+            );
+        }
+    }
+
+    @Nested
+    class PairingTests {
+
+        @DisplayName("Round robins pair every strategy with every other one once per round, changing colors")
+        @Test
+        public void roundRobinPairsEveryone() {
+            List<Strategy> strategies = List.of(Strategy.random(), Strategy.greedy(), named("other", Strategy.random()::chooseMove));
+            List<GameResult> results = new Tournament(Rules.STANDARD, strategies, MOVE_TIME, 1).roundRobin(2);
+
+            Map<String, Integer> colors = new HashMap<>();
+            for (GameResult result : results) {
+                colors.merge(result.red() + "-" + result.yellow(), 1, Integer::sum);
+            }
+
+            assertAll(
+                    () -> assertEquals(6, results.size()),
+                    () -> assertEquals(6, colors.size()),
+                    () -> assertTrue(colors.values().stream().allMatch(count -> count == 1)),
+                    () -> assertEquals(List.of(1, 1, 1, 2, 2, 2), results.stream().map(GameResult::round).toList())
+            );
+        }
+
+        @DisplayName("Swiss rounds pair strategies that did not meet and let each sit out at most once")
+        @Test
+        public void swissAvoidsRematches() {
+            List<Strategy> strategies = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                strategies.add(named("random" + i, Strategy.random()::chooseMove));
+            }
+            List<GameResult> results = new Tournament(Rules.STANDARD, strategies, MOVE_TIME, 7).swiss(3);
+
+            Set<String> pairs = new HashSet<>();
+            Map<String, Integer> games = new HashMap<>();
+            for (GameResult result : results) {
+                pairs.add(result.red().compareTo(result.yellow()) < 0 ? result.red() + result.yellow() : result.yellow() + result.red());
+                games.merge(result.red(), 1, Integer::sum);
+                games.merge(result.yellow(), 1, Integer::sum);
+            }
+
+            assertAll(
+                    () -> assertEquals(6, results.size()),
+                    () -> assertEquals(6, pairs.size()),
+                    () -> assertTrue(games.values().stream().allMatch(count -> count >= 2))
+            );
+        }
+
+        @DisplayName("The same seed plays the same games however many run at once")
+        @Test
+        public void seedsReproduceResults() throws IOException {
+            List<Strategy> strategies = List.of(Strategy.random(), Strategy.greedy(), named("other", Strategy.greedy()::chooseMove));
+            Tournament sequential = new Tournament(Rules.STANDARD, strategies, MOVE_TIME, 42, 1);
+            Tournament parallel = new Tournament(Rules.STANDARD, strategies, MOVE_TIME, 42, 8);
+            Tournament other = new Tournament(Rules.STANDARD, strategies, MOVE_TIME, 43, 8);
+
+            List<GameResult> first = sequential.swiss(4);
+            List<GameResult> second = parallel.swiss(4);
+
+            StringWriter firstFile = new StringWriter();
+            StringWriter secondFile = new StringWriter();
+            sequential.writeResults(firstFile, first, EloRatings.of(sequential.getNames(), first));
+            parallel.writeResults(secondFile, second, EloRatings.of(parallel.getNames(), second));
+
+            assertAll(
+                    () -> assertEquals(first, second),
+                    () -> assertEquals(firstFile.toString(), secondFile.toString()),
+                    () -> assertNotEquals(first, other.swiss(4))
+            );
+        }
+
+        @DisplayName("Greedy strategies are rated above random ones")
+        @Test
+        public void greedyIsRatedHigher() {
+            Tournament tournament = new Tournament(Rules.STANDARD, List.of(Strategy.random(), Strategy.greedy()), MOVE_TIME, 1);
+
+            List<EloRatings.Rating> ratings = EloRatings.of(tournament.getNames(), tournament.roundRobin(50));
+
+            assertAll(
+                    () -> assertEquals("greedy", ratings.get(0).name()),
+                    () -> assertTrue(ratings.get(0).elo() - ratings.get(1).elo() > 200),
+                    () -> assertTrue(Double.isFinite(ratings.get(0).margin()))
+            );
+        }
+    }
+
+    @DisplayName("Strategies need distinct names")
+    @Test
+    public void namesMustBeDistinct() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new Tournament(Rules.STANDARD, List.of(Strategy.random(), Strategy.random()), MOVE_TIME, 1));
+    }
+}